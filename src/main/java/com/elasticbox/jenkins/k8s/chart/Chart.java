@@ -14,24 +14,27 @@ import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Created by serna on 4/15/16.
+ * Immutable snapshot of a chart, built once per repository, chart and reference and shared by every deployment of
+ * it, possibly from concurrent builds. Neither the chart nor its resources must be modified: the per build
+ * variations are applied to copies of the resources at deploy time, see {@link ChartResources}.
  */
-public class Chart {
+public final class Chart {
 
-    private String details;
-    private String name;
-    private String home;
-    private String source;
-    private String version;
-    private String description;
-    private List<String> maintainers;
+    private final String details;
+    private final String name;
+    private final String home;
+    private final String source;
+    private final String version;
+    private final String description;
+    private final List<String> maintainers;
 
-    private List<Service> services;
-    private List<ReplicationController> replicationControllers;
-    private List<Pod> pods;
+    private final List<Service> services;
+    private final List<ReplicationController> replicationControllers;
+    private final List<Pod> pods;
 
     private Chart(ChartBuilder builder) {
         this.details = builder.chartDetails.getDetails();
@@ -41,11 +44,14 @@ public class Chart {
         this.version = builder.chartDetails.getVersion();
         this.description = builder.chartDetails.getDescription();
 
-        this.maintainers = builder.chartDetails.getMaintainers();
-        this.pods = builder.pods;
-        this.replicationControllers = builder.replicationControllers;
-        this.services = builder.services;
+        this.maintainers = unmodifiableCopy(builder.chartDetails.getMaintainers() );
+        this.pods = unmodifiableCopy(builder.pods);
+        this.replicationControllers = unmodifiableCopy(builder.replicationControllers);
+        this.services = unmodifiableCopy(builder.services);
+    }
 
+    private static <T> List<T> unmodifiableCopy(List<T> list) {
+        return (list != null) ? Collections.unmodifiableList(new ArrayList<>(list) ) : null;
     }
 
     public String getDetails() {
@@ -22,6 +22,8 @@ public class ChartRepo {
 
     private Proxy proxy;
 
+    private ChartRepoType type = ChartRepoType.GITHUB;
+
     public ChartRepo(String url) {
         this.url = new GitHubUrl(url);
     }
@@ -43,6 +45,14 @@ public class ChartRepo {
         return url;
     }
 
+    public ChartRepoType getType() {
+        return type;
+    }
+
+    public void setType(ChartRepoType type) {
+        this.type = (type != null) ? type : ChartRepoType.GITHUB;
+    }
+
     public void setProxy(Proxy proxy) {
         this.proxy = (proxy != Proxy.NO_PROXY) ? proxy : null;
     }
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.chart;
+
+public enum ChartRepoType {
+
+    GITHUB("GitHub repository"),
+    HELM("Helm chart repository"),
+    LOCAL("Local chart directory");
+
+    private final String displayName;
+
+    ChartRepoType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
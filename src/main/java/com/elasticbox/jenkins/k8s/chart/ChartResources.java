@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.chart;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceSpec;
+import io.fabric8.kubernetes.api.model.ServiceSpecBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copies of the resources of a {@link Chart}, used to apply the per build variations (labels, annotations, the
+ * resource version of the live resource) at deploy time without modifying the chart, which can be shared by any
+ * number of concurrent deployments. Only the metadata is copied: the copies share the spec of the chart resource,
+ * so they are cheap to create but their spec must not be modified.
+ */
+public final class ChartResources {
+
+    private ChartResources() {
+    }
+
+    /**
+     * Copy of the given resource with the given labels and annotations added to its own. Any of them can be null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends HasMetadata> T copy(T resource, Map<String, String> labels,
+                                                 Map<String, String> annotations) {
+
+        final ObjectMeta metadata = copyMetadata(resource.getMetadata(), labels, annotations);
+
+        if (resource instanceof Pod) {
+            return (T) copy( (Pod) resource, metadata);
+        }
+        if (resource instanceof Service) {
+            return (T) copy( (Service) resource, metadata);
+        }
+        if (resource instanceof ReplicationController) {
+            return (T) copy( (ReplicationController) resource, metadata);
+        }
+        throw new IllegalArgumentException("Unsupported chart resource: " + resource.getKind() );
+    }
+
+    /**
+     * Copy of the given resource, with the given labels added, to replace the given live resource: it keeps the
+     * resource version of the live resource and, for Services, the cluster IP allocated to the live Service when the
+     * chart does not set one, as it cannot be changed. The spec is copied in that case, so the spec of the chart
+     * resource is never modified.
+     */
+    public static <T extends HasMetadata> T copyForReplace(T resource, Map<String, String> labels, T live) {
+        final T copy = copy(resource, labels, null);
+        if (live == null) {
+            return copy;
+        }
+
+        if (live.getMetadata() != null) {
+            copy.getMetadata().setResourceVersion(live.getMetadata().getResourceVersion() );
+        }
+        if (copy instanceof Service) {
+            keepClusterIp( (Service) copy, (Service) live);
+        }
+        return copy;
+    }
+
+    private static void keepClusterIp(Service copy, Service live) {
+        final ServiceSpec spec = copy.getSpec();
+        if (spec != null && spec.getClusterIP() == null && live.getSpec() != null) {
+            copy.setSpec(new ServiceSpecBuilder(spec).withClusterIP(live.getSpec().getClusterIP() ).build() );
+        }
+    }
+
+    /**
+     * Labels selecting the Pods of the given Replication Controller, which Kubernetes defaults to the labels of its
+     * Pod template. Null if it has neither.
+     */
+    public static Map<String, String> selector(ReplicationController controller) {
+        if (controller.getSpec() == null) {
+            return null;
+        }
+        if (controller.getSpec().getSelector() != null) {
+            return controller.getSpec().getSelector();
+        }
+        return (controller.getSpec().getTemplate() != null
+                && controller.getSpec().getTemplate().getMetadata() != null)
+                ? controller.getSpec().getTemplate().getMetadata().getLabels()
+                : null;
+    }
+
+    private static ObjectMeta copyMetadata(ObjectMeta metadata, Map<String, String> labels,
+                                           Map<String, String> annotations) {
+
+        final ObjectMeta copy = (metadata != null)
+                ? new ObjectMetaBuilder(metadata).build()
+                : new ObjectMeta();
+
+        copy.setLabels(merge( (metadata != null) ? metadata.getLabels() : null, labels) );
+        copy.setAnnotations(merge( (metadata != null) ? metadata.getAnnotations() : null, annotations) );
+        return copy;
+    }
+
+    private static Map<String, String> merge(Map<String, String> current, Map<String, String> added) {
+        if (added == null || added.isEmpty() ) {
+            return (current != null) ? new HashMap<>(current) : null;
+        }
+
+        final Map<String, String> merged = (current != null)
+                ? new HashMap<>(current)
+                : new HashMap<String, String>();
+
+        merged.putAll(added);
+        return merged;
+    }
+
+    private static Pod copy(Pod pod, ObjectMeta metadata) {
+        final Pod copy = new Pod();
+        copy.setApiVersion(pod.getApiVersion() );
+        copy.setKind(pod.getKind() );
+        copy.setMetadata(metadata);
+        copy.setSpec(pod.getSpec() );
+        copy.setStatus(pod.getStatus() );
+        return copy;
+    }
+
+    private static Service copy(Service service, ObjectMeta metadata) {
+        final Service copy = new Service();
+        copy.setApiVersion(service.getApiVersion() );
+        copy.setKind(service.getKind() );
+        copy.setMetadata(metadata);
+        copy.setSpec(service.getSpec() );
+        copy.setStatus(service.getStatus() );
+        return copy;
+    }
+
+    private static ReplicationController copy(ReplicationController controller, ObjectMeta metadata) {
+        final ReplicationController copy = new ReplicationController();
+        copy.setApiVersion(controller.getApiVersion() );
+        copy.setKind(controller.getKind() );
+        copy.setMetadata(metadata);
+        copy.setSpec(controller.getSpec() );
+        copy.setStatus(controller.getStatus() );
+        return copy;
+    }
+}
@@ -10,7 +10,6 @@ package com.elasticbox.jenkins.k8s.plugin.builders;
 
 import com.google.inject.Inject;
 
-import com.elasticbox.jenkins.k8s.util.PluginHelper;
 import com.elasticbox.jenkins.k8s.util.TaskLogger;
 import com.elasticbox.jenkins.k8s.auth.Authentication;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
@@ -84,7 +83,7 @@ public abstract class BaseChartBuildStep extends Builder implements SimpleBuildS
             ChartRepositoryConfig config = kubeCloud.getChartRepositoryConfiguration(getChartsRepo() );
             taskLogger.info("Using Chart repository config: " + config);
 
-            ChartRepo chartRepo = PluginHelper.getChartRepoData(config.getChartsRepoUrl(), config.getCredentialsId() );
+            ChartRepo chartRepo = config.getChartRepo();
 
             doPerform(run, taskLogger, chartRepo);
 
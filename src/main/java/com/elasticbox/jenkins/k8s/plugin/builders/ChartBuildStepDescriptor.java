@@ -16,6 +16,7 @@ import com.elasticbox.jenkins.k8s.plugin.clouds.ChartRepositoryConfig;
 import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartCatalogCache;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.util.PluginHelper;
 import hudson.model.AbstractProject;
@@ -27,6 +28,7 @@ import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.QueryParameter;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public abstract class ChartBuildStepDescriptor extends BuildStepDescriptor<Builder> {
@@ -40,17 +42,21 @@ public abstract class ChartBuildStepDescriptor extends BuildStepDescriptor<Build
 
     KubernetesRepository kubeRepository;
 
+    ChartCatalogCache chartCatalogCache;
+
     public ChartBuildStepDescriptor(Class<? extends Builder> clazz, Injector injector, ChartRepository chartRepository,
-                                    KubernetesRepository kubeRepository, String displayName) {
+                                    KubernetesRepository kubeRepository, ChartCatalogCache chartCatalogCache,
+                                    String displayName) {
         super(clazz);
         this.injector = injector;
         this.chartRepository = chartRepository;
         this.kubeRepository = kubeRepository;
+        this.chartCatalogCache = chartCatalogCache;
         this.displayName = displayName;
     }
 
     public ChartBuildStepDescriptor(Class<? extends Builder> clazz, String displayName) {
-        this(clazz, null, null, null, displayName);
+        this(clazz, null, null, null, null, displayName);
     }
 
     public Injector getInjector() {
@@ -140,31 +146,56 @@ public abstract class ChartBuildStepDescriptor extends BuildStepDescriptor<Build
     }
 
     public ListBoxModel doFillChartNameItems(@QueryParameter String kubeName, @QueryParameter String chartsRepo) {
-        if (kubeName != null && chartsRepo != null) {
-            KubernetesCloud kubeCloud = KubernetesCloud.getKubernetesCloud(kubeName);
-            if (kubeCloud != null) {
-                ChartRepositoryConfig config = kubeCloud.getChartRepositoryConfiguration(chartsRepo);
-
-                if (config != null) {
-                    ChartRepo chartRepo =
-                            PluginHelper.getChartRepoData(config.getChartsRepoUrl(), config.getCredentialsId() );
-
-                    try {
-                        return PluginHelper.doFillChartItems(chartRepository.chartNames(chartRepo));
-                    } catch (RepositoryException excep) {
-                        LOGGER.severe("Error retrieving chart list from Charts repo: "
-                                + chartsRepo + "@" + chartRepo.getUrl());
-                    }
-                }
+        final ChartRepo chartRepo = getChartRepo(kubeName, chartsRepo);
+        if (chartRepo != null) {
+            try {
+                final List<String> chartNames = (chartCatalogCache != null)
+                        ? chartCatalogCache.getChartNames(chartRepository, chartRepo)
+                        : chartRepository.chartNames(chartRepo);
+
+                return PluginHelper.doFillChartItems(chartNames);
+            } catch (RepositoryException excep) {
+                LOGGER.severe("Error retrieving chart list from Charts repo: "
+                        + chartsRepo + "@" + chartRepo.getUrl());
             }
         }
         return PluginHelper.doFillChartItems(null);
     }
 
-    public FormValidation doCheckChartName(@QueryParameter String chartName) {
+    public FormValidation doCheckChartName(@QueryParameter String chartName, @QueryParameter String kubeName,
+                                           @QueryParameter String chartsRepo) {
         if (StringUtils.isBlank(chartName)) {
             return FormValidation.error("Chart selection required");
         }
-        return FormValidation.ok();
+
+        final ChartRepo chartRepo = (chartCatalogCache != null) ? getChartRepo(kubeName, chartsRepo) : null;
+        final ChartCatalogCache.CatalogEntry catalog =
+                (chartRepo != null) ? chartCatalogCache.getCatalogEntry(chartRepo) : null;
+
+        if (catalog == null || !catalog.isLoaded() ) {
+            return FormValidation.ok();
+        }
+
+        final String age = "Chart list loaded " + TimeUnit.MILLISECONDS.toSeconds(catalog.getAgeMillis() )
+                + " seconds ago";
+
+        if (catalog.getLastError() != null) {
+            return FormValidation.warning(age + ", last refresh failed: " + catalog.getLastError() );
+        }
+        return FormValidation.ok( (catalog.isRefreshing() ) ? age + ", refreshing" : age);
+    }
+
+    private static ChartRepo getChartRepo(String kubeName, String chartsRepo) {
+        if (kubeName == null || chartsRepo == null) {
+            return null;
+        }
+
+        final KubernetesCloud kubeCloud = KubernetesCloud.getKubernetesCloud(kubeName);
+        if (kubeCloud == null) {
+            return null;
+        }
+
+        final ChartRepositoryConfig config = kubeCloud.getChartRepositoryConfiguration(chartsRepo);
+        return (config != null) ? config.getChartRepo() : null;
     }
 }
\ No newline at end of file
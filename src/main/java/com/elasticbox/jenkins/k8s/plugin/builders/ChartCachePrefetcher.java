@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.plugin.clouds.ChartRepositoryConfig;
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Project;
+import jenkins.model.Jenkins;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms the chart caches after a restart. Once the jobs are loaded, the chart build steps of every job are scanned
+ * and each distinct chart is fetched in the background, with bounded concurrency, so the first builds do not all
+ * pay for a cold fetch at the same time.
+ */
+public final class ChartCachePrefetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartCachePrefetcher.class.getName() );
+
+    public static final int MAX_CONCURRENT_PREFETCHES = 4;
+
+    private ChartCachePrefetcher() {
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void prefetchReferencedCharts() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return;
+        }
+
+        final Map<String, PrefetchTarget> targets = collectTargets(jenkins);
+        if (targets.isEmpty() ) {
+            return;
+        }
+
+        final DeployChartBuildStep.DescriptorImpl descriptor =
+                jenkins.getDescriptorByType(DeployChartBuildStep.DescriptorImpl.class);
+
+        if (descriptor == null || descriptor.chartRepository == null) {
+            LOGGER.warning("Chart repository not available, charts of the configured jobs not prefetched");
+            return;
+        }
+
+        LOGGER.info("Prefetching " + targets.size() + " charts referenced by the configured jobs");
+        prefetch(descriptor.chartRepository, targets.values() );
+    }
+
+    static Map<String, PrefetchTarget> collectTargets(Jenkins jenkins) {
+        final Map<String, PrefetchTarget> targets = new LinkedHashMap<>();
+
+        for (Project<?, ?> project : jenkins.getAllItems(Project.class) ) {
+            for (BaseChartBuildStep buildStep : project.getBuildersList().getAll(BaseChartBuildStep.class) ) {
+                final ChartRepo chartRepo = getChartRepo(buildStep);
+                if (chartRepo == null) {
+                    continue;
+                }
+
+                final PrefetchTarget target = new PrefetchTarget(chartRepo, buildStep.getChartName(), null);
+                if (!targets.containsKey(target.getKey() ) ) {
+                    targets.put(target.getKey(), target);
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static void prefetch(final ChartRepository chartRepository, Collection<PrefetchTarget> targets) {
+        final ExecutorService executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_PREFETCHES,
+                new ThreadFactoryBuilder().setNameFormat("ChartCachePrefetcher-%d").setDaemon(true).build() );
+
+        for (final PrefetchTarget target : targets) {
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.currentTimeMillis();
+                    try {
+                        chartRepository.chart(target.chartRepo, target.chartName, target.ref);
+                        if (LOGGER.isLoggable(Level.CONFIG) ) {
+                            LOGGER.config("Chart prefetched: " + target.getKey() + " in "
+                                    + (System.currentTimeMillis() - start) + " ms");
+                        }
+                    } catch (RepositoryException | RuntimeException exception) {
+                        LOGGER.warning("Error prefetching chart: " + target.getKey() + " - " + exception.getMessage() );
+                    }
+                }
+            });
+        }
+
+        // Queued prefetches still run, the idle threads end once the queue is empty
+        executorService.shutdown();
+    }
+
+    private static ChartRepo getChartRepo(BaseChartBuildStep buildStep) {
+        final KubernetesCloud kubeCloud = KubernetesCloud.getKubernetesCloud(buildStep.getKubeName() );
+        if (kubeCloud == null || kubeCloud.getChartRepositoryConfigurations() == null) {
+            return null;
+        }
+
+        final ChartRepositoryConfig config = kubeCloud.getChartRepositoryConfiguration(buildStep.getChartsRepo() );
+        return (config != null) ? config.getChartRepo() : null;
+    }
+
+    static class PrefetchTarget {
+
+        private final ChartRepo chartRepo;
+        private final String chartName;
+        private final String ref;
+
+        PrefetchTarget(ChartRepo chartRepo, String chartName, String ref) {
+            this.chartRepo = chartRepo;
+            this.chartName = chartName;
+            this.ref = ref;
+        }
+
+        String getKey() {
+            return chartRepo.getType() + ":" + chartRepo.getUrl() + "/" + chartName + "@"
+                    + ( (ref != null) ? ref : "default");
+        }
+    }
+}
@@ -14,6 +14,7 @@ import com.google.inject.Injector;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartCatalogCache;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
 import com.elasticbox.jenkins.k8s.util.TaskLogger;
 import hudson.Extension;
@@ -60,8 +61,10 @@ public class DeleteChartBuildStep extends BaseChartBuildStep {
         }
 
         @Inject
-        public DescriptorImpl(Injector injector, ChartRepository chartRepository, KubernetesRepository kubeRepository) {
-            super(DeleteChartBuildStep.class, injector, chartRepository, kubeRepository, KUBERNETES_DELETE_CHART);
+        public DescriptorImpl(Injector injector, ChartRepository chartRepository, KubernetesRepository kubeRepository,
+                              ChartCatalogCache chartCatalogCache) {
+            super(DeleteChartBuildStep.class, injector, chartRepository, kubeRepository, chartCatalogCache,
+                    KUBERNETES_DELETE_CHART);
         }
     }
 
@@ -15,6 +15,9 @@ import com.elasticbox.jenkins.k8s.chart.Chart;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartCatalogCache;
+import com.elasticbox.jenkins.k8s.services.ChartEnvironmentPool;
+import com.elasticbox.jenkins.k8s.services.ChartTeardownQueue;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
 import com.elasticbox.jenkins.k8s.util.TaskLogger;
 import hudson.Extension;
@@ -25,11 +28,13 @@ import hudson.model.FreeStyleBuild;
 import hudson.model.Run;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class DeployChartBuildStep extends BaseChartBuildStep {
@@ -39,7 +44,22 @@ public class DeployChartBuildStep extends BaseChartBuildStep {
     private static final String KUBERNETES_DEPLOY_CHART = "Kubernetes - Deploy Chart";
     private static final String JENKINS_JOB = "elastickube.com/jenkins-build";
 
+    public static final int DEFAULT_READY_TIMEOUT_SECONDS = 300;
+    public static final int DEFAULT_MAX_POOLED_ENVIRONMENTS = 2;
+    public static final long POOL_LEASE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @Inject
+    transient ChartTeardownQueue teardownQueue;
+
+    @Inject
+    transient ChartEnvironmentPool environmentPool;
+
     private final boolean deleteChartWhenFinished;
+    private boolean ephemeralNamespace;
+    private boolean pooledEnvironment;
+    private String maxPooledEnvironments;
+    private boolean waitUntilReady;
+    private String readyTimeout;
 
     @DataBoundConstructor
     public DeployChartBuildStep(String id, String kubeName, String namespace, String chartsRepo, String chartName,
@@ -58,42 +78,216 @@ public class DeployChartBuildStep extends BaseChartBuildStep {
         return deleteChartWhenFinished;
     }
 
+    public boolean getEphemeralNamespace() {
+        return ephemeralNamespace;
+    }
+
+    @DataBoundSetter
+    public void setEphemeralNamespace(boolean ephemeralNamespace) {
+        this.ephemeralNamespace = ephemeralNamespace;
+    }
+
+    public boolean getPooledEnvironment() {
+        return pooledEnvironment;
+    }
+
+    @DataBoundSetter
+    public void setPooledEnvironment(boolean pooledEnvironment) {
+        this.pooledEnvironment = pooledEnvironment;
+    }
+
+    public String getMaxPooledEnvironments() {
+        return maxPooledEnvironments;
+    }
+
+    @DataBoundSetter
+    public void setMaxPooledEnvironments(String maxPooledEnvironments) {
+        this.maxPooledEnvironments = maxPooledEnvironments;
+    }
+
+    int getMaxPooledEnvironmentsValue() {
+        int max = DEFAULT_MAX_POOLED_ENVIRONMENTS;
+        if (StringUtils.isNotBlank(maxPooledEnvironments) ) {
+            try {
+                max = Math.max(1, Integer.parseInt(maxPooledEnvironments.trim() ) );
+            } catch (NumberFormatException excep) {
+                LOGGER.warning("Invalid maximum of pooled environments: " + maxPooledEnvironments + ", using "
+                        + max);
+            }
+        }
+        return max;
+    }
+
+    public boolean getWaitUntilReady() {
+        return waitUntilReady;
+    }
+
+    @DataBoundSetter
+    public void setWaitUntilReady(boolean waitUntilReady) {
+        this.waitUntilReady = waitUntilReady;
+    }
+
+    public String getReadyTimeout() {
+        return readyTimeout;
+    }
+
+    @DataBoundSetter
+    public void setReadyTimeout(String readyTimeout) {
+        this.readyTimeout = readyTimeout;
+    }
+
+    long getReadyTimeoutMillis() {
+        int seconds = DEFAULT_READY_TIMEOUT_SECONDS;
+        if (StringUtils.isNotBlank(readyTimeout) ) {
+            try {
+                seconds = Integer.parseInt(readyTimeout.trim() );
+            } catch (NumberFormatException excep) {
+                LOGGER.warning("Invalid ready timeout: " + readyTimeout + ", using " + seconds + " seconds");
+            }
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
     @Override
     protected void doPerform(Run<?, ?> run, TaskLogger taskLogger, ChartRepo chartRepo)
         throws ServiceException {
 
-        taskLogger.info("Deploying chart [" + getChartName() + "] into namespace: " + getNamespace() );
-
         final String runName = (run != null) ? run.toString() : "<NO-RUN>";
 
         Map<String, String> label = Collections.singletonMap(JENKINS_JOB,
             StringUtils.deleteWhitespace(runName).replace('#', '_') );
 
-        final Chart chart = deploymentService.deployChart(getKubeName(), getNamespace(), chartRepo, chartName, label);
-        taskLogger.info("Chart [" + chartName + "] deployed");
+        final String namespace;
+        final Chart chart;
+
+        if (pooledEnvironment) {
+            final ChartEnvironmentPool.Lease lease = leaseEnvironment(run, chartRepo, label, taskLogger);
+            namespace = lease.getNamespace();
+            chart = lease.getChart();
+
+        } else {
+            namespace = ephemeralNamespace ? getEphemeralNamespace(run, taskLogger) : getNamespace();
+
+            taskLogger.info("Deploying chart [" + getChartName() + "] into namespace: " + namespace);
+
+            chart = deploymentService.deployChart(getKubeName(), namespace, chartRepo, chartName, label, taskLogger);
+
+            // No other run deploys into the ephemeral namespace of this run, and the namespace is removed with
+            // everything in it, so the chart needs no reference. In a shared namespace, the run uses the chart until
+            // its end and it is only deleted if no other run is using it by then: FreeStyle runs give back their
+            // reference when their environment is torn down, other runs when they complete
+            if (ephemeralNamespace) {
+                deploymentService.releaseChart(getKubeName(), namespace, chartRepo, chartName);
+
+            } else if (run instanceof FreeStyleBuild) {
+                if (deleteChartWhenFinished) {
+                    taskLogger.info("Chart [" + chartName + "] will be deleted at the end of the run");
+                }
+                final DeployChartCleanup chartCleanup = new DeployChartCleanup(this, namespace, chartRepo, chart,
+                        deleteChartWhenFinished, taskLogger);
+                ((FreeStyleBuild) run).getEnvironments().add(0, chartCleanup);
+
+            } else if (run != null) {
+                if (deleteChartWhenFinished) {
+                    taskLogger.info("Chart [" + chartName + "] will be deleted at the end of the run");
+                }
+                run.addAction(new DeployedChartReference(getKubeName(), namespace, chartRepo, chartName, chart,
+                        deleteChartWhenFinished) );
+
+            } else {
+                // Without a run there is no end to hold the reference until
+                deploymentService.releaseChart(getKubeName(), namespace, chartRepo, chartName);
+            }
+        }
+
+        if (waitUntilReady) {
+            taskLogger.info("Waiting for chart [" + chartName + "] to be ready");
+            deploymentService.waitUntilReady(getKubeName(), namespace, chart, getReadyTimeoutMillis(), taskLogger);
+        }
+    }
+
+    private ChartEnvironmentPool.Lease leaseEnvironment(Run<?, ?> run, ChartRepo chartRepo, Map<String, String> label,
+                                                        TaskLogger taskLogger) throws ServiceException {
+
+        taskLogger.info("Leasing a pooled environment of chart [" + chartName + "]");
 
-        if (deleteChartWhenFinished && run instanceof FreeStyleBuild) {
-            taskLogger.info("Chart [" + chartName + "] will be deleted at the end of the run");
-            final DeployChartCleanup chartCleanup = new DeployChartCleanup(this, getNamespace(), chart, taskLogger);
-            ((FreeStyleBuild) run).getEnvironments().add(0, chartCleanup);
+        final long start = System.currentTimeMillis();
+        final ChartEnvironmentPool.Lease lease = environmentPool.lease(getKubeName(), chartRepo, chartName,
+                getMaxPooledEnvironmentsValue(), POOL_LEASE_TIMEOUT_MILLIS,
+                Collections.singletonMap(EphemeralNamespace.INSTANCE_LABEL, EphemeralNamespace.getInstanceId() ),
+                label, taskLogger);
+
+        taskLogger.info( (lease.isReused() ? "Reused" : "Created") + " pooled environment [" + lease.getNamespace()
+                + "] in " + (System.currentTimeMillis() - start) + " ms");
+
+        if (run != null) {
+            run.addAction(new PooledChartEnvironment(getKubeName(), lease.getNamespace() ) );
+        }
+
+        if (run instanceof FreeStyleBuild) {
+            ((FreeStyleBuild) run).getEnvironments().add(0, new PooledEnvironmentRelease(this, lease, taskLogger) );
+        } else {
+            // Without the end of the run, the environment would never be released
+            taskLogger.info("Pooled environment [" + lease.getNamespace() + "] released at once, it is not "
+                    + "reserved for this run");
+            environmentPool.release(lease);
+        }
+        return lease;
+    }
+
+    /**
+     * Namespace of the build in the cloud of this step, created by the first step of the build that needs it.
+     */
+    private String getEphemeralNamespace(Run<?, ?> run, TaskLogger taskLogger) throws ServiceException {
+        final EphemeralNamespace existing = EphemeralNamespace.of(run, getKubeName() );
+        if (existing != null) {
+            return existing.getNamespace();
+        }
+
+        final String namespace = (run != null)
+                ? EphemeralNamespace.newName(run.getParent().getFullName(), run.getNumber() )
+                : EphemeralNamespace.newName(StringUtils.EMPTY, 0);
+
+        taskLogger.info("Creating ephemeral namespace: " + namespace);
+        deploymentService.createNamespace(getKubeName(), namespace, EphemeralNamespace.labels(),
+                EphemeralNamespace.annotations(run) );
+
+        if (run != null) {
+            run.addAction(new EphemeralNamespace(getKubeName(), namespace) );
+        }
+
+        if (run instanceof FreeStyleBuild) {
+            taskLogger.info("Namespace [" + namespace + "] will be deleted at the end of the run");
+            ((FreeStyleBuild) run).getEnvironments().add(0,
+                    new EphemeralNamespaceCleanup(this, namespace, taskLogger) );
         }
+        return namespace;
     }
 
+    /**
+     * End of a FreeStyle run that deployed a chart into a shared namespace: the reference the run took when deploying
+     * the chart is held until then, and given back here.
+     */
     public static class DeployChartCleanup extends Environment {
 
         DeployChartBuildStep deployer;
         String namespace;
+        ChartRepo chartRepo;
         Chart chart;
+        boolean deleteChart;
         TaskLogger taskLogger;
 
         public DeployChartCleanup() {
             LOGGER.warning("Called no-argument constructor. No cleanup will be performed.");
         }
 
-        public DeployChartCleanup(DeployChartBuildStep deployer, String namespace, Chart chart, TaskLogger taskLogger) {
+        public DeployChartCleanup(DeployChartBuildStep deployer, String namespace, ChartRepo chartRepo, Chart chart,
+                                  boolean deleteChart, TaskLogger taskLogger) {
             this.deployer = deployer;
             this.namespace = namespace;
+            this.chartRepo = chartRepo;
             this.chart = chart;
+            this.deleteChart = deleteChart;
             this.taskLogger = taskLogger;
         }
 
@@ -104,14 +298,62 @@ public class DeployChartBuildStep extends BaseChartBuildStep {
                 return true;
             }
 
-            try {
-                deployer.deploymentService.deleteChart(deployer.getKubeName(), namespace, chart);
-                taskLogger.info("Chart [" + chart.getName() + "] successfully removed");
+            final boolean lastUser = deployer.deploymentService.releaseChart(deployer.getKubeName(), namespace,
+                    chartRepo, deployer.getChartName() );
+
+            if (!deleteChart) {
+                return true;
+            }
 
-            } catch (ServiceException excep) {
-                taskLogger.error("Error while cleaning up chart [" + chart.getName() + "]: " + excep
-                    + ". Initial cause: " + excep.getCausedByMessages() );
+            if (!lastUser) {
+                taskLogger.info("Chart [" + chart.getName() + "] is still used by other runs, it is not removed");
+                return true;
             }
+
+            // The chart is removed in the background, so the build does not hold its executor meanwhile
+            deployer.teardownQueue.submit(deployer.getKubeName(), namespace, chart);
+            taskLogger.info("Chart [" + chart.getName() + "] scheduled for removal");
+            return true;
+        }
+    }
+
+    public static class EphemeralNamespaceCleanup extends Environment {
+
+        DeployChartBuildStep deployer;
+        String namespace;
+        TaskLogger taskLogger;
+
+        public EphemeralNamespaceCleanup(DeployChartBuildStep deployer, String namespace, TaskLogger taskLogger) {
+            this.deployer = deployer;
+            this.namespace = namespace;
+            this.taskLogger = taskLogger;
+        }
+
+        @Override
+        public boolean tearDown(AbstractBuild build, BuildListener listener) throws IOException, InterruptedException {
+            deployer.teardownQueue.submitNamespace(deployer.getKubeName(), namespace);
+            taskLogger.info("Namespace [" + namespace + "] scheduled for removal");
+            return true;
+        }
+    }
+
+    public static class PooledEnvironmentRelease extends Environment {
+
+        DeployChartBuildStep deployer;
+        ChartEnvironmentPool.Lease lease;
+        TaskLogger taskLogger;
+
+        public PooledEnvironmentRelease(DeployChartBuildStep deployer, ChartEnvironmentPool.Lease lease,
+                                        TaskLogger taskLogger) {
+            this.deployer = deployer;
+            this.lease = lease;
+            this.taskLogger = taskLogger;
+        }
+
+        @Override
+        public boolean tearDown(AbstractBuild build, BuildListener listener) throws IOException, InterruptedException {
+            deployer.environmentPool.release(lease);
+            taskLogger.info("Pooled environment [" + lease.getNamespace() + "] released");
             return true;
         }
     }
@@ -125,8 +367,10 @@ public class DeployChartBuildStep extends BaseChartBuildStep {
         }
 
         @Inject
-        public DescriptorImpl(Injector injector, ChartRepository chartRepository, KubernetesRepository kubeRepository) {
-            super(DeployChartBuildStep.class, injector, chartRepository, kubeRepository, KUBERNETES_DEPLOY_CHART);
+        public DescriptorImpl(Injector injector, ChartRepository chartRepository, KubernetesRepository kubeRepository,
+                              ChartCatalogCache chartCatalogCache) {
+            super(DeployChartBuildStep.class, injector, chartRepository, kubeRepository, chartCatalogCache,
+                    KUBERNETES_DEPLOY_CHART);
         }
     }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import hudson.model.InvisibleAction;
+
+/**
+ * Reference to a chart deployed into a shared namespace by a build that is not a FreeStyle build, which has no
+ * environment to tear down at its end. The reference is held until the build completes, and then given back by the
+ * {@link DeployedChartReleaser}.
+ */
+public class DeployedChartReference extends InvisibleAction {
+
+    private final String kubeName;
+    private final String namespace;
+    private final ChartRepo chartRepo;
+    private final String chartName;
+    private final boolean deleteChart;
+
+    // Not saved with the build: the references are only kept in memory, so after a restart there is no reference
+    // to give back and no way to tell whether other builds use the chart
+    private transient Chart chart;
+
+    public DeployedChartReference(String kubeName, String namespace, ChartRepo chartRepo, String chartName,
+                                  Chart chart, boolean deleteChart) {
+        this.kubeName = kubeName;
+        this.namespace = namespace;
+        this.chartRepo = chartRepo;
+        this.chartName = chartName;
+        this.chart = chart;
+        this.deleteChart = deleteChart;
+    }
+
+    public String getKubeName() {
+        return kubeName;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public ChartRepo getChartRepo() {
+        return chartRepo;
+    }
+
+    public String getChartName() {
+        return chartName;
+    }
+
+    public Chart getChart() {
+        return chart;
+    }
+
+    public boolean isDeleteChart() {
+        return deleteChart;
+    }
+
+    @Override
+    public String toString() {
+        return "DeployedChartReference [kubeName=" + kubeName + ", namespace=" + namespace + ", chartName="
+                + chartName + "]";
+    }
+}
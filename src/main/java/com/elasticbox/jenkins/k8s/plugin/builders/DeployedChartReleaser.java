@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import com.elasticbox.jenkins.k8s.services.ChartDeploymentService;
+import com.elasticbox.jenkins.k8s.services.ChartTeardownQueue;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import jenkins.model.Jenkins;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gives back, when a build completes, the references to the charts it deployed into shared namespaces that were
+ * recorded as {@link DeployedChartReference}s, and removes the charts that no other build is using when the step
+ * asked for it.
+ */
+@Extension
+public class DeployedChartReleaser extends RunListener<Run<?, ?>> {
+
+    private static final Logger LOGGER = Logger.getLogger(DeployedChartReleaser.class.getName() );
+
+    @Override
+    public void onCompleted(Run<?, ?> run, TaskListener listener) {
+        if (run.getActions(DeployedChartReference.class).isEmpty() ) {
+            return;
+        }
+
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return;
+        }
+
+        final DeployChartBuildStep.DescriptorImpl descriptor =
+                jenkins.getDescriptorByType(DeployChartBuildStep.DescriptorImpl.class);
+
+        if (descriptor == null || descriptor.getInjector() == null) {
+            return;
+        }
+
+        final ChartDeploymentService deploymentService =
+                descriptor.getInjector().getInstance(ChartDeploymentService.class);
+        final ChartTeardownQueue teardownQueue = descriptor.getInjector().getInstance(ChartTeardownQueue.class);
+
+        for (DeployedChartReference reference : run.getActions(DeployedChartReference.class) ) {
+            if (reference.getChart() == null) {
+                continue;
+            }
+
+            final boolean lastUser = deploymentService.releaseChart(reference.getKubeName(),
+                    reference.getNamespace(), reference.getChartRepo(), reference.getChartName() );
+
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Chart released at the end of " + run + ": " + reference);
+            }
+
+            if (!reference.isDeleteChart() ) {
+                continue;
+            }
+
+            if (!lastUser) {
+                listener.getLogger().println("Chart [" + reference.getChartName()
+                        + "] is still used by other runs, it is not removed");
+                continue;
+            }
+
+            teardownQueue.submit(reference.getKubeName(), reference.getNamespace(), reference.getChart() );
+            listener.getLogger().println("Chart [" + reference.getChartName() + "] scheduled for removal");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import jenkins.model.Jenkins;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Namespace created for the exclusive use of a build, where its charts are deployed. It is removed as a whole at the
+ * end of the build, and it is labelled with the Jenkins instance and annotated with the build that created it, so
+ * the {@link EphemeralNamespaceJanitor} can remove the namespaces left behind by builds that did not finish cleanly.
+ * The name of the namespace is exposed to the following build steps in the <code>CHART_NAMESPACE</code> variable.
+ */
+public class EphemeralNamespace extends InvisibleAction implements EnvironmentContributingAction {
+
+    public static final String ENV_VARIABLE = "CHART_NAMESPACE";
+
+    static final String EPHEMERAL_LABEL = "elastickube.com/ephemeral-namespace";
+    static final String INSTANCE_LABEL = "elastickube.com/jenkins-instance";
+    static final String JOB_ANNOTATION = "elastickube.com/jenkins-job";
+    static final String BUILD_ANNOTATION = "elastickube.com/jenkins-build-number";
+
+    private static final String NAME_PREFIX = "build-";
+    private static final int MAX_JOB_NAME_LENGTH = 30;
+    private static final int SUFFIX_LENGTH = 6;
+
+    private final String kubeName;
+    private final String namespace;
+
+    public EphemeralNamespace(String kubeName, String namespace) {
+        this.kubeName = kubeName;
+        this.namespace = namespace;
+    }
+
+    public String getKubeName() {
+        return kubeName;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+        env.put(ENV_VARIABLE, namespace);
+    }
+
+    /**
+     * Ephemeral namespace already created by the given build in the given cloud, or null if there is none.
+     */
+    static EphemeralNamespace of(Run<?, ?> run, String kubeName) {
+        if (run == null) {
+            return null;
+        }
+        for (EphemeralNamespace ephemeralNamespace : run.getActions(EphemeralNamespace.class) ) {
+            if (kubeName.equals(ephemeralNamespace.getKubeName() ) ) {
+                return ephemeralNamespace;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Unique, valid (DNS-1123 label) namespace name that still tells which job and build it belongs to.
+     */
+    static String newName(String jobName, int buildNumber) {
+        String jobPart = jobName.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-+|-+$", "");
+        if (jobPart.length() > MAX_JOB_NAME_LENGTH) {
+            jobPart = jobPart.substring(0, MAX_JOB_NAME_LENGTH).replaceAll("-+$", "");
+        }
+
+        final String suffix = UUID.randomUUID().toString().replace("-", "").substring(0, SUFFIX_LENGTH);
+        return NAME_PREFIX + (jobPart.isEmpty() ? "" : jobPart + "-") + buildNumber + "-" + suffix;
+    }
+
+    static Map<String, String> labels() {
+        final Map<String, String> labels = new HashMap<>();
+        labels.put(EPHEMERAL_LABEL, Boolean.TRUE.toString() );
+        labels.put(INSTANCE_LABEL, getInstanceId() );
+        return labels;
+    }
+
+    static Map<String, String> annotations(Run<?, ?> run) {
+        final Map<String, String> annotations = new HashMap<>();
+        if (run != null) {
+            annotations.put(JOB_ANNOTATION, run.getParent().getFullName() );
+            annotations.put(BUILD_ANNOTATION, String.valueOf(run.getNumber() ) );
+        }
+        return annotations;
+    }
+
+    /**
+     * Several Jenkins instances can share a cluster, every instance only takes care of its own namespaces.
+     */
+    static String getInstanceId() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        return (jenkins != null) ? jenkins.getLegacyInstanceId() : "unknown";
+    }
+
+    @Override
+    public String toString() {
+        return "EphemeralNamespace [kubeName=" + kubeName + ", namespace=" + namespace + "]";
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
+import com.elasticbox.jenkins.k8s.services.ChartDeploymentService;
+import com.elasticbox.jenkins.k8s.services.ChartEnvironmentPool;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import io.fabric8.kubernetes.api.model.Namespace;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Deletes the ephemeral namespaces whose build is no longer running, left behind when a build or the controller
+ * crashed before the namespace could be removed at the end of the build, and the namespaces of pooled chart
+ * environments that are not part of the pool anymore, left behind by a restart.
+ */
+@Extension
+public class EphemeralNamespaceJanitor extends AsyncPeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(EphemeralNamespaceJanitor.class.getName() );
+
+    public static final long RECURRENCE_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    public EphemeralNamespaceJanitor() {
+        super("Ephemeral chart namespace janitor");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD_MILLIS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return;
+        }
+
+        final DeployChartBuildStep.DescriptorImpl descriptor =
+                jenkins.getDescriptorByType(DeployChartBuildStep.DescriptorImpl.class);
+
+        if (descriptor == null || descriptor.getInjector() == null) {
+            return;
+        }
+
+        final ChartDeploymentService deploymentService =
+                descriptor.getInjector().getInstance(ChartDeploymentService.class);
+        final ChartEnvironmentPool environmentPool = descriptor.getInjector().getInstance(ChartEnvironmentPool.class);
+
+        final Map<String, String> poolLabels = new HashMap<>();
+        poolLabels.put(ChartEnvironmentPool.POOL_LABEL, Boolean.TRUE.toString() );
+        poolLabels.put(EphemeralNamespace.INSTANCE_LABEL, EphemeralNamespace.getInstanceId() );
+
+        for (KubernetesCloud kubeCloud : KubernetesCloud.getKubernetesClouds() ) {
+            try {
+                for (Namespace namespace : deploymentService.getNamespaces(kubeCloud.getName(),
+                        EphemeralNamespace.labels() ) ) {
+
+                    if (isOrphan(jenkins, namespace) ) {
+                        final String name = namespace.getMetadata().getName();
+                        listener.getLogger().println("Deleting orphan ephemeral namespace: " + name);
+                        deploymentService.deleteNamespace(kubeCloud.getName(), name);
+                    }
+                }
+
+                for (Namespace namespace : deploymentService.getNamespaces(kubeCloud.getName(), poolLabels) ) {
+                    final String name = namespace.getMetadata().getName();
+                    if (!environmentPool.isPooled(kubeCloud.getName(), name) ) {
+                        listener.getLogger().println("Deleting orphan pooled environment: " + name);
+                        deploymentService.deleteNamespace(kubeCloud.getName(), name);
+                    }
+                }
+            } catch (ServiceException exception) {
+                LOGGER.warning("Error collecting ephemeral namespaces of cloud " + kubeCloud.getName() + ": "
+                        + exception.getCausedByMessages() );
+            }
+        }
+    }
+
+    /**
+     * A namespace is orphan when the build that created it does not exist anymore or is not running.
+     */
+    static boolean isOrphan(Jenkins jenkins, Namespace namespace) {
+        final Map<String, String> annotations = namespace.getMetadata().getAnnotations();
+        if (annotations == null || annotations.get(EphemeralNamespace.JOB_ANNOTATION) == null) {
+            return true;
+        }
+
+        final Job<?, ?> job = jenkins.getItemByFullName(annotations.get(EphemeralNamespace.JOB_ANNOTATION), Job.class);
+        if (job == null) {
+            return true;
+        }
+
+        final Run<?, ?> run;
+        try {
+            run = job.getBuildByNumber(Integer.parseInt(annotations.get(EphemeralNamespace.BUILD_ANNOTATION) ) );
+        } catch (NumberFormatException exception) {
+            return true;
+        }
+        return run == null || !run.isBuilding();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.InvisibleAction;
+
+/**
+ * Pooled chart environment leased by a build. Its namespace is exposed to the following build steps in the same
+ * variable as an {@link EphemeralNamespace}.
+ */
+public class PooledChartEnvironment extends InvisibleAction implements EnvironmentContributingAction {
+
+    private final String kubeName;
+    private final String namespace;
+
+    public PooledChartEnvironment(String kubeName, String namespace) {
+        this.kubeName = kubeName;
+        this.namespace = namespace;
+    }
+
+    public String getKubeName() {
+        return kubeName;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+        env.put(EphemeralNamespace.ENV_VARIABLE, namespace);
+    }
+
+    @Override
+    public String toString() {
+        return "PooledChartEnvironment [kubeName=" + kubeName + ", namespace=" + namespace + "]";
+    }
+}
@@ -11,18 +11,23 @@ package com.elasticbox.jenkins.k8s.plugin.clouds;
 import com.google.inject.Inject;
 
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
 import com.elasticbox.jenkins.k8s.util.PluginHelper;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.local.LocalChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import hudson.Extension;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.Secret;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import java.util.List;
 import java.util.logging.Logger;
@@ -33,6 +38,8 @@ public class ChartRepositoryConfig implements Describable<ChartRepositoryConfig>
     private final String description;
     private final String chartsRepoUrl;
     private final String credentialsId;
+    private ChartRepoType repoType;
+    private Secret webhookSecret;
 
     @DataBoundConstructor
     public ChartRepositoryConfig(String description, String chartsRepoUrl, String credentialsId) {
@@ -41,6 +48,32 @@ public class ChartRepositoryConfig implements Describable<ChartRepositoryConfig>
         this.credentialsId = credentialsId;
     }
 
+    public ChartRepoType getRepoType() {
+        return (repoType != null) ? repoType : ChartRepoType.GITHUB;
+    }
+
+    @DataBoundSetter
+    public void setRepoType(ChartRepoType repoType) {
+        this.repoType = repoType;
+    }
+
+    public Secret getWebhookSecret() {
+        return webhookSecret;
+    }
+
+    @DataBoundSetter
+    public void setWebhookSecret(Secret webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
+
+    public boolean hasWebhookSecret() {
+        return webhookSecret != null && StringUtils.isNotEmpty(webhookSecret.getPlainText() );
+    }
+
+    public ChartRepo getChartRepo() {
+        return PluginHelper.getChartRepoData(chartsRepoUrl, credentialsId, getRepoType() );
+    }
+
     public String getDescription() {
         return description;
     }
@@ -73,22 +106,39 @@ public class ChartRepositoryConfig implements Describable<ChartRepositoryConfig>
         @Inject
         private transient ChartRepository chartRepository;
 
+        @Inject
+        private transient LocalChartRepository localChartRepository;
+
         @Override
         public String getDisplayName() {
             return CHART_REPOSITORY_CONFIGURATION;
         }
 
+        /**
+         * Local chart directories can only be tested by administrators, as they read the file system of the
+         * controller, and are parsed once without being watched nor kept in memory.
+         */
+        @RequirePOST
         public FormValidation doTestConnection(@QueryParameter String chartsRepoUrl,
-                                               @QueryParameter String credentialsId) {
+                                               @QueryParameter String credentialsId,
+                                               @QueryParameter String repoType) {
 
             if (StringUtils.isEmpty(chartsRepoUrl)) {
                 return FormValidation.error("Required fields not provided");
             }
 
-            ChartRepo chartRepoData = PluginHelper.getChartRepoData(chartsRepoUrl, credentialsId);
+            final ChartRepoType type = StringUtils.isNotEmpty(repoType)
+                ? ChartRepoType.valueOf(repoType) : ChartRepoType.GITHUB;
+            ChartRepo chartRepoData = PluginHelper.getChartRepoData(chartsRepoUrl, credentialsId, type);
+
+            if (type == ChartRepoType.LOCAL) {
+                Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+            }
 
             try {
-                final List<String> chartNames = chartRepository.chartNames(chartRepoData);
+                final List<String> chartNames = (type == ChartRepoType.LOCAL)
+                    ? localChartRepository.scanChartNames(chartRepoData)
+                    : chartRepository.chartNames(chartRepoData);
                 if (chartNames != null && !chartNames.isEmpty() ) {
                     return FormValidation.ok("Connection successful");
                 } else {
@@ -104,6 +154,14 @@ public class ChartRepositoryConfig implements Describable<ChartRepositoryConfig>
         public ListBoxModel doFillCredentialsIdItems(@QueryParameter String endpointUrl) {
             return PluginHelper.doFillCredentialsIdItems(endpointUrl);
         }
+
+        public ListBoxModel doFillRepoTypeItems() {
+            final ListBoxModel items = new ListBoxModel();
+            for (ChartRepoType type : ChartRepoType.values() ) {
+                items.add(type.getDisplayName(), type.name() );
+            }
+            return items;
+        }
     }
 
 }
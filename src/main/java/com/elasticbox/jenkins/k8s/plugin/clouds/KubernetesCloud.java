@@ -13,7 +13,9 @@ import com.google.inject.Injector;
 
 import com.elasticbox.jenkins.k8s.auth.Authentication;
 import com.elasticbox.jenkins.k8s.plugin.slaves.KubernetesSlave;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartCatalogCache;
 import com.elasticbox.jenkins.k8s.repositories.api.kubeclient.KubernetesClientFactory;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.services.SlaveProvisioningService;
@@ -32,11 +34,13 @@ import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.net.ssl.SSLHandshakeException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -49,11 +53,14 @@ public class KubernetesCloud extends AbstractCloudImpl {
 
     public static final String NAME_PREFIX = "KubeCloud-";
 
+    public static final String CLUSTER_KEY_SEPARATOR = "#";
+
     private final String displayName;
     private final String credentialsId;
     private final KubernetesCloudParams kubeCloudParams;
     private final List<ChartRepositoryConfig> chartRepositoryConfigurations;
     private final List<PodSlaveConfig> podSlaveConfigurations;
+    private List<KubernetesClusterEndpoint> additionalClusters;
 
     @Inject
     transient KubernetesClientFactory kubeFactory;
@@ -61,6 +68,12 @@ public class KubernetesCloud extends AbstractCloudImpl {
     @Inject
     transient SlaveProvisioningService slaveProvisioningService;
 
+    @Inject
+    transient ChartRepository chartRepository;
+
+    @Inject
+    transient ChartCatalogCache chartCatalogCache;
+
     @DataBoundConstructor
     public KubernetesCloud(String name, String displayName, String endpointUrl, String predefinedNamespace,
                            String maxContainers, String credentialsId, String serverCert,
@@ -82,6 +95,16 @@ public class KubernetesCloud extends AbstractCloudImpl {
         if (StringUtils.isNotEmpty(name) ) {
             kubeFactory.resetKubernetesClient(name);
         }
+        prefetchChartCatalogs();
+    }
+
+    private void prefetchChartCatalogs() {
+        if (chartRepositoryConfigurations == null || chartCatalogCache == null) {
+            return;
+        }
+        for (ChartRepositoryConfig config : chartRepositoryConfigurations) {
+            chartCatalogCache.prefetch(chartRepository, config.getChartRepo() );
+        }
     }
 
     public static List<KubernetesCloud> getKubernetesClouds() {
@@ -141,6 +164,53 @@ public class KubernetesCloud extends AbstractCloudImpl {
         return podSlaveConfigurations;
     }
 
+    public List<KubernetesClusterEndpoint> getAdditionalClusters() {
+        return (additionalClusters != null) ? additionalClusters : Collections.<KubernetesClusterEndpoint>emptyList();
+    }
+
+    @DataBoundSetter
+    public void setAdditionalClusters(List<KubernetesClusterEndpoint> additionalClusters) {
+        final List<KubernetesClusterEndpoint> previousClusters = getAdditionalClusters();
+        this.additionalClusters = additionalClusters;
+
+        for (KubernetesClusterEndpoint cluster : previousClusters) {
+            kubeFactory.resetKubernetesClient(clusterKey(name, cluster.getId() ) );
+        }
+        for (KubernetesClusterEndpoint cluster : getAdditionalClusters() ) {
+            kubeFactory.resetKubernetesClient(clusterKey(name, cluster.getId() ) );
+        }
+    }
+
+    /**
+     * Returns the key that identifies a cluster of a cloud across the repositories, and in the slaves provisioned
+     * into it. The primary cluster of the cloud, with no cluster id, is identified by the cloud name itself, and the
+     * additional clusters by their id, so the key does not change when the clusters are reordered or removed.
+     */
+    public static String clusterKey(String cloudName, String clusterId) {
+        return (clusterId == null) ? cloudName : cloudName + CLUSTER_KEY_SEPARATOR + clusterId;
+    }
+
+    public static String cloudNameOf(String clusterKey) {
+        return StringUtils.substringBefore(clusterKey, CLUSTER_KEY_SEPARATOR);
+    }
+
+    /**
+     * Returns the parameters of the cluster with the given key, or null if the cluster is no longer configured.
+     */
+    public KubernetesCloudParams getClusterParams(String clusterKey) {
+        if (!clusterKey.contains(CLUSTER_KEY_SEPARATOR) ) {
+            return kubeCloudParams;
+        }
+
+        final String clusterId = StringUtils.substringAfter(clusterKey, CLUSTER_KEY_SEPARATOR);
+        for (KubernetesClusterEndpoint cluster : getAdditionalClusters() ) {
+            if (clusterId.equals(cluster.getId() ) ) {
+                return cluster.getKubernetesCloudParams();
+            }
+        }
+        return null;
+    }
+
     public ChartRepositoryConfig getChartRepositoryConfiguration(String chartsRepo) {
         for (ChartRepositoryConfig config : getChartRepositoryConfigurations() ) {
             if (config.getDescription().equals(chartsRepo)) {
@@ -196,11 +266,7 @@ public class KubernetesCloud extends AbstractCloudImpl {
         }
 
         try {
-            FormValidation testConnection = ((DescriptorImpl) getDescriptor()).doTestConnection(
-                    getEndpointUrl(), getPredefinedNamespace(), getCredentialsId(), null);
-
-            if (testConnection.kind == FormValidation.Kind.ERROR) {
-                LOGGER.warning("Unable to connect to: " + this + testConnection.getMessage() );
+            if (!isAnyClusterReachable() ) {
                 return false;
             }
 
@@ -212,6 +278,28 @@ public class KubernetesCloud extends AbstractCloudImpl {
         }
     }
 
+    private boolean isAnyClusterReachable() {
+        final DescriptorImpl descriptor = (DescriptorImpl) getDescriptor();
+
+        FormValidation testConnection = descriptor.doTestConnection(
+                getEndpointUrl(), getPredefinedNamespace(), getCredentialsId(), null);
+
+        if (testConnection.kind != FormValidation.Kind.ERROR) {
+            return true;
+        }
+        LOGGER.warning("Unable to connect to: " + this + testConnection.getMessage() );
+
+        for (KubernetesClusterEndpoint cluster : getAdditionalClusters() ) {
+            testConnection = descriptor.doTestConnection(
+                    cluster.getEndpointUrl(), cluster.getNamespace(), cluster.getCredentialsId(), null);
+
+            if (testConnection.kind != FormValidation.Kind.ERROR) {
+                return true;
+            }
+            LOGGER.warning("Unable to connect to: " + cluster + testConnection.getMessage() );
+        }
+        return false;
+    }
 
     public KubernetesCloudParams getKubernetesCloudParams() {
         return kubeCloudParams;
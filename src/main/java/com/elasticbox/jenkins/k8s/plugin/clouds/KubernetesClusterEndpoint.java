@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.clouds;
+
+import com.elasticbox.jenkins.k8s.util.PluginHelper;
+import hudson.Extension;
+import hudson.model.Describable;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.util.UUID;
+
+/**
+ * Additional Kubernetes cluster of a {@link KubernetesCloud}. Slaves spill over to these clusters, in the configured
+ * order, when the primary cluster of the cloud is full or unhealthy. Every cluster has a generated id, kept across
+ * configuration changes, that identifies it in the slaves provisioned into it.
+ */
+public class KubernetesClusterEndpoint implements Describable<KubernetesClusterEndpoint> {
+
+    private String id;
+    private final String credentialsId;
+    private final String maxContainers;
+    private final KubernetesCloudParams kubeCloudParams;
+
+    @DataBoundConstructor
+    public KubernetesClusterEndpoint(String id, String endpointUrl, String namespace, String credentialsId,
+                                     String serverCert, String maxContainers) {
+
+        this.id = (StringUtils.isNotEmpty(id) ) ? id : UUID.randomUUID().toString();
+        this.credentialsId = credentialsId;
+        this.maxContainers = maxContainers;
+        this.kubeCloudParams = new KubernetesCloudParams(endpointUrl, namespace,
+                PluginHelper.getAuthenticationData(credentialsId), serverCert);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEndpointUrl() {
+        return kubeCloudParams.getEndpointUrl();
+    }
+
+    public String getNamespace() {
+        return kubeCloudParams.getNamespace();
+    }
+
+    public String getCredentialsId() {
+        return credentialsId;
+    }
+
+    public String getServerCert() {
+        return kubeCloudParams.getServerCert();
+    }
+
+    public String getMaxContainers() {
+        return maxContainers;
+    }
+
+    public int getInstanceCap() {
+        if (StringUtils.isBlank(maxContainers) ) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(maxContainers.trim() );
+        } catch (NumberFormatException excep) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    public KubernetesCloudParams getKubernetesCloudParams() {
+        return kubeCloudParams;
+    }
+
+    protected Object readResolve() {
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+        }
+        return this;
+    }
+
+    @Override
+    public Descriptor<KubernetesClusterEndpoint> getDescriptor() {
+        final Jenkins instance = Jenkins.getInstance();
+        return (instance != null) ? instance.getDescriptor(getClass() ) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "KubernetesClusterEndpoint [" + getEndpointUrl() + "/" + getNamespace() + "]";
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<KubernetesClusterEndpoint> {
+
+        private static final String KUBERNETES_CLUSTER = "Kubernetes cluster";
+
+        @Override
+        public String getDisplayName() {
+            return KUBERNETES_CLUSTER;
+        }
+
+        public ListBoxModel doFillNamespaceItems(@QueryParameter String endpointUrl,
+                                                 @QueryParameter String credentialsId,
+                                                 @QueryParameter String serverCert) {
+
+            return getCloudDescriptor().doFillPredefinedNamespaceItems(endpointUrl, credentialsId, serverCert);
+        }
+
+        public FormValidation doTestConnection(@QueryParameter String endpointUrl,
+                                               @QueryParameter String namespace,
+                                               @QueryParameter String credentialsId,
+                                               @QueryParameter String serverCert) {
+
+            return getCloudDescriptor().doTestConnection(endpointUrl, namespace, credentialsId, serverCert);
+        }
+
+        public ListBoxModel doFillCredentialsIdItems(@QueryParameter String endpointUrl) {
+            return PluginHelper.doFillCredentialsIdItems(endpointUrl);
+        }
+
+        public FormValidation doCheckEndpointUrl(@QueryParameter String endpointUrl) {
+            return getCloudDescriptor().doCheckEndpointUrl(endpointUrl);
+        }
+
+        private KubernetesCloud.DescriptorImpl getCloudDescriptor() {
+            return Jenkins.getInstance().getDescriptorByType(KubernetesCloud.DescriptorImpl.class);
+        }
+    }
+}
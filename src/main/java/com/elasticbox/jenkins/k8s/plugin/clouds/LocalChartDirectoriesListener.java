@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.clouds;
+
+import com.google.inject.Inject;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.local.LocalChartRepository;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops the local chart directories that are no longer configured in any cloud once the Jenkins configuration is
+ * saved, so they are not watched nor kept in memory anymore.
+ */
+@Extension
+public class LocalChartDirectoriesListener extends SaveableListener {
+
+    @Inject
+    private transient LocalChartRepository localChartRepository;
+
+    @Override
+    public void onChange(Saveable saveable, XmlFile file) {
+        if (!(saveable instanceof Jenkins) || localChartRepository == null) {
+            return;
+        }
+
+        final List<ChartRepo> configuredRepos = new ArrayList<>();
+        for (KubernetesCloud kubeCloud : KubernetesCloud.getKubernetesClouds() ) {
+            if (kubeCloud.getChartRepositoryConfigurations() == null) {
+                continue;
+            }
+
+            for (ChartRepositoryConfig config : kubeCloud.getChartRepositoryConfigurations() ) {
+                if (config.getRepoType() == ChartRepoType.LOCAL) {
+                    configuredRepos.add(config.getChartRepo() );
+                }
+            }
+        }
+        localChartRepository.retainDirectories(configuredRepos);
+    }
+}
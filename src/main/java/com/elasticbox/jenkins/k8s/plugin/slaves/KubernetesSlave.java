@@ -38,7 +38,11 @@ public class KubernetesSlave extends AbstractCloudSlave {
     private final transient KubernetesCloud kubernetesCloud;
     private final transient PodRepository podRepository;
 
-    public KubernetesSlave(String podName, PodRepository podRepository, KubernetesCloud kubernetesCloud, Label label)
+    private final String clusterKey;
+    private final String namespace;
+
+    public KubernetesSlave(String podName, PodRepository podRepository, KubernetesCloud kubernetesCloud,
+                           String clusterKey, String namespace, Label label)
         throws Descriptor.FormException,IOException {
 
         super(podName,
@@ -53,6 +57,16 @@ public class KubernetesSlave extends AbstractCloudSlave {
 
         this.kubernetesCloud = kubernetesCloud;
         this.podRepository = podRepository;
+        this.clusterKey = clusterKey;
+        this.namespace = namespace;
+    }
+
+    public String getClusterKey() {
+        return (clusterKey != null) ? clusterKey : kubernetesCloud.getName();
+    }
+
+    public String getNamespace() {
+        return (namespace != null) ? namespace : kubernetesCloud.getPredefinedNamespace();
     }
 
     @Override
@@ -65,7 +79,7 @@ public class KubernetesSlave extends AbstractCloudSlave {
 
         if (this.toComputer() != null ) {
             try {
-                podRepository.delete(kubernetesCloud.getName(), kubernetesCloud.getPredefinedNamespace(), name);
+                podRepository.delete(getClusterKey(), getNamespace(), name);
 
                 if (LOGGER.isLoggable(Level.FINE) ) {
                     LOGGER.fine("Terminated Kubernetes instance for slave: " + name);
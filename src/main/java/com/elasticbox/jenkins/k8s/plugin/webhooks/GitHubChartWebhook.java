@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.webhooks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Injector;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
+import com.elasticbox.jenkins.k8s.plugin.builders.DeployChartBuildStep;
+import com.elasticbox.jenkins.k8s.plugin.clouds.ChartRepositoryConfig;
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartCatalogCache;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import hudson.Extension;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import jenkins.model.Jenkins;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Endpoint for the GitHub push webhooks of the chart repositories, at <code>JENKINS_URL/kubernetes-ci-webhook/github/
+ * </code>. It needs no Jenkins authentication: every request must be signed with the webhook secret of a chart
+ * repository configuration of the same GitHub repository. On a push, the cached data of the pushed ref is discarded
+ * and, in the background, the changed charts and, for the default branch, the chart catalog are fetched again, so
+ * the caches can live long and still pick up the changes within seconds. When the payload does not list every pushed
+ * commit, the changed charts are found comparing the Git tree of the ref with the one it had before the push.
+ * Payloads bigger than the ones GitHub delivers are rejected, reading no more than one byte past that size.
+ */
+@Extension
+public class GitHubChartWebhook implements UnprotectedRootAction {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubChartWebhook.class.getName() );
+
+    public static final String URL_NAME = "kubernetes-ci-webhook";
+
+    static final String EVENT_HEADER = "X-GitHub-Event";
+    static final String SIGNATURE_HEADER = "X-Hub-Signature";
+    static final String SIGNATURE_256_HEADER = "X-Hub-Signature-256";
+
+    // GitHub does not deliver payloads bigger than this
+    static final int MAX_PAYLOAD_BYTES = 25 * 1024 * 1024;
+
+    private static final String PUSH_EVENT = "push";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("GitHubChartWebhook-%d").setDaemon(true).build() );
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    public HttpResponse doGithub(StaplerRequest request) throws IOException {
+        if (!"POST".equals(request.getMethod() ) ) {
+            return HttpResponses.error(HttpURLConnection.HTTP_BAD_METHOD, "Only POST requests are accepted");
+        }
+
+        if (request.getContentLength() > MAX_PAYLOAD_BYTES) {
+            return HttpResponses.error(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, "Payload too large");
+        }
+
+        // The length is not always declared, so the payload is read up to one byte past the limit
+        final byte[] payload = IOUtils.toByteArray(new BoundedInputStream(request.getInputStream(),
+                MAX_PAYLOAD_BYTES + 1) );
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            return HttpResponses.error(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, "Payload too large");
+        }
+
+        final GitHubPushEvent event;
+        try {
+            event = GitHubPushEvent.parse(payload);
+        } catch (IOException exception) {
+            return HttpResponses.error(HttpURLConnection.HTTP_BAD_REQUEST, "Invalid payload: "
+                    + exception.getMessage() );
+        }
+
+        if (event.getRepository() == null) {
+            return HttpResponses.error(HttpURLConnection.HTTP_BAD_REQUEST, "No repository in the payload");
+        }
+
+        // Unknown repositories get the same answer as invalid signatures, so the configured ones cannot be probed
+        final List<ChartRepositoryConfig> configs = getConfigurations(event.getRepository() );
+
+        final String signature256 = request.getHeader(SIGNATURE_256_HEADER);
+        final String signature = request.getHeader(SIGNATURE_HEADER);
+
+        final Map<String, ChartRepo> repos = new LinkedHashMap<>();
+        for (ChartRepositoryConfig config : configs) {
+            if (isValidSignature(config.getWebhookSecret().getPlainText(), payload, signature256, signature) ) {
+                final ChartRepo repo = config.getChartRepo();
+                repos.put(repo.getUrl().toString(), repo);
+            }
+        }
+
+        if (repos.isEmpty() ) {
+            LOGGER.warning("GitHub webhook request for " + event.getRepository() + " with an invalid signature or "
+                    + "without a chart repository with a webhook secret");
+            return HttpResponses.error(HttpURLConnection.HTTP_FORBIDDEN, "Invalid signature");
+        }
+
+        final String eventType = request.getHeader(EVENT_HEADER);
+        if (!PUSH_EVENT.equals(eventType) || event.getRef() == null) {
+            return HttpResponses.plainText("Event ignored: " + eventType);
+        }
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("GitHub push received: " + event);
+        }
+        refresh(new ArrayList<>(repos.values() ), event);
+
+        return HttpResponses.plainText("Charts of " + event.getRepository() + " at " + event.getRef()
+                + " invalidated: " + ( (event.getChangedCharts() != null) ? event.getChangedCharts()
+                    : "those changed in the Git tree") );
+    }
+
+    private static void refresh(final List<ChartRepo> repos, final GitHubPushEvent event) {
+        final Injector injector = getInjector();
+        if (injector == null) {
+            LOGGER.warning("Chart repository not available, GitHub push ignored: " + event);
+            return;
+        }
+
+        final ChartRepository chartRepository = injector.getInstance(ChartRepository.class);
+        final ChartCatalogCache chartCatalogCache = injector.getInstance(ChartCatalogCache.class);
+
+        for (ChartRepo repo : repos) {
+            chartRepository.invalidate(repo, event.getRef() );
+        }
+
+        REFRESH_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (ChartRepo repo : repos) {
+                    // The catalog lists the charts of the default ref
+                    if (event.getRef().equals(chartRepository.defaultRef(repo) ) ) {
+                        chartCatalogCache.prefetch(chartRepository, repo);
+                    }
+
+                    final Collection<String> changedCharts = changedCharts(chartRepository, repo, event);
+                    if (changedCharts == null) {
+                        continue;
+                    }
+
+                    for (String chartName : changedCharts) {
+                        try {
+                            chartRepository.chart(repo, chartName, event.getRef() );
+                        } catch (RepositoryException | RuntimeException exception) {
+                            // Removed charts and folders that are not charts cannot be loaded
+                            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                                LOGGER.config("Chart " + chartName + " of " + repo.getUrl() + " not refreshed: "
+                                        + exception.getMessage() );
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The charts listed by the payload or, when it does not list every commit, the charts whose folder changed
+     * between the tree snapshots of the ref before and after the push.
+     */
+    private static Collection<String> changedCharts(ChartRepository chartRepository, ChartRepo repo,
+                                                    GitHubPushEvent event) {
+        if (event.getChangedCharts() != null) {
+            return event.getChangedCharts();
+        }
+
+        try {
+            final List<String> changedCharts = chartRepository.changedCharts(repo, event.getRef() );
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Charts of " + repo.getUrl() + " changed at " + event.getRef() + ": "
+                        + ( (changedCharts != null) ? changedCharts : "unknown") );
+            }
+            return changedCharts;
+
+        } catch (RepositoryException | RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Changed charts of " + repo.getUrl() + " at " + event.getRef()
+                    + " not found", exception);
+            return null;
+        }
+    }
+
+    private static Injector getInjector() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return null;
+        }
+
+        final DeployChartBuildStep.DescriptorImpl descriptor =
+                jenkins.getDescriptorByType(DeployChartBuildStep.DescriptorImpl.class);
+
+        return (descriptor != null) ? descriptor.getInjector() : null;
+    }
+
+    /**
+     * GitHub chart repository configurations, of any cloud, of the given repository with a webhook secret.
+     */
+    static List<ChartRepositoryConfig> getConfigurations(String repository) {
+        final List<ChartRepositoryConfig> configs = new ArrayList<>();
+
+        for (KubernetesCloud kubeCloud : KubernetesCloud.getKubernetesClouds() ) {
+            if (kubeCloud.getChartRepositoryConfigurations() == null) {
+                continue;
+            }
+
+            for (ChartRepositoryConfig config : kubeCloud.getChartRepositoryConfigurations() ) {
+                if (config.getRepoType() != ChartRepoType.GITHUB || !config.hasWebhookSecret() ) {
+                    continue;
+                }
+
+                final ChartRepo repo = config.getChartRepo();
+                final String name = repo.getUrl().ownerInCaseOfRepoUrl() + "/" + repo.getUrl().repoInCaseOfRepoUrl();
+                if (name.equalsIgnoreCase(repository) ) {
+                    configs.add(config);
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Checks the HMAC signature of the payload, preferring the SHA-256 signature over the legacy SHA-1 one when
+     * both are present. Signatures are compared in constant time.
+     */
+    static boolean isValidSignature(String secret, byte[] payload, String signature256, String signature) {
+        if (signature256 != null) {
+            return isValidSignature("HmacSHA256", "sha256=", secret, payload, signature256);
+        }
+        if (signature != null) {
+            return isValidSignature("HmacSHA1", "sha1=", secret, payload, signature);
+        }
+        return false;
+    }
+
+    private static boolean isValidSignature(String algorithm, String prefix, String secret, byte[] payload,
+                                            String signature) {
+        final byte[] expected;
+        try {
+            final Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(secret.getBytes(UTF_8), algorithm) );
+            expected = (prefix + Hex.encodeHexString(mac.doFinal(payload) ) ).getBytes(UTF_8);
+
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Unable to compute the " + algorithm + " of the payload", exception);
+        }
+        return MessageDigest.isEqual(expected, signature.getBytes(UTF_8) );
+    }
+
+    /**
+     * GitHub cannot send the CSRF crumb of Jenkins, the requests are authenticated by their signature instead.
+     */
+    @Extension
+    public static class WebhookCrumbExclusion extends CrumbExclusion {
+
+        @Override
+        public boolean process(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+
+            final String pathInfo = request.getPathInfo();
+            if (pathInfo != null && pathInfo.startsWith("/" + URL_NAME + "/") ) {
+                chain.doFilter(request, response);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.webhooks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The parts of a GitHub webhook payload needed to invalidate the cached charts: the repository, the pushed ref and
+ * the charts, top level folders of the repository, with files added, modified or removed by the pushed commits.
+ */
+public class GitHubPushEvent {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] REF_PREFIXES = { "refs/heads/", "refs/tags/" };
+    private static final String[] FILE_CHANGES = { "added", "modified", "removed" };
+
+    // GitHub does not list more commits than this in a push payload
+    static final int MAX_LISTED_COMMITS = 20;
+
+    private final String repository;
+    private final String ref;
+    private final Set<String> changedCharts;
+
+    GitHubPushEvent(String repository, String ref, Set<String> changedCharts) {
+        this.repository = repository;
+        this.ref = ref;
+        this.changedCharts = changedCharts;
+    }
+
+    public static GitHubPushEvent parse(byte[] payload) throws IOException {
+        final JsonNode root = MAPPER.readTree(payload);
+        if (root == null || !root.isObject() ) {
+            throw new IOException("The payload is not a JSON object");
+        }
+
+        final String repository = root.path("repository").path("full_name").asText(null);
+        final String ref = shortRef(root.path("ref").asText(null) );
+
+        final JsonNode commits = root.path("commits");
+        if (ref == null || !commits.isArray() || commits.size() >= MAX_LISTED_COMMITS) {
+            return new GitHubPushEvent(repository, ref, null);
+        }
+
+        final Set<String> changedCharts = new TreeSet<>();
+        for (JsonNode commit : commits) {
+            for (String change : FILE_CHANGES) {
+                for (JsonNode path : commit.path(change) ) {
+                    final String chartName = chartName(path.asText() );
+                    if (chartName != null) {
+                        changedCharts.add(chartName);
+                    }
+                }
+            }
+        }
+        return new GitHubPushEvent(repository, ref, Collections.unmodifiableSet(changedCharts) );
+    }
+
+    static String shortRef(String ref) {
+        if (ref == null) {
+            return null;
+        }
+        for (String prefix : REF_PREFIXES) {
+            if (ref.startsWith(prefix) ) {
+                return ref.substring(prefix.length() );
+            }
+        }
+        return ref;
+    }
+
+    private static String chartName(String path) {
+        final int separator = path.indexOf('/');
+        return (separator > 0) ? path.substring(0, separator) : null;
+    }
+
+    /**
+     * Owner and name of the repository, as in <code>owner/repository</code>.
+     */
+    public String getRepository() {
+        return repository;
+    }
+
+    /**
+     * Branch or tag name, or null for the events that are not pushes.
+     */
+    public String getRef() {
+        return ref;
+    }
+
+    /**
+     * Charts changed by the push, or null when the payload does not list every change.
+     */
+    public Set<String> getChangedCharts() {
+        return changedCharts;
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubPushEvent [repository=" + repository + ", ref=" + ref + ", changedCharts=" + changedCharts + "]";
+    }
+}
@@ -23,4 +23,21 @@ public interface ChartRepository {
     Chart chart(ChartRepo repo, String chartName) throws RepositoryException;
 
     Chart chart(ChartRepo repo, String chartName, String ref) throws RepositoryException;
+
+    /**
+     * Discards the cached data of the given ref of the repository that can be stale after a change of the ref, like
+     * a push to the branch. Content addressed data, like the charts of a given Git tree, is kept.
+     */
+    void invalidate(ChartRepo repo, String ref);
+
+    /**
+     * Ref read when none is given, the one whose charts the catalog lists, or null when the repository has no refs.
+     */
+    String defaultRef(ChartRepo repo);
+
+    /**
+     * Charts added, modified or removed in the given ref since it was last invalidated, or null when the repository
+     * cannot tell which ones, like when the ref was not listed before.
+     */
+    List<String> changedCharts(ChartRepo repo, String ref) throws RepositoryException;
 }
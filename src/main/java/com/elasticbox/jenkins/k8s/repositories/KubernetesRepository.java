@@ -15,6 +15,7 @@ import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.client.KubernetesClient;
 
 import java.util.List;
+import java.util.Map;
 
 public interface KubernetesRepository {
 
@@ -29,6 +30,18 @@ public interface KubernetesRepository {
     Namespace createNamespece(String kubeName, String namespace, KeyValuePair<String, String>... labels)
             throws RepositoryException;
 
+    Namespace createNamespace(String kubeName, Namespace namespace) throws RepositoryException;
+
+    boolean createNamespaceIfAbsent(String kubeName, String namespace) throws RepositoryException;
+
+    /**
+     * Deletes the namespace and, with it, every resource it contains. Kubernetes removes the contents in the
+     * background, so this call does not wait for them to be terminated.
+     */
+    void deleteNamespace(String kubeName, String namespace) throws RepositoryException;
+
+    List<Namespace> getNamespaces(String kubeName, Map<String, String> labels) throws RepositoryException;
+
     List<String> getNamespaces(String kubeName);
 
     List<String> getNamespaces(KubernetesCloudParams kubeCloudParams);
@@ -10,6 +10,8 @@ package com.elasticbox.jenkins.k8s.repositories;
 
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 
 import java.util.List;
 import java.util.Map;
@@ -26,9 +28,22 @@ public interface PodRepository {
 
     Pod pod(String kubeName, String namespace, String yaml) throws RepositoryException;
 
-    List<Pod> getAllPods(String kubeName, String namespace) throws RepositoryException;
-
-    List<Pod> getRunningPods(String kubeName, String namespace) throws RepositoryException;
+    int countRunningPods(String kubeName, String namespace) throws RepositoryException;
 
     Pod getPod(String kubeName, String namespace, String podName) throws RepositoryException;
+
+    List<Pod> getPods(String kubeName, String namespace) throws RepositoryException;
+
+    /**
+     * Pods of the namespace with all the given labels, listed with a label selector so the others are not sent.
+     */
+    List<Pod> getPods(String kubeName, String namespace, Map<String, String> labels) throws RepositoryException;
+
+    /**
+     * Adds the labels to the live Pod, keeping its other labels and leaving its spec untouched.
+     */
+    void addLabels(String kubeName, String namespace, String podName, Map<String, String> labels)
+            throws RepositoryException;
+
+    Watch watchPods(String kubeName, String namespace, Watcher<Pod> watcher) throws RepositoryException;
 }
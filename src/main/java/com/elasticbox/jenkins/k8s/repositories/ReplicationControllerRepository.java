@@ -11,6 +11,7 @@ package com.elasticbox.jenkins.k8s.repositories;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 
+import java.util.List;
 import java.util.Map;
 
 public interface ReplicationControllerRepository {
@@ -21,6 +22,21 @@ public interface ReplicationControllerRepository {
     void create(String kubeName, String namespace, ReplicationController controller, Map<String, String> labels)
             throws RepositoryException;
 
+    ReplicationController get(String kubeName, String namespace, String replControllerName)
+            throws RepositoryException;
+
+    List<ReplicationController> getReplicationControllers(String kubeName, String namespace)
+            throws RepositoryException;
+
+    void replace(String kubeName, String namespace, ReplicationController controller, Map<String, String> labels)
+            throws RepositoryException;
+
+    /**
+     * Adds the labels to the live Replication Controller, keeping its other labels and leaving its spec untouched.
+     */
+    void addLabels(String kubeName, String namespace, String replControllerName, Map<String, String> labels)
+            throws RepositoryException;
+
     void delete(String kubeName, String namespace, ReplicationController replController)
             throws RepositoryException;
 }
@@ -11,6 +11,7 @@ package com.elasticbox.jenkins.k8s.repositories;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Service;
 
+import java.util.List;
 import java.util.Map;
 
 public interface ServiceRepository {
@@ -20,6 +21,19 @@ public interface ServiceRepository {
     void create(String kubeName, String namespace, Service service, Map<String, String> labels)
             throws RepositoryException;
 
+    Service get(String kubeName, String namespace, String serviceName) throws RepositoryException;
+
+    List<Service> getServices(String kubeName, String namespace) throws RepositoryException;
+
+    void replace(String kubeName, String namespace, Service service, Map<String, String> labels)
+            throws RepositoryException;
+
+    /**
+     * Adds the labels to the live Service, keeping its other labels and leaving its spec untouched.
+     */
+    void addLabels(String kubeName, String namespace, String serviceName, Map<String, String> labels)
+            throws RepositoryException;
+
     void delete(String kubeName, String namespace, Service service)
             throws RepositoryException;
 }
@@ -11,24 +11,33 @@ package com.elasticbox.jenkins.k8s.repositories.api;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import com.elasticbox.jenkins.k8s.auth.Authentication;
+import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
 import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloudParams;
 import com.elasticbox.jenkins.k8s.util.KeyValuePair;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.api.kubeclient.KubernetesClientFactory;
+import com.elasticbox.jenkins.k8s.repositories.api.kubeclient.KubernetesListClient;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy.OperationType;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import org.apache.commons.lang.StringUtils;
 
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Singleton
@@ -38,11 +47,13 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
     @Inject
     KubernetesClientFactory kubeFactory;
 
+    @Inject
+    RetryPolicy retryPolicy;
+
     @Override
     public boolean testConnection(KubernetesCloudParams kubeCloudParams) throws RepositoryException {
         try {
-            final KubernetesClient kubeClient = kubeFactory.createKubernetesClient(kubeCloudParams);
-            return getNamespacesInternal(kubeClient).size() > 0;
+            return namespaceNames(kubeFactory.createListClient(kubeCloudParams) ).hasNext();
 
         }  catch (KubernetesClientException excep) {
             throw new RepositoryException(excep);
@@ -52,11 +63,14 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
     @Override
     public boolean testConnection(String kubernetesUri) throws RepositoryException {
 
-        final ConfigBuilder builder = new ConfigBuilder().withMasterUrl(kubernetesUri).withTrustCerts(true);
-        final KubernetesClient kubeClient = new DefaultKubernetesClient(builder.build() );
+        // The configuration found by the client, like the token of the service account, without certificate checks
+        final Config config = new ConfigBuilder().withMasterUrl(kubernetesUri).withTrustCerts(true).build();
+        final Authentication authData = StringUtils.isNotEmpty(config.getOauthToken() )
+                ? new TokenAuthentication(config.getOauthToken() ) : null;
+        final KubernetesCloudParams kubeCloudParams = new KubernetesCloudParams(kubernetesUri, null, authData, null);
 
         try {
-            return getNamespacesInternal(kubeClient).size() > 0;
+            return namespaceNames(kubeFactory.createListClient(kubeCloudParams) ).hasNext();
 
         } catch (KubernetesClientException exception) {
             throw new RepositoryException("Error checking Kubernetes cloud connection: ", exception);
@@ -74,11 +88,19 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
         return namespaceExistsInternal(getClient(kubeName), namespace);
     }
 
-    private boolean namespaceExistsInternal(KubernetesClient kubeClient, String namespace) throws RepositoryException {
+    private boolean namespaceExistsInternal(final KubernetesClient kubeClient, final String namespace)
+            throws RepositoryException {
+
         Namespace existingNamespace = null;
 
         try {
-            existingNamespace = kubeClient.namespaces().withName(namespace).get();
+            existingNamespace = retryPolicy.execute(OperationType.READ, "Get Namespace " + namespace,
+                new RetryPolicy.Operation<Namespace>() {
+                    @Override
+                    public Namespace call() {
+                        return kubeClient.namespaces().withName(namespace).get();
+                    }
+                });
         } catch (KubernetesClientException kce) {
             throw new RepositoryException(kce);
         }
@@ -89,7 +111,9 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
     public Namespace createNamespece(String kubeName, String namespace, KeyValuePair<String, String>... labels)
             throws RepositoryException {
 
-        Namespace newNamespace = new NamespaceBuilder().withNewMetadata().withName(namespace).endMetadata().build();
+        final Namespace newNamespace = new NamespaceBuilder()
+                .withNewMetadata().withName(namespace).endMetadata()
+                .build();
         if (labels.length > 0) {
             Map<String, String> labelsMap = new HashMap<>();
             for (KeyValuePair<String, String> label: Arrays.asList(labels) ) {
@@ -98,13 +122,83 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
             newNamespace.getMetadata().setLabels(labelsMap);
         }
 
-        return  getClient(kubeName).namespaces().create(newNamespace);
+        return createNamespace(kubeName, newNamespace);
+    }
+
+    @Override
+    public Namespace createNamespace(String kubeName, final Namespace namespace) throws RepositoryException {
+        final KubernetesClient client = getClient(kubeName);
+        return retryPolicy.execute(OperationType.CREATE, "Create Namespace " + namespace.getMetadata().getName(),
+            new RetryPolicy.Operation<Namespace>() {
+                @Override
+                public Namespace call() {
+                    return client.namespaces().create(namespace);
+                }
+            },
+            new RetryPolicy.Operation<Namespace>() {
+                @Override
+                public Namespace call() {
+                    return client.namespaces().withName(namespace.getMetadata().getName() ).get();
+                }
+            });
+    }
+
+    @Override
+    public boolean createNamespaceIfAbsent(String kubeName, String namespace) throws RepositoryException {
+        try {
+            createNamespece(kubeName, namespace);
+            return true;
+
+        } catch (KubernetesClientException kce) {
+            if (kce.getCode() == HttpURLConnection.HTTP_CONFLICT) {
+                return false;
+            }
+            throw new RepositoryException(kce);
+        }
+    }
+
+    @Override
+    public void deleteNamespace(String kubeName, final String namespace) throws RepositoryException {
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Deleting Namespace: " + namespace);
+        }
+        final KubernetesClient client = getClient(kubeName);
+        retryPolicy.execute(OperationType.DELETE, "Delete Namespace " + namespace,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.namespaces().withName(namespace).delete();
+                    return null;
+                }
+            });
+    }
+
+    @Override
+    public List<Namespace> getNamespaces(String kubeName, final Map<String, String> labels)
+            throws RepositoryException {
+
+        final KubernetesClient client = getClient(kubeName);
+        final List<Namespace> namespaces = retryPolicy.execute(OperationType.LIST, "List Namespaces " + labels,
+            new RetryPolicy.Operation<List<Namespace>>() {
+                @Override
+                public List<Namespace> call() {
+                    return client.namespaces().withLabels(labels).list().getItems();
+                }
+            });
+        return (namespaces != null) ? namespaces : new ArrayList<Namespace>();
     }
 
     @Override
     public List<String> getNamespaces(String kubeName) {
         try {
-            return getNamespacesInternal(getClient(kubeName) );
+            final KubernetesListClient listClient = kubeFactory.getListClient(kubeName);
+            return retryPolicy.execute(OperationType.LIST, "List Namespaces",
+                new RetryPolicy.Operation<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return getNamespacesInternal(listClient);
+                    }
+                });
         } catch (RepositoryException excep) {
             LOGGER.severe("Unable to get client: " + excep.getMessage() );
             return null;
@@ -117,19 +211,26 @@ public class KubernetesRepositoryApiImpl implements KubernetesRepository {
     @Override
     public List<String> getNamespaces(KubernetesCloudParams kubeCloudParams) {
         try {
-            final KubernetesClient kubeClient = kubeFactory.createKubernetesClient(kubeCloudParams);
-            return getNamespacesInternal(kubeClient);
+            return getNamespacesInternal(kubeFactory.createListClient(kubeCloudParams) );
         } catch (KubernetesClientException excep) {
             LOGGER.severe("Unable to get namespaces: " + new RepositoryException(excep).getInitialCause() );
             return null;
         }
     }
 
-    private List<String> getNamespacesInternal(KubernetesClient kubeClient) {
-        List<String> returnList = new ArrayList<>();
-        for (Namespace namespace: kubeClient.namespaces().list().getItems() ) {
-            returnList.add(namespace.getMetadata().getName() );
+    private List<String> getNamespacesInternal(KubernetesListClient listClient) {
+        final List<String> returnList = new ArrayList<>();
+        for (Iterator<String> names = namespaceNames(listClient); names.hasNext(); ) {
+            returnList.add(names.next() );
         }
         return returnList;
     }
+
+    /**
+     * Namespace names read page by page, without building any Namespace, so checking a connection only reads the
+     * first page.
+     */
+    private static Iterator<String> namespaceNames(KubernetesListClient listClient) {
+        return listClient.names("api/v1/namespaces", null);
+    }
 }
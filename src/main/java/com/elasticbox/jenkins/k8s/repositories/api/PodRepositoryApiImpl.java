@@ -11,15 +11,22 @@ package com.elasticbox.jenkins.k8s.repositories.api;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import com.elasticbox.jenkins.k8s.chart.ChartResources;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.kubeclient.KubernetesClientFactory;
+import com.elasticbox.jenkins.k8s.repositories.api.kubeclient.KubernetesListClient;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy.OperationType;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import org.apache.commons.io.IOUtils;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -33,41 +40,64 @@ public class PodRepositoryApiImpl implements PodRepository {
     @Inject
     KubernetesRepository kubeRepository;
 
+    @Inject
+    KubernetesClientFactory kubeFactory;
+
+    @Inject
+    RetryPolicy retryPolicy;
+
     @Override
-    public void create(String kubeName, String namespace, Pod pod) throws RepositoryException {
+    public void create(String kubeName, final String namespace, final Pod pod) throws RepositoryException {
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Creating Pod: " + pod.getMetadata().getName() );
         }
-        kubeRepository.getClient(kubeName).pods().inNamespace(namespace).create(pod);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.CREATE, "Create Pod " + pod.getMetadata().getName(),
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.pods().inNamespace(namespace).create(pod);
+                    return null;
+                }
+            });
     }
 
     @Override
     public void create(String kubeName, String namespace, Pod pod, Map<String, String> labels)
             throws RepositoryException {
 
-        if (labels != null) {
-            final Map<String, String> currentLabels = pod.getMetadata().getLabels();
-            currentLabels.putAll(labels);
-            pod.getMetadata().setLabels(currentLabels);
-        }
-
-        this.create(kubeName, namespace, pod);
+        this.create(kubeName, namespace, ChartResources.copy(pod, labels, null) );
     }
 
     @Override
-    public void delete(String kubeName, String namespace, Pod pod) throws RepositoryException {
+    public void delete(String kubeName, final String namespace, final Pod pod) throws RepositoryException {
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Deleting Pod: " + pod.getMetadata().getName() );
         }
-        kubeRepository.getClient(kubeName).pods().inNamespace(namespace).delete(pod);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.DELETE, "Delete Pod " + pod.getMetadata().getName(),
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.pods().inNamespace(namespace).delete(pod);
+                    return null;
+                }
+            });
     }
 
     @Override
-    public void delete(String kubeName, String namespace, String podName) throws RepositoryException {
+    public void delete(String kubeName, final String namespace, final String podName) throws RepositoryException {
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Deleting Pod: " + podName );
         }
-        kubeRepository.getClient(kubeName).pods().inNamespace(namespace).withName(podName).delete();
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.DELETE, "Delete Pod " + podName, new RetryPolicy.Operation<Void>() {
+            @Override
+            public Void call() {
+                client.pods().inNamespace(namespace).withName(podName).delete();
+                return null;
+            }
+        });
     }
 
     @Override
@@ -89,27 +119,94 @@ public class PodRepositoryApiImpl implements PodRepository {
         }
     }
 
+    /**
+     * Counts the running Pods of the namespace reading their names page by page, without building any Pod. A list
+     * that fails halfway, like when its continue token expires, is counted again from the start.
+     */
     @Override
-    public List<Pod> getAllPods(String kubeName, String namespace) throws RepositoryException {
+    public int countRunningPods(String kubeName, final String namespace) throws RepositoryException {
+        final KubernetesListClient listClient = kubeFactory.getListClient(kubeName);
+        return retryPolicy.execute(OperationType.LIST, "Count running Pods in " + namespace,
+            new RetryPolicy.Operation<Integer>() {
+                @Override
+                public Integer call() {
+                    return listClient.count("api/v1/namespaces/" + namespace + "/pods", "status.phase=Running");
+                }
+            });
+    }
+
+    @Override
+    public Pod getPod(String kubeName, final String namespace, final String podName) throws RepositoryException {
         final KubernetesClient client = kubeRepository.getClient(kubeName);
-        final PodList list = client.pods().inNamespace(namespace).list();
-        return list.getItems();
+        return retryPolicy.execute(OperationType.READ, "Get Pod " + podName, new RetryPolicy.Operation<Pod>() {
+            @Override
+            public Pod call() {
+                return client.pods().inNamespace(namespace).withName(podName).get();
+            }
+        });
     }
 
     @Override
-    public List<Pod> getRunningPods(String kubeName, String namespace) throws RepositoryException {
+    public List<Pod> getPods(String kubeName, final String namespace) throws RepositoryException {
         final KubernetesClient client = kubeRepository.getClient(kubeName);
-        final PodList list = client.pods().inNamespace(namespace).withField("status.phase","Running").list();
-        return list.getItems();
+        return retryPolicy.execute(OperationType.LIST, "List Pods in " + namespace,
+            new RetryPolicy.Operation<List<Pod>>() {
+                @Override
+                public List<Pod> call() {
+                    final List<Pod> items = client.pods().inNamespace(namespace).list().getItems();
+                    return (items != null) ? items : Collections.<Pod>emptyList();
+                }
+            });
     }
 
+    @Override
+    public List<Pod> getPods(String kubeName, final String namespace, final Map<String, String> labels)
+            throws RepositoryException {
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.LIST, "List Pods in " + namespace + " with labels " + labels,
+            new RetryPolicy.Operation<List<Pod>>() {
+                @Override
+                public List<Pod> call() {
+                    final List<Pod> items = client.pods().inNamespace(namespace).withLabels(labels).list()
+                            .getItems();
+                    return (items != null) ? items : Collections.<Pod>emptyList();
+                }
+            });
+    }
 
     @Override
-    public Pod getPod(String kubeName, String namespace, String podName) throws RepositoryException {
+    public void addLabels(String kubeName, final String namespace, final String podName,
+                          final Map<String, String> labels) throws RepositoryException {
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Labeling Pod: " + podName + " with: " + labels);
+        }
+
         final KubernetesClient client = kubeRepository.getClient(kubeName);
-        final Pod pod = client.pods().inNamespace(namespace).withName(podName).get();
-        return pod;
+        retryPolicy.execute(OperationType.UPDATE, "Label Pod " + podName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.pods().inNamespace(namespace).withName(podName).edit()
+                            .editMetadata().addToLabels(labels).endMetadata()
+                            .done();
+                    return null;
+                }
+            });
     }
 
-}
+    @Override
+    public Watch watchPods(String kubeName, final String namespace, final Watcher<Pod> watcher)
+            throws RepositoryException {
 
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.READ, "Watch Pods in " + namespace,
+            new RetryPolicy.Operation<Watch>() {
+                @Override
+                public Watch call() {
+                    return client.pods().inNamespace(namespace).watch(watcher);
+                }
+            });
+    }
+}
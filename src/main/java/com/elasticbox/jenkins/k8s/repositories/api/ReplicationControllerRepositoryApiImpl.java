@@ -11,12 +11,17 @@ package com.elasticbox.jenkins.k8s.repositories.api;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import com.elasticbox.jenkins.k8s.chart.ChartResources;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.ReplicationControllerRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy.OperationType;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.client.KubernetesClient;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,34 +33,119 @@ public class ReplicationControllerRepositoryApiImpl implements ReplicationContro
     @Inject
     KubernetesRepository kubeRepository;
 
+    @Inject
+    RetryPolicy retryPolicy;
+
     @Override
-    public void create(String kubeName, String namespace, ReplicationController replController)
+    public void create(String kubeName, final String namespace, final ReplicationController replController)
             throws RepositoryException {
 
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Creating Replication Controller: " + replController.getMetadata().getName() );
         }
-        kubeRepository.getClient(kubeName).replicationControllers().inNamespace(namespace).create(replController);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.CREATE,
+            "Create Replication Controller " + replController.getMetadata().getName(),
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.replicationControllers().inNamespace(namespace).create(replController);
+                    return null;
+                }
+            });
     }
 
     @Override
     public void create(String kubeName, String namespace, ReplicationController controller, Map<String, String> labels)
             throws RepositoryException {
 
-        if (labels != null) {
-            final Map<String, String> currentLabels = controller.getMetadata().getLabels();
-            currentLabels.putAll(labels);
-            controller.getMetadata().setLabels(currentLabels);
+        this.create(kubeName, namespace, ChartResources.copy(controller, labels, null) );
+    }
+
+    @Override
+    public ReplicationController get(String kubeName, final String namespace, final String replControllerName)
+            throws RepositoryException {
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.READ, "Get Replication Controller " + replControllerName,
+            new RetryPolicy.Operation<ReplicationController>() {
+                @Override
+                public ReplicationController call() {
+                    return client.replicationControllers().inNamespace(namespace).withName(replControllerName).get();
+                }
+            });
+    }
+
+    @Override
+    public List<ReplicationController> getReplicationControllers(String kubeName, final String namespace)
+            throws RepositoryException {
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.LIST, "List Replication Controllers in " + namespace,
+            new RetryPolicy.Operation<List<ReplicationController>>() {
+                @Override
+                public List<ReplicationController> call() {
+                    final List<ReplicationController> items =
+                            client.replicationControllers().inNamespace(namespace).list().getItems();
+                    return (items != null) ? items : Collections.<ReplicationController>emptyList();
+                }
+            });
+    }
+
+    @Override
+    public void replace(String kubeName, final String namespace, final ReplicationController controller,
+                        final Map<String, String> labels) throws RepositoryException {
+
+        final String replControllerName = controller.getMetadata().getName();
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Replacing Replication Controller: " + replControllerName);
         }
 
-        this.create(kubeName, namespace, controller);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.UPDATE, "Replace Replication Controller " + replControllerName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    final ReplicationController live =
+                            client.replicationControllers().inNamespace(namespace).withName(replControllerName).get();
+                    client.replicationControllers().inNamespace(namespace).withName(replControllerName)
+                            .replace(ChartResources.copyForReplace(controller, labels, live) );
+                    return null;
+                }
+            });
     }
-    
+
     @Override
-    public void delete(String kubeName, String namespace, ReplicationController replController)
+    public void addLabels(String kubeName, final String namespace, final String replControllerName,
+                          final Map<String, String> labels) throws RepositoryException {
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Labeling Replication Controller: " + replControllerName + " with: " + labels);
+        }
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.UPDATE, "Label Replication Controller " + replControllerName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.replicationControllers().inNamespace(namespace).withName(replControllerName).edit()
+                            .editMetadata().addToLabels(labels).endMetadata()
+                            .done();
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Deletes the Replication Controller without waiting for its Pods to terminate: it is scaled down to zero
+     * replicas, so it does not create new Pods, its Pods are deleted by label and then the controller itself is
+     * deleted. The Pods are terminated gracefully by the cluster in the background.
+     */
+    @Override
+    public void delete(String kubeName, final String namespace, final ReplicationController replController)
             throws RepositoryException {
 
-        String replControllerName = replController.getMetadata().getName();
+        final String replControllerName = replController.getMetadata().getName();
 
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Deleting Replication Controller and associated Pods: " + replControllerName);
@@ -63,8 +153,36 @@ public class ReplicationControllerRepositoryApiImpl implements ReplicationContro
 
         final KubernetesClient client = kubeRepository.getClient(kubeName);
 
-        client.replicationControllers().inNamespace(namespace).withName(replControllerName).scale(0, true);
+        retryPolicy.execute(OperationType.DELETE, "Scale down Replication Controller " + replControllerName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.replicationControllers().inNamespace(namespace).withName(replControllerName)
+                            .scale(0, false);
+                    return null;
+                }
+            });
+
+        final Map<String, String> selector = ChartResources.selector(replController);
+        if (selector != null && !selector.isEmpty() ) {
+            retryPolicy.execute(OperationType.DELETE, "Delete Pods of Replication Controller " + replControllerName,
+                new RetryPolicy.Operation<Void>() {
+                    @Override
+                    public Void call() {
+                        client.pods().inNamespace(namespace).withLabels(selector).delete();
+                        return null;
+                    }
+                });
+        }
 
-        client.replicationControllers().inNamespace(namespace).delete(replController);
+        retryPolicy.execute(OperationType.DELETE, "Delete Replication Controller " + replControllerName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.replicationControllers().inNamespace(namespace).withName(replControllerName)
+                            .cascading(false).delete();
+                    return null;
+                }
+            });
     }
 }
@@ -11,11 +11,17 @@ package com.elasticbox.jenkins.k8s.repositories.api;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import com.elasticbox.jenkins.k8s.chart.ChartResources;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.ServiceRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy;
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy.OperationType;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.client.KubernetesClient;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,32 +33,116 @@ public class ServiceRepositoryApiImpl implements ServiceRepository {
     @Inject
     KubernetesRepository kubeRepository;
 
+    @Inject
+    RetryPolicy retryPolicy;
+
     @Override
-    public void create(String kubeName, String namespace, Service service) throws RepositoryException {
+    public void create(String kubeName, final String namespace, final Service service) throws RepositoryException {
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Creating Service: " + service.getMetadata().getName() );
         }
-        kubeRepository.getClient(kubeName).services().inNamespace(namespace).create(service);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.CREATE, "Create Service " + service.getMetadata().getName(),
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.services().inNamespace(namespace).create(service);
+                    return null;
+                }
+            });
     }
 
     @Override
     public void create(String kubeName, String namespace, Service service, Map<String, String> labels)
             throws RepositoryException {
 
-        if (labels != null) {
-            final Map<String, String> currentLabels = service.getMetadata().getLabels();
-            currentLabels.putAll(labels);
-            service.getMetadata().setLabels(currentLabels);
+        this.create(kubeName, namespace, ChartResources.copy(service, labels, null) );
+    }
+
+    @Override
+    public Service get(String kubeName, final String namespace, final String serviceName)
+            throws RepositoryException {
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.READ, "Get Service " + serviceName,
+            new RetryPolicy.Operation<Service>() {
+                @Override
+                public Service call() {
+                    return client.services().inNamespace(namespace).withName(serviceName).get();
+                }
+            });
+    }
+
+    @Override
+    public List<Service> getServices(String kubeName, final String namespace) throws RepositoryException {
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        return retryPolicy.execute(OperationType.LIST, "List Services in " + namespace,
+            new RetryPolicy.Operation<List<Service>>() {
+                @Override
+                public List<Service> call() {
+                    final List<Service> items = client.services().inNamespace(namespace).list().getItems();
+                    return (items != null) ? items : Collections.<Service>emptyList();
+                }
+            });
+    }
+
+    @Override
+    public void replace(String kubeName, final String namespace, final Service service,
+                        final Map<String, String> labels) throws RepositoryException {
+
+        final String serviceName = service.getMetadata().getName();
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Replacing Service: " + serviceName);
+        }
+
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.UPDATE, "Replace Service " + serviceName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    // Both the resource version and the allocated cluster IP must be kept on replace
+                    final Service live = client.services().inNamespace(namespace).withName(serviceName).get();
+                    client.services().inNamespace(namespace).withName(serviceName)
+                            .replace(ChartResources.copyForReplace(service, labels, live) );
+                    return null;
+                }
+            });
+    }
+
+    @Override
+    public void addLabels(String kubeName, final String namespace, final String serviceName,
+                          final Map<String, String> labels) throws RepositoryException {
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Labeling Service: " + serviceName + " with: " + labels);
         }
 
-        this.create(kubeName, namespace, service);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.UPDATE, "Label Service " + serviceName,
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.services().inNamespace(namespace).withName(serviceName).edit()
+                            .editMetadata().addToLabels(labels).endMetadata()
+                            .done();
+                    return null;
+                }
+            });
     }
 
     @Override
-    public void delete(String kubeName, String namespace, Service service) throws RepositoryException {
+    public void delete(String kubeName, final String namespace, final Service service) throws RepositoryException {
         if (LOGGER.isLoggable(Level.CONFIG) ) {
             LOGGER.config("Deleting Service: " + service.getMetadata().getName() );
         }
-        kubeRepository.getClient(kubeName).services().inNamespace(namespace).delete(service);
+        final KubernetesClient client = kubeRepository.getClient(kubeName);
+        retryPolicy.execute(OperationType.DELETE, "Delete Service " + service.getMetadata().getName(),
+            new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    client.services().inNamespace(namespace).delete(service);
+                    return null;
+                }
+            });
     }
 }
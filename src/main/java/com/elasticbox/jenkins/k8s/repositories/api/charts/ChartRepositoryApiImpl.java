@@ -8,37 +8,89 @@
 
 package com.elasticbox.jenkins.k8s.repositories.api.charts;
 
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 import com.elasticbox.jenkins.k8s.chart.Chart;
 import com.elasticbox.jenkins.k8s.chart.ChartDetails;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartDiskCache;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.factory.ManifestFactory;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiArchiveService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiContentsService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRawContentDownloadService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRepositoryService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiResponseContentType;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiTreesService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchiveCache;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubClientsFactory;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubContent;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubHttpCache;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubTree;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubTreeIndex;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubTreeIndexCache;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.helm.HelmChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.local.LocalChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 
 import hudson.Extension;
 
 import org.yaml.snakeyaml.Yaml;
 import rx.Observable;
-import rx.exceptions.Exceptions;
+import rx.Scheduler;
 import rx.functions.Action1;
 import rx.functions.Func1;
+import rx.functions.FuncN;
+import rx.schedulers.Schedulers;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Extension
 public class ChartRepositoryApiImpl implements ChartRepository {
 
+    private static final Logger LOGGER = Logger.getLogger(ChartRepositoryApiImpl.class.getName() );
+
+    private static final int MAX_CONCURRENT_FETCHES = 8;
+
+    // Ref the charts were always read from, used while the default branch of a repository cannot be looked up
+    private static final String FALLBACK_REF = "master";
+
+    private static final Scheduler FETCH_SCHEDULER = Schedulers.from(Executors.newFixedThreadPool(
+        MAX_CONCURRENT_FETCHES,
+        new ThreadFactoryBuilder().setNameFormat("ChartFetcher-%d").setDaemon(true).build() ));
+
+    private final GitHubChartArchiveCache archiveCache = new GitHubChartArchiveCache();
+    private final GitHubTreeIndexCache treeIndexCache = new GitHubTreeIndexCache();
+    private final ChartDiskCache diskCache = ChartDiskCache.getInstance();
+
+    private final ConcurrentMap<String, SettableFuture<Chart>> inFlightLoads = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedLoads = new AtomicLong();
+
+    private final ConcurrentMap<String, String> defaultRefs = new ConcurrentHashMap<>();
+
     @Inject
     GitHubClientsFactory clientsFactory;
 
+    @Inject
+    HelmChartRepository helmChartRepository;
+
+    @Inject
+    LocalChartRepository localChartRepository;
+
     @Override
     public List<String> chartNames(final ChartRepo repo) throws RepositoryException {
         return  chartNames(repo, null);
@@ -47,9 +99,27 @@ public class ChartRepositoryApiImpl implements ChartRepository {
     @Override
     public List<String> chartNames(final ChartRepo repo, String ref) throws RepositoryException {
 
-        final List<String> chartNames = new ArrayList<>();
+        if (repo.getType() == ChartRepoType.HELM) {
+            return helmChartRepository.chartNames(repo, ref);
+        } else if (repo.getType() == ChartRepoType.LOCAL) {
+            return localChartRepository.chartNames(repo, ref);
+        }
+
+        final String defaultRef = refOrDefault(repo, ref);
 
-        String defaultRef = (ref == null || ref.equals("")) ? "master" : ref;
+        try {
+            return treeIndex(repo, defaultRef).getChartNames();
+        } catch (RepositoryException exception) {
+            LOGGER.log(Level.WARNING, "Charts of " + repo.getUrl() + " not listed from its Git tree, "
+                + "listing the repository contents", exception);
+        }
+
+        return chartNamesFromContents(repo, defaultRef);
+    }
+
+    private List<String> chartNamesFromContents(ChartRepo repo, String defaultRef) throws RepositoryException {
+
+        final List<String> chartNames = new ArrayList<>();
 
         final GitHubApiContentsService client = getClient(repo, repo.getUrl().toString(), GitHubApiContentsService
             .class, GitHubApiResponseContentType.JSON);
@@ -78,129 +148,500 @@ public class ChartRepositoryApiImpl implements ChartRepository {
 
     }
 
+    private GitHubTreeIndex treeIndex(ChartRepo repo, String ref) throws RepositoryException {
+
+        final GitHubTreeIndex fresh = treeIndexCache.getFresh(repo, ref);
+        if (fresh != null) {
+            return fresh;
+        }
+
+        final GitHubApiTreesService client = getClient(repo, repo.getUrl().toString(), GitHubApiTreesService
+            .class, GitHubApiResponseContentType.JSON);
+
+        final GitHubTree tree;
+        try {
+            tree = client.tree(repo.getUrl().ownerInCaseOfRepoUrl(), repo.getUrl().repoInCaseOfRepoUrl(), ref,
+                    GitHubApiTreesService.RECURSIVE)
+                .toBlocking()
+                .single();
+
+        } catch (RuntimeException exception) {
+            throw new RepositoryException("Error getting the Git tree of ref: " + ref, exception);
+        }
+
+        if (tree == null || tree.getSha() == null) {
+            throw new RepositoryException("Empty Git tree for ref: " + ref);
+        }
+        if (Boolean.TRUE.equals(tree.getTruncated() ) ) {
+            throw new RepositoryException("Git tree of ref: " + ref + " is too big to be listed at once");
+        }
+
+        final GitHubTreeIndex index = GitHubTreeIndex.from(tree);
+        treeIndexCache.update(repo, ref, index);
+        return index;
+    }
+
     @Override
     public Chart chart(final ChartRepo repo, String chartName) throws RepositoryException {
         return chart(repo, chartName, null);
     }
 
-    //TODO study how to do that using an specific worker
+    /**
+     * Loads of the same chart at the same ref are single-flight: callers that ask for a chart being loaded wait for
+     * that load and share its result, or its failure. Completed loads are not kept here, caching is done by the
+     * layers below.
+     */
     @Override
     public Chart chart(final ChartRepo repo, String chartName, String ref) throws RepositoryException {
 
-        final Chart.ChartBuilder chartBuilder = new Chart.ChartBuilder();
+        final String key = loadKey(repo, chartName, ref);
+        final SettableFuture<Chart> load = SettableFuture.create();
 
-        final String defaultRef = (ref == null || ref.equals("")) ? "master" : ref;
+        final SettableFuture<Chart> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad != null) {
+            coalescedLoads.incrementAndGet();
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Chart " + key + " is already being loaded, waiting for that load");
+            }
+            return await(inFlightLoad, key);
+        }
 
-        final GitHubApiContentsService client = getClient(repo, repo.getUrl().toString(), GitHubApiContentsService
-            .class, GitHubApiResponseContentType.JSON);
+        try {
+            final Chart chart = loadChart(repo, chartName, ref);
+            load.set(chart);
+            return chart;
 
-        client.content(repo.getUrl().ownerInCaseOfRepoUrl(), repo.getUrl().repoInCaseOfRepoUrl(), chartName, defaultRef)
-            .flatMap(new Func1<List<GitHubContent>, Observable<GitHubContent>>() {
-                @Override
-                public Observable<GitHubContent> call(List<GitHubContent> gitHubContents) {
-                    return Observable.from(gitHubContents);
+        } catch (RepositoryException | RuntimeException exception) {
+            load.setException(exception);
+            throw exception;
+
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
+    private static Chart await(SettableFuture<Chart> load, String key) throws RepositoryException {
+        try {
+            return load.get();
+
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RepositoryException) {
+                throw (RepositoryException) exception.getCause();
+            } else if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new RepositoryException("Error loading chart " + key, exception.getCause() );
+
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted waiting for the load of chart " + key, exception);
+        }
+    }
+
+    static String loadKey(ChartRepo repo, String chartName, String ref) {
+        return repo.getType() + ":" + repo.getUrl() + "/" + chartName + "@"
+            + ( (ref == null || ref.equals("") ) ? "default" : ref);
+    }
+
+    /**
+     * Number of chart requests served by attaching to a load already in flight, instead of loading the chart again.
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.get();
+    }
+
+    /**
+     * The Git tree, the commit and the contents of a ref are fetched with its name, so the HTTP responses cached for
+     * them and the tree snapshot of the ref are removed. The chart sources cached by tree, blob or commit SHA are
+     * still valid: only the charts that changed in the ref are downloaded again.
+     */
+    @Override
+    public void invalidate(ChartRepo repo, String ref) {
+        if (repo.getType() == ChartRepoType.HELM) {
+            helmChartRepository.invalidate(repo, ref);
+            return;
+        } else if (repo.getType() == ChartRepoType.LOCAL) {
+            localChartRepository.invalidate(repo, ref);
+            return;
+        }
+
+        // A push can come with a change of the default branch, which is looked up again
+        defaultRefs.remove(repo.getUrl().toString() );
+
+        final String defaultRef = refOrDefault(repo, ref);
+        treeIndexCache.invalidate(repo, defaultRef);
+        try {
+            final int removed = GitHubHttpCache.getInstance().invalidate(repo.getUrl().ownerInCaseOfRepoUrl(),
+                repo.getUrl().repoInCaseOfRepoUrl(), defaultRef);
+
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Invalidated " + removed + " cached responses of " + repo.getUrl() + " at "
+                    + defaultRef);
+            }
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error invalidating the cached responses of " + repo.getUrl() + " at "
+                + defaultRef, exception);
+        }
+    }
+
+    /**
+     * The default branch of the GitHub repository, looked up once and then again after every invalidation of the
+     * repository.
+     */
+    @Override
+    public String defaultRef(ChartRepo repo) {
+        if (repo.getType() == ChartRepoType.HELM) {
+            return helmChartRepository.defaultRef(repo);
+        } else if (repo.getType() == ChartRepoType.LOCAL) {
+            return localChartRepository.defaultRef(repo);
+        }
+
+        final String key = repo.getUrl().toString();
+        final String cached = defaultRefs.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            final GitHubApiRepositoryService client = getClient(repo, key, GitHubApiRepositoryService.class,
+                GitHubApiResponseContentType.JSON);
+
+            final GitHubRepository repository = client.repository(repo.getUrl().ownerInCaseOfRepoUrl(),
+                    repo.getUrl().repoInCaseOfRepoUrl() )
+                .toBlocking()
+                .single();
+
+            if (repository != null && repository.getDefaultBranch() != null) {
+                defaultRefs.put(key, repository.getDefaultBranch() );
+                return repository.getDefaultBranch();
+            }
+            LOGGER.warning("No default branch for " + repo.getUrl() + ", using " + FALLBACK_REF);
+
+        } catch (RepositoryException | RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Default branch of " + repo.getUrl() + " not found, using " + FALLBACK_REF,
+                exception);
+        }
+        return FALLBACK_REF;
+    }
+
+    private String refOrDefault(ChartRepo repo, String ref) {
+        return (ref == null || ref.equals("") ) ? defaultRef(repo) : ref;
+    }
+
+    /**
+     * Lists the Git tree of the ref again and compares it with the snapshot it had when it was invalidated.
+     */
+    @Override
+    public List<String> changedCharts(ChartRepo repo, String ref) throws RepositoryException {
+        if (repo.getType() == ChartRepoType.HELM) {
+            return helmChartRepository.changedCharts(repo, ref);
+        } else if (repo.getType() == ChartRepoType.LOCAL) {
+            return localChartRepository.changedCharts(repo, ref);
+        }
+
+        final String defaultRef = refOrDefault(repo, ref);
+        return treeIndexCache.changedSinceInvalidation(repo, defaultRef, treeIndex(repo, defaultRef) );
+    }
+
+    private Chart loadChart(final ChartRepo repo, String chartName, String ref) throws RepositoryException {
+
+        if (repo.getType() == ChartRepoType.HELM) {
+            return helmChartRepository.chart(repo, chartName, ref);
+        } else if (repo.getType() == ChartRepoType.LOCAL) {
+            return localChartRepository.chart(repo, chartName, ref);
+        }
+
+        final String defaultRef = refOrDefault(repo, ref);
+
+        if (ChartDiskCache.isCommitSha(defaultRef) ) {
+            final GitHubChartArchive.ChartSources sources = diskCache.getPinned(repo, defaultRef, chartName);
+            if (sources != null) {
+                if (LOGGER.isLoggable(Level.CONFIG) ) {
+                    LOGGER.config("Chart " + chartName + " at commit " + defaultRef + " read from the disk cache");
                 }
-            })
-            .subscribe(new Action1<GitHubContent>() {
-                @Override
-                public void call(GitHubContent gitHubContent) {
+                return chartFromSources(chartName, sources);
+            }
+        }
+
+        GitHubTreeIndex treeIndex = null;
+        String chartTreeSha = null;
+        try {
+            treeIndex = treeIndex(repo, defaultRef);
+            chartTreeSha = treeIndex.getChartSha(chartName);
+        } catch (RepositoryException exception) {
+            LOGGER.log(Level.FINE, "Git tree of " + repo.getUrl() + " not available", exception);
+        }
+
+        if (chartTreeSha != null) {
+            final GitHubChartArchive.ChartSources sources = cachedSources(treeIndex, chartName, chartTreeSha);
+            if (sources != null) {
+                if (LOGGER.isLoggable(Level.CONFIG) ) {
+                    LOGGER.config("Chart " + chartName + " unchanged since tree " + chartTreeSha);
+                }
+                return chartFromSources(chartName, sources);
+            }
+        }
 
-                    if (gitHubContent.getName().equals("Chart.yaml")) {
-                        final String chartUrl = gitHubContent.getDownloadUrl();
-                        //add the general details to the chart
-                        try {
-                            chartDetails(repo, chartUrl, chartBuilder);
-                        } catch (RepositoryException e) {
-                            Exceptions.propagate(e);
-                        }
-                    } else if (gitHubContent.getType().equals("dir")
+        try {
+            final GitHubChartArchive.ChartSources sources = sourcesFromArchive(repo, chartName, defaultRef);
+            if (chartTreeSha != null) {
+                archiveCache.putChartSources(chartTreeSha, sources);
+                diskCache.putByTree(chartTreeSha, sources);
+            }
+            return chartFromSources(chartName, sources);
+
+        } catch (RepositoryException exception) {
+            LOGGER.log(Level.WARNING, "Chart " + chartName + " not loaded from the repository archive, "
+                + "fetching its files one by one", exception);
+        }
+
+        return chartFromContents(repo, chartName, defaultRef);
+    }
+
+    private GitHubChartArchive.ChartSources cachedSources(GitHubTreeIndex treeIndex, String chartName,
+                                                          String chartTreeSha) {
+
+        GitHubChartArchive.ChartSources sources = archiveCache.getChartSources(chartTreeSha);
+        if (sources == null) {
+            sources = diskCache.getByTree(chartTreeSha);
+        }
+        if (sources == null) {
+            sources = diskCache.getByBlobs(treeIndex.getChartDetailsSha(chartName),
+                treeIndex.getManifestShas(chartName) );
+        }
+        if (sources != null) {
+            archiveCache.putChartSources(chartTreeSha, sources);
+        }
+        return sources;
+    }
+
+    private GitHubChartArchive.ChartSources sourcesFromArchive(ChartRepo repo, String chartName, String ref)
+            throws RepositoryException {
+
+        final GitHubApiArchiveService client = getClient(repo, repo.getUrl().toString(), GitHubApiArchiveService
+            .class, GitHubApiResponseContentType.RAW_STRING);
+
+        final String commitSha;
+        try {
+            commitSha = client.commitSha(repo.getUrl().ownerInCaseOfRepoUrl(), repo.getUrl().repoInCaseOfRepoUrl(),
+                    ref)
+                .toBlocking()
+                .single();
+
+        } catch (RuntimeException exception) {
+            throw new RepositoryException("Error resolving the commit of ref: " + ref, exception);
+        }
+
+        GitHubChartArchive.ChartSources sources = diskCache.getPinned(repo, commitSha, chartName);
+        if (sources != null) {
+            return sources;
+        }
+
+        final GitHubChartArchive archive = archiveCache.getArchive(repo, client, commitSha);
+        sources = archive.getChart(chartName);
+        if (sources == null || sources.getChartDetails() == null) {
+            throw new RepositoryException("Chart " + chartName + " not found at commit: " + commitSha);
+        }
+
+        diskCache.putPinned(repo, commitSha, chartName, sources);
+        return sources;
+    }
+
+    private Chart chartFromSources(String chartName, GitHubChartArchive.ChartSources sources)
+            throws RepositoryException {
+
+        return ManifestFactory.buildChart(chartName, sources.getChartDetails(), sources.getManifests() );
+    }
+
+    private Chart chartFromContents(final ChartRepo repo, String chartName, String defaultRef)
+            throws RepositoryException {
+
+        final GitHubApiContentsService client = getClient(repo, repo.getUrl().toString(), GitHubApiContentsService
+            .class, GitHubApiResponseContentType.JSON);
+
+        final List<ChartPiece> pieces;
+        try {
+            pieces = client.content(repo.getUrl().ownerInCaseOfRepoUrl(), repo.getUrl().repoInCaseOfRepoUrl(),
+                        chartName, defaultRef)
+                .subscribeOn(FETCH_SCHEDULER)
+                .flatMap(new Func1<List<GitHubContent>, Observable<GitHubContent>>() {
+                    @Override
+                    public Observable<GitHubContent> call(List<GitHubContent> gitHubContents) {
+                        return Observable.from(gitHubContents);
+                    }
+                })
+                .flatMap(new Func1<GitHubContent, Observable<ChartPiece>>() {
+                    @Override
+                    public Observable<ChartPiece> call(GitHubContent gitHubContent) {
+                        if (gitHubContent.getName().equals("Chart.yaml")) {
+                            //add the general details to the chart
+                            return chartDetails(repo, gitHubContent.getDownloadUrl() );
+
+                        } else if (gitHubContent.getType().equals("dir")
                                 && gitHubContent.getName().equals("manifests")) {
                             //retrieve the contained yaml files
-
-                        try {
-                            manifests(repo, gitHubContent.getUrl(), chartBuilder);
-                        } catch (RepositoryException e) {
-                            Exceptions.propagate(e);
+                            return manifests(repo, gitHubContent.getUrl() );
                         }
+                        return Observable.empty();
                     }
+                })
+                .toList()
+                .toBlocking()
+                .single();
+
+        } catch (RuntimeException exception) {
+            throw new RepositoryException("Error listing the contents of chart: " + chartName, exception);
+        }
+
+        final Chart.ChartBuilder chartBuilder = new Chart.ChartBuilder();
+        for (ChartPiece piece : pieces) {
+            if (piece.error != null) {
+                chartBuilder.addError(piece.error);
+            } else if (piece.details != null) {
+                chartBuilder.chartDetails(piece.details);
+            } else {
+                try {
+                    ManifestFactory.addManifest(piece.manifest, chartBuilder);
+                } catch (RepositoryException e) {
+                    chartBuilder.addError(e);
                 }
-            });
+            }
+        }
 
         return chartBuilder.build();
-
     }
 
-    private void manifests(final ChartRepo repo, String manifestsListUrl, final Chart.ChartBuilder chartBuilder) throws
-        RepositoryException {
+    private Observable<ChartPiece> manifests(final ChartRepo repo, final String manifestsListUrl) {
 
-        final GitHubApiContentsService client = getClient(repo, manifestsListUrl, GitHubApiContentsService
-            .class, GitHubApiResponseContentType.JSON);
+        final GitHubApiContentsService client;
+        try {
+            client = getClient(repo, manifestsListUrl, GitHubApiContentsService.class,
+                GitHubApiResponseContentType.JSON);
+        } catch (RepositoryException e) {
+            return Observable.just(ChartPiece.error(e) );
+        }
 
-        client.content(manifestsListUrl)
-            .flatMap(new Func1<List<GitHubContent>, Observable<GitHubContent>>() {
+        return client.content(manifestsListUrl)
+            .subscribeOn(FETCH_SCHEDULER)
+            .flatMap(new Func1<List<GitHubContent>, Observable<ChartPiece>>() {
                 @Override
-                public Observable<GitHubContent> call(List<GitHubContent> gitHubContents) {
-                    return Observable.from(gitHubContents);
+                public Observable<ChartPiece> call(List<GitHubContent> gitHubContents) {
+                    return manifestsInOrder(repo, gitHubContents);
                 }
             })
-            .subscribe(new Action1<GitHubContent>() {
+            .onErrorReturn(errorPiece("Error listing chart manifests: " + manifestsListUrl) );
+    }
+
+    /**
+     * Downloads the given manifests concurrently, bounded by the fetch pool, but emits them in the order they are
+     * listed whatever the order the downloads complete in, so the resources of the chart keep the manifests order.
+     */
+    private Observable<ChartPiece> manifestsInOrder(ChartRepo repo, List<GitHubContent> manifests) {
+        if (manifests.isEmpty() ) {
+            return Observable.empty();
+        }
+
+        final List<Observable<ChartPiece>> downloads = new ArrayList<>(manifests.size() );
+        for (GitHubContent manifest : manifests) {
+            downloads.add(manifest(repo, manifest.getDownloadUrl() ) );
+        }
+
+        return Observable.zip(downloads, new FuncN<List<ChartPiece>>() {
+            @Override
+            public List<ChartPiece> call(Object... downloaded) {
+                final List<ChartPiece> pieces = new ArrayList<>(downloaded.length);
+                for (Object piece : downloaded) {
+                    pieces.add( (ChartPiece) piece);
+                }
+                return pieces;
+            }
+        })
+            .flatMapIterable(new Func1<List<ChartPiece>, Iterable<ChartPiece>>() {
                 @Override
-                public void call(GitHubContent gitHubContent) {
-                    final String manifestUrl = gitHubContent.getDownloadUrl();
-                    try {
-                        manifest(repo, manifestUrl, chartBuilder);
-                    } catch (RepositoryException e) {
-                        Exceptions.propagate(e);
-                    }
+                public Iterable<ChartPiece> call(List<ChartPiece> pieces) {
+                    return pieces;
                 }
             });
-
-
     }
 
-    private void manifest(ChartRepo repo, String manifestContentUrl, final Chart.ChartBuilder chartBuilder)
-        throws RepositoryException {
+    private Observable<ChartPiece> manifest(ChartRepo repo, String manifestContentUrl) {
 
-        final GitHubApiRawContentDownloadService client = getClient(repo, manifestContentUrl,
-            GitHubApiRawContentDownloadService.class, GitHubApiResponseContentType.RAW_STRING);
+        final GitHubApiRawContentDownloadService client;
+        try {
+            client = getClient(repo, manifestContentUrl, GitHubApiRawContentDownloadService.class,
+                GitHubApiResponseContentType.RAW_STRING);
+        } catch (RepositoryException e) {
+            return Observable.just(ChartPiece.error(e) );
+        }
 
-        client.rawContent(manifestContentUrl).subscribe(
-            new Action1<String>() {
+        return client.rawContent(manifestContentUrl)
+            .subscribeOn(FETCH_SCHEDULER)
+            .map(new Func1<String, ChartPiece>() {
                 @Override
-                public void call(String yaml) {
-                    try {
-                        ManifestFactory.addManifest(yaml, chartBuilder);
-                    } catch (RepositoryException e) {
-                        chartBuilder.addError(e);
-                    }
+                public ChartPiece call(String yaml) {
+                    return ChartPiece.manifest(yaml);
                 }
-            }
-        );
-
+            })
+            .onErrorReturn(errorPiece("Error downloading chart manifest: " + manifestContentUrl) );
     }
 
-    private <T> void chartDetails(ChartRepo repo, String chartDetailsContentUrl, final Chart.ChartBuilder chartBuilder)
-        throws RepositoryException {
-
+    private Observable<ChartPiece> chartDetails(ChartRepo repo, String chartDetailsContentUrl) {
 
-        final GitHubApiRawContentDownloadService client = getClient(repo, chartDetailsContentUrl,
-            GitHubApiRawContentDownloadService.class, GitHubApiResponseContentType.RAW_STRING);
+        final GitHubApiRawContentDownloadService client;
+        try {
+            client = getClient(repo, chartDetailsContentUrl, GitHubApiRawContentDownloadService.class,
+                GitHubApiResponseContentType.RAW_STRING);
+        } catch (RepositoryException e) {
+            return Observable.just(ChartPiece.error(e) );
+        }
 
-        final Yaml yaml = new Yaml();
-        client.rawContent(chartDetailsContentUrl)
-            .map(new Func1<String, ChartDetails>() {
+        return client.rawContent(chartDetailsContentUrl)
+            .subscribeOn(FETCH_SCHEDULER)
+            .map(new Func1<String, ChartPiece>() {
                 @Override
-                public ChartDetails call(String yamlString) {
-                    final ChartDetails chartDetails = yaml.loadAs(yamlString, ChartDetails.class);
-                    return chartDetails;
+                public ChartPiece call(String yamlString) {
+                    return ChartPiece.details(new Yaml().loadAs(yamlString, ChartDetails.class) );
                 }
-            }).subscribe(new Action1<ChartDetails>() {
-                @Override
-                public void call(ChartDetails details) {
-                    chartBuilder.chartDetails(details);
-                }
-            });
+            })
+            .onErrorReturn(errorPiece("Error downloading chart details: " + chartDetailsContentUrl) );
+    }
+
+    private static Func1<Throwable, ChartPiece> errorPiece(final String message) {
+        return new Func1<Throwable, ChartPiece>() {
+            @Override
+            public ChartPiece call(Throwable throwable) {
+                return ChartPiece.error(new RepositoryException(message, throwable) );
+            }
+        };
+    }
 
+    /**
+     * Result of one of the concurrent fetches needed to load a chart: its details, the content of one of its
+     * manifests or the error that prevented the fetch.
+     */
+    private static class ChartPiece {
+
+        private ChartDetails details;
+        private String manifest;
+        private RepositoryException error;
+
+        static ChartPiece details(ChartDetails details) {
+            final ChartPiece piece = new ChartPiece();
+            piece.details = details;
+            return piece;
+        }
+
+        static ChartPiece manifest(String manifest) {
+            final ChartPiece piece = new ChartPiece();
+            piece.manifest = manifest;
+            return piece;
+        }
+
+        static ChartPiece error(RepositoryException error) {
+            final ChartPiece piece = new ChartPiece();
+            piece.error = error;
+            return piece;
+        }
     }
 
     private <T> T getClient(ChartRepo repo, String url, Class<T> serviceClass, GitHubApiResponseContentType resType)
@@ -216,4 +657,12 @@ public class ChartRepositoryApiImpl implements ChartRepository {
     public void setClientsFactory(GitHubClientsFactory clientsFactory) {
         this.clientsFactory = clientsFactory;
     }
+
+    public void setHelmChartRepository(HelmChartRepository helmChartRepository) {
+        this.helmChartRepository = helmChartRepository;
+    }
+
+    public void setLocalChartRepository(LocalChartRepository localChartRepository) {
+        this.localChartRepository = localChartRepository;
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per repository catalog of chart names used by the build step forms. Only the first request of a repository waits
+ * for the chart list; once loaded, the list is served from memory and, when older than the time to live, returned
+ * as is while a background task refreshes it (stale-while-revalidate).
+ */
+@Singleton
+public class ChartCatalogCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartCatalogCache.class.getName() );
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final int MAX_CONCURRENT_REFRESHES = 2;
+
+    private final long ttlMillis;
+    private final ExecutorService refreshExecutor;
+
+    private final ConcurrentMap<String, CatalogEntry> entries = new ConcurrentHashMap<>();
+
+    public ChartCatalogCache() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    ChartCatalogCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.refreshExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_REFRESHES, new ThreadFactoryBuilder()
+                .setNameFormat("ChartCatalogRefresher-%d")
+                .setDaemon(true)
+                .build() );
+    }
+
+    public List<String> getChartNames(ChartRepository chartRepository, ChartRepo repo) throws RepositoryException {
+        final CatalogEntry entry = getEntry(repo);
+        final List<String> chartNames = entry.chartNames;
+
+        if (chartNames == null) {
+            return load(chartRepository, repo, entry);
+        }
+
+        if (entry.isStale() ) {
+            scheduleRefresh(chartRepository, repo, entry);
+        }
+        return chartNames;
+    }
+
+    /**
+     * Refreshes the catalog of the given repository in the background, regardless of its age.
+     */
+    public void prefetch(ChartRepository chartRepository, ChartRepo repo) {
+        scheduleRefresh(chartRepository, repo, getEntry(repo) );
+    }
+
+    public CatalogEntry getCatalogEntry(ChartRepo repo) {
+        return entries.get(getKey(repo) );
+    }
+
+    public void invalidate(ChartRepo repo) {
+        entries.remove(getKey(repo) );
+    }
+
+    private List<String> load(ChartRepository chartRepository, ChartRepo repo, CatalogEntry entry)
+            throws RepositoryException {
+
+        try {
+            final List<String> chartNames = Collections.unmodifiableList(chartRepository.chartNames(repo) );
+            entry.loaded(chartNames);
+            return chartNames;
+
+        } catch (RepositoryException | RuntimeException exception) {
+            entry.failed(exception);
+            throw exception;
+        }
+    }
+
+    private void scheduleRefresh(final ChartRepository chartRepository, final ChartRepo repo,
+                                 final CatalogEntry entry) {
+
+        if (!entry.refreshing.compareAndSet(false, true) ) {
+            return;
+        }
+
+        refreshExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    load(chartRepository, repo, entry);
+                    if (LOGGER.isLoggable(Level.CONFIG) ) {
+                        LOGGER.config("Chart catalog refreshed for: " + repo.getUrl() + " - "
+                                + entry.chartNames.size() + " charts");
+                    }
+                } catch (RepositoryException | RuntimeException exception) {
+                    LOGGER.warning("Error refreshing chart catalog of: " + repo.getUrl() + " - "
+                            + exception.getMessage() );
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    private CatalogEntry getEntry(ChartRepo repo) {
+        final String key = getKey(repo);
+        CatalogEntry entry = entries.get(key);
+        if (entry == null) {
+            final CatalogEntry newEntry = new CatalogEntry(ttlMillis);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    private static String getKey(ChartRepo repo) {
+        return repo.getType() + ":" + repo.getUrl();
+    }
+
+    public static class CatalogEntry {
+
+        private final long ttlMillis;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private volatile List<String> chartNames;
+        private volatile long loadedAt;
+        private volatile String lastError;
+
+        CatalogEntry(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+        }
+
+        private void loaded(List<String> chartNames) {
+            this.chartNames = chartNames;
+            this.loadedAt = System.currentTimeMillis();
+            this.lastError = null;
+        }
+
+        private void failed(Exception exception) {
+            this.lastError = exception.getMessage();
+        }
+
+        public boolean isLoaded() {
+            return chartNames != null;
+        }
+
+        public long getAgeMillis() {
+            return (isLoaded() ) ? System.currentTimeMillis() - loadedAt : -1;
+        }
+
+        public boolean isStale() {
+            return !isLoaded() || getAgeMillis() >= ttlMillis;
+        }
+
+        public boolean isRefreshing() {
+            return refreshing.get();
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            return "CatalogEntry [charts=" + ( (chartNames != null) ? chartNames.size() : 0) + ", ageMillis="
+                    + getAgeMillis() + ", refreshing=" + isRefreshing() + ", lastError=" + lastError + "]";
+        }
+    }
+}
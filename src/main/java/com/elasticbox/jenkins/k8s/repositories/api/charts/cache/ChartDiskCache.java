@@ -0,0 +1,447 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.cache;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive.ChartSources;
+import jenkins.model.Jenkins;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Content addressed chart cache stored in JENKINS_HOME. Chart files are stored once, keyed by their Git blob SHA, and
+ * an index persisted next to them maps every chart tree, every chart of a pinned commit and every chart package
+ * digest to its files. The blobs least recently used are evicted, together with the index entries pointing to them,
+ * when the cache grows over its maximum size, and the index keeps the {@link #MAX_INDEX_ENTRIES} entries used most
+ * recently. The index is persisted as a journal that every change is appended to, and rewritten only when it has
+ * grown much bigger than the index. Nothing is read from disk until the cache is first used. This cache is best
+ * effort: any I/O error is logged and handled as a cache miss.
+ */
+public final class ChartDiskCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartDiskCache.class.getName() );
+
+    public static final long MAX_CACHE_SIZE_BYTES = 100L * 1024 * 1024;
+    public static final int MAX_INDEX_ENTRIES = 10000;
+    public static final String CACHE_DIRECTORY = "kubernetes-ci-plugin" + File.separator + "charts";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-f]{40}");
+
+    private static final String INDEX_FILE = "index.journal";
+    private static final String LEGACY_INDEX_FILE = "index.properties";
+    private static final String BLOBS_FOLDER = "blobs";
+    private static final String TREE_PREFIX = "tree.";
+    private static final String PIN_PREFIX = "pin.";
+    private static final String DIGEST_PREFIX = "digest.";
+    private static final String SEPARATOR = ",";
+    private static final char ASSIGNMENT = '=';
+
+    // Changes appended to the journal before it is rewritten, on top of twice the entries of the index
+    private static final int MIN_COMPACTION_LINES = 1000;
+
+    private static volatile ChartDiskCache instance;
+
+    private final File directory;
+    private final File blobsDirectory;
+    private final long maxSizeBytes;
+    private final int maxIndexEntries;
+
+    // Blob SHAs of every key, least recently used first
+    private final LinkedHashMap<String, String> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private int journalLines;
+    private boolean loaded;
+
+    ChartDiskCache(File directory, long maxSizeBytes) {
+        this(directory, maxSizeBytes, MAX_INDEX_ENTRIES);
+    }
+
+    ChartDiskCache(File directory, long maxSizeBytes, int maxIndexEntries) {
+        this.directory = directory;
+        this.blobsDirectory = new File(directory, BLOBS_FOLDER);
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxIndexEntries = maxIndexEntries;
+    }
+
+    public static ChartDiskCache getInstance() {
+        if (instance == null) {
+            synchronized (ChartDiskCache.class) {
+                if (instance == null) {
+                    instance = new ChartDiskCache(getCacheDirectory(), MAX_CACHE_SIZE_BYTES);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static File getCacheDirectory() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        final File baseDirectory = (jenkins != null)
+                ? new File(jenkins.getRootDir(), "caches")
+                : new File(System.getProperty("java.io.tmpdir") );
+
+        return new File(baseDirectory, CACHE_DIRECTORY);
+    }
+
+    public static boolean isCommitSha(String ref) {
+        return ref != null && COMMIT_SHA.matcher(ref).matches();
+    }
+
+    public static String blobSha(String content) {
+        final byte[] bytes = content.getBytes(UTF_8);
+        final byte[] header = ("blob " + bytes.length + "\0").getBytes(UTF_8);
+        final byte[] object = Arrays.copyOf(header, header.length + bytes.length);
+        System.arraycopy(bytes, 0, object, header.length, bytes.length);
+        return DigestUtils.shaHex(object);
+    }
+
+    public synchronized ChartSources getByTree(String chartTreeSha) {
+        load();
+        return get(TREE_PREFIX + chartTreeSha);
+    }
+
+    public synchronized void putByTree(String chartTreeSha, ChartSources sources) {
+        load();
+        put(TREE_PREFIX + chartTreeSha, sources);
+    }
+
+    public synchronized ChartSources getPinned(ChartRepo repo, String commitSha, String chartName) {
+        load();
+        return get(pinKey(repo, commitSha, chartName) );
+    }
+
+    public synchronized void putPinned(ChartRepo repo, String commitSha, String chartName, ChartSources sources) {
+        load();
+        put(pinKey(repo, commitSha, chartName), sources);
+    }
+
+    public synchronized ChartSources getByDigest(String packageDigest) {
+        load();
+        return get(DIGEST_PREFIX + packageDigest);
+    }
+
+    public synchronized void putByDigest(String packageDigest, ChartSources sources) {
+        load();
+        put(DIGEST_PREFIX + packageDigest, sources);
+    }
+
+    /**
+     * Assembles the sources of a chart from the blobs already stored, no matter which chart or ref stored them.
+     */
+    public synchronized ChartSources getByBlobs(String chartDetailsSha, List<String> manifestShas) {
+        load();
+        if (chartDetailsSha == null) {
+            return null;
+        }
+        final List<String> shas = new ArrayList<>();
+        shas.add(chartDetailsSha);
+        shas.addAll(manifestShas);
+        return read(shas);
+    }
+
+    public synchronized long getSizeBytes() {
+        load();
+        return sizeBytes;
+    }
+
+    private static String pinKey(ChartRepo repo, String commitSha, String chartName) {
+        return PIN_PREFIX + repo.getUrl() + "@" + commitSha + "/" + chartName;
+    }
+
+    private ChartSources get(String key) {
+        final String shas = index.get(key);
+        if (shas == null) {
+            return null;
+        }
+
+        final ChartSources sources = read(Arrays.asList(StringUtils.split(shas, SEPARATOR) ) );
+        if (sources == null) {
+            index.remove(key);
+            append(key, null);
+        }
+        return sources;
+    }
+
+    private ChartSources read(List<String> shas) {
+        final List<String> contents = new ArrayList<>(shas.size() );
+        try {
+            for (String sha : shas) {
+                final File blob = blobFile(sha);
+                if (!blob.isFile() ) {
+                    return null;
+                }
+                contents.add(FileUtils.readFileToString(blob, UTF_8.name() ) );
+                blob.setLastModified(System.currentTimeMillis() );
+            }
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error reading the chart cache at: " + blobsDirectory, exception);
+            return null;
+        }
+
+        return new ChartSources(contents.get(0), contents.subList(1, contents.size() ) );
+    }
+
+    private void put(String key, ChartSources sources) {
+        final List<String> shas = new ArrayList<>();
+        try {
+            shas.add(write(sources.getChartDetails() ) );
+            for (String manifest : sources.getManifests() ) {
+                shas.add(write(manifest) );
+            }
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error writing the chart cache at: " + blobsDirectory, exception);
+            return;
+        }
+
+        final String value = StringUtils.join(shas, SEPARATOR);
+        index.put(key, value);
+        append(key, value);
+
+        for (Iterator<String> keys = index.keySet().iterator(); index.size() > maxIndexEntries; ) {
+            final String leastRecentlyUsed = keys.next();
+            keys.remove();
+            append(leastRecentlyUsed, null);
+        }
+
+        evictIfNeeded();
+    }
+
+    private String write(String content) throws IOException {
+        final String sha = blobSha(content);
+        final File blob = blobFile(sha);
+        if (blob.isFile() ) {
+            blob.setLastModified(System.currentTimeMillis() );
+            return sha;
+        }
+
+        final File temporary = new File(blob.getParentFile(), sha + ".tmp");
+        FileUtils.writeStringToFile(temporary, content, UTF_8.name() );
+        if (!temporary.renameTo(blob) ) {
+            FileUtils.deleteQuietly(temporary);
+            throw new IOException("Unable to store chart blob: " + blob);
+        }
+        sizeBytes += blob.length();
+        return sha;
+    }
+
+    private File blobFile(String sha) {
+        return new File(new File(blobsDirectory, sha.substring(0, 2) ), sha);
+    }
+
+    private void evictIfNeeded() {
+        if (sizeBytes <= maxSizeBytes) {
+            return;
+        }
+
+        final List<File> blobs = listBlobs();
+        final File[] leastRecentlyUsedFirst = blobs.toArray(new File[blobs.size()] );
+        Arrays.sort(leastRecentlyUsedFirst, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.compare(first.lastModified(), second.lastModified() );
+            }
+        });
+
+        final long target = maxSizeBytes * 9 / 10;
+        final Set<String> evicted = new HashSet<>();
+        for (File blob : leastRecentlyUsedFirst) {
+            if (sizeBytes <= target) {
+                break;
+            }
+            final long length = blob.length();
+            if (blob.delete() ) {
+                sizeBytes -= length;
+                evicted.add(blob.getName() );
+            }
+        }
+
+        // The entries pointing to an evicted blob cannot be read anymore
+        int removed = 0;
+        for (Iterator<Map.Entry<String, String>> entries = index.entrySet().iterator(); entries.hasNext(); ) {
+            final Map.Entry<String, String> entry = entries.next();
+            for (String sha : StringUtils.split(entry.getValue(), SEPARATOR) ) {
+                if (evicted.contains(sha) ) {
+                    entries.remove();
+                    removed++;
+                    break;
+                }
+            }
+        }
+        if (removed > 0) {
+            saveIndex();
+        }
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Chart cache evicted " + evicted.size() + " blobs and " + removed + " index entries, size "
+                + "now " + sizeBytes + " bytes");
+        }
+    }
+
+    private List<File> listBlobs() {
+        final List<File> blobs = new ArrayList<>();
+        final File[] folders = blobsDirectory.listFiles();
+        if (folders != null) {
+            for (File folder : folders) {
+                final File[] files = folder.listFiles();
+                if (files != null) {
+                    blobs.addAll(Arrays.asList(files) );
+                }
+            }
+        }
+        return blobs;
+    }
+
+    /**
+     * Reads the index and adds up the size of the blobs on first use, so creating the cache does not touch the disk.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        loadLegacyIndex();
+
+        final File indexFile = new File(directory, INDEX_FILE);
+        if (indexFile.isFile() ) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                    UTF_8) ) ) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine() ) {
+                    journalLines++;
+                    // The SHAs never contain the assignment, the keys can
+                    final int assignment = line.lastIndexOf(ASSIGNMENT);
+                    if (assignment <= 0) {
+                        continue;
+                    }
+                    final String key = line.substring(0, assignment);
+                    final String value = line.substring(assignment + 1);
+                    if (value.isEmpty() ) {
+                        index.remove(key);
+                    } else {
+                        index.put(key, value);
+                    }
+                }
+            } catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Error loading the chart cache index: " + indexFile, exception);
+                index.clear();
+            }
+        }
+
+        for (File blob : listBlobs() ) {
+            sizeBytes += blob.length();
+        }
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Chart cache at: " + directory + " with " + index.size() + " entries and " + sizeBytes
+                + " bytes");
+        }
+    }
+
+    /**
+     * Moves the entries of the index written as a whole by earlier versions into the journal.
+     */
+    private void loadLegacyIndex() {
+        final File legacyIndexFile = new File(directory, LEGACY_INDEX_FILE);
+        if (!legacyIndexFile.isFile() ) {
+            return;
+        }
+
+        final Properties legacyIndex = new Properties();
+        try (InputStream input = new FileInputStream(legacyIndexFile) ) {
+            legacyIndex.load(input);
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error loading the chart cache index: " + legacyIndexFile, exception);
+        }
+
+        for (String key : legacyIndex.stringPropertyNames() ) {
+            index.put(key, legacyIndex.getProperty(key) );
+        }
+        saveIndex();
+        FileUtils.deleteQuietly(legacyIndexFile);
+
+        // Read back from the journal
+        index.clear();
+        journalLines = 0;
+    }
+
+    /**
+     * Appends a change of the index to its journal, a null value for a removed key, and rewrites the journal once it
+     * has too many lines for the entries of the index.
+     */
+    private void append(String key, String value) {
+        if (journalLines > 2 * index.size() + MIN_COMPACTION_LINES) {
+            saveIndex();
+            return;
+        }
+
+        final File indexFile = new File(directory, INDEX_FILE);
+        try {
+            FileUtils.forceMkdir(directory);
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile, true), UTF_8) ) {
+                writer.write(key + ASSIGNMENT + ( (value != null) ? value : "") + "\n");
+            }
+            journalLines++;
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error saving the chart cache index: " + indexFile, exception);
+        }
+    }
+
+    /**
+     * Rewrites the journal with one line per entry of the index.
+     */
+    private void saveIndex() {
+        final File indexFile = new File(directory, INDEX_FILE);
+        final File temporary = new File(directory, INDEX_FILE + ".tmp");
+        try {
+            FileUtils.forceMkdir(directory);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary),
+                    UTF_8) ) ) {
+                for (Map.Entry<String, String> entry : index.entrySet() ) {
+                    writer.write(entry.getKey() + ASSIGNMENT + entry.getValue() + "\n");
+                }
+            }
+            if (indexFile.exists() && !indexFile.delete() ) {
+                throw new IOException("Unable to delete: " + indexFile);
+            }
+            if (!temporary.renameTo(indexFile) ) {
+                throw new IOException("Unable to replace: " + indexFile);
+            }
+            journalLines = index.size();
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Error saving the chart cache index: " + indexFile, exception);
+        }
+    }
+}
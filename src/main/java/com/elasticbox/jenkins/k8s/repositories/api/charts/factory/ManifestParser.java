@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.factory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.Service;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.nodes.Tag;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses chart manifests without any Kubernetes client. Every YAML document of the stream, separated by "---", is
+ * parsed only once: its kind is read from the resulting tree, which is then bound to the matching Kubernetes model.
+ * Documents of kind List are expanded into their items. The parser keeps no state, so it can be used concurrently.
+ * Only standard YAML types are built, charts cannot make the parser create arbitrary classes, and timestamps are
+ * kept as the strings they are written with, as Kubernetes expects them in labels and annotations.
+ */
+public final class ManifestParser {
+
+    public static final String LIST_KIND = "List";
+
+    private static final String KIND = "kind";
+    private static final String ITEMS = "items";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ThreadLocal<Yaml> YAML = new ThreadLocal<Yaml>() {
+        @Override
+        protected Yaml initialValue() {
+            return new Yaml(new ManifestConstructor() );
+        }
+    };
+
+    private ManifestParser() {
+    }
+
+    /**
+     * Adds every supported resource of the given manifest stream to the chart. Resources of a kind not supported
+     * are skipped and reported once the whole stream has been parsed.
+     */
+    public static void addManifests(InputStream manifests, Chart.ChartBuilder chartBuilder)
+            throws RepositoryException {
+
+        final List<String> notSupportedKinds = new ArrayList<>();
+
+        final Reader reader = new InputStreamReader(manifests, UTF_8);
+        try {
+            for (Object document : YAML.get().loadAll(reader) ) {
+                addDocument(document, chartBuilder, notSupportedKinds);
+            }
+        } catch (YAMLException | IllegalArgumentException exception) {
+            throw new RepositoryException("Error parsing manifest", exception);
+        }
+
+        if (!notSupportedKinds.isEmpty() ) {
+            throw new RepositoryException("Manifest kind: " + notSupportedKinds.get(0) + " is not supported");
+        }
+    }
+
+    private static void addDocument(Object document, Chart.ChartBuilder chartBuilder, List<String> notSupportedKinds) {
+
+        if (!(document instanceof Map) ) {
+            return;
+        }
+
+        final Map<?, ?> resource = (Map<?, ?>) document;
+        final Object kind = resource.get(KIND);
+
+        if (LIST_KIND.equals(kind) ) {
+            final Object items = resource.get(ITEMS);
+            if (items instanceof List) {
+                for (Object item : (List<?>) items) {
+                    addDocument(item, chartBuilder, notSupportedKinds);
+                }
+            }
+            return;
+        }
+
+        final ManifestType type = ManifestType.findByType((kind != null) ? kind.toString() : null);
+        switch (type) {
+
+            case POD:
+                chartBuilder.addPod(MAPPER.convertValue(resource, Pod.class) );
+                return;
+
+            case REPLICATION_CONTROLLER:
+                chartBuilder.addReplicationController(MAPPER.convertValue(resource, ReplicationController.class) );
+                return;
+
+            case SERVICE:
+                chartBuilder.addService(MAPPER.convertValue(resource, Service.class) );
+                return;
+
+            default:
+                notSupportedKinds.add(String.valueOf(kind) );
+        }
+    }
+
+    private static class ManifestConstructor extends SafeConstructor {
+
+        ManifestConstructor() {
+            // Otherwise a date would be bound to the string fields of the model as its epoch millis
+            this.yamlConstructors.put(Tag.TIMESTAMP, new ConstructYamlStr() );
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import okhttp3.ResponseBody;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+import retrofit2.http.Streaming;
+import rx.Observable;
+
+public interface GitHubApiArchiveService {
+
+    @Headers("Accept: application/vnd.github.VERSION.sha")
+    @GET("/repos/{ownerInCaseOfRepoUrl}/{repoInCaseOfRepoUrl}/commits/{ref}")
+    Observable<String> commitSha(@Path("ownerInCaseOfRepoUrl") String owner,
+                                 @Path("repoInCaseOfRepoUrl") String repo,
+                                 @Path("ref") String ref);
+
+    @Streaming
+    @GET("/repos/{ownerInCaseOfRepoUrl}/{repoInCaseOfRepoUrl}/tarball/{ref}")
+    Observable<ResponseBody> tarball(@Path("ownerInCaseOfRepoUrl") String owner,
+                                     @Path("repoInCaseOfRepoUrl") String repo,
+                                     @Path("ref") String ref);
+
+}
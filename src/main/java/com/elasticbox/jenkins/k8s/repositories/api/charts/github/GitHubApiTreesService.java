@@ -0,0 +1,26 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import rx.Observable;
+
+public interface GitHubApiTreesService {
+
+    int RECURSIVE = 1;
+
+    @GET("/repos/{ownerInCaseOfRepoUrl}/{repoInCaseOfRepoUrl}/git/trees/{ref}")
+    Observable<GitHubTree> tree(@Path("ownerInCaseOfRepoUrl") String owner,
+                                @Path("repoInCaseOfRepoUrl") String repo,
+                                @Path("ref") String ref,
+                                @Query("recursive") int recursive);
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Charts of a GitHub repository at a given commit, extracted from the repository tarball. Only the Chart.yaml file
+ * and the manifests of every chart are kept, the rest of the archive is skipped while it is being streamed.
+ */
+public class GitHubChartArchive {
+
+    public static final String CHART_DETAILS_FILE = "Chart.yaml";
+    public static final String MANIFESTS_FOLDER = "manifests";
+
+    private final String commitSha;
+    private final Map<String, ChartSources> charts;
+
+    private GitHubChartArchive(String commitSha, Map<String, ChartSources> charts) {
+        this.commitSha = commitSha;
+        this.charts = Collections.unmodifiableMap(charts);
+    }
+
+    public String getCommitSha() {
+        return commitSha;
+    }
+
+    public ChartSources getChart(String chartName) {
+        return charts.get(chartName);
+    }
+
+    public int size() {
+        return charts.size();
+    }
+
+    /**
+     * Number of characters of the sources of every chart of the archive, an estimate of the memory it takes.
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (ChartSources sources : charts.values() ) {
+            weight += sources.getWeight();
+        }
+        return weight;
+    }
+
+    /**
+     * Reads a gzipped tarball as returned by the GitHub API, whose entries are all nested into a single root folder
+     * named after the repository and the commit.
+     */
+    public static GitHubChartArchive read(String commitSha, InputStream tarball) throws IOException {
+
+        final Map<String, ChartSources> charts = new HashMap<>();
+
+        try (TarArchiveInputStream tarStream = new TarArchiveInputStream(new GZIPInputStream(tarball) ) ) {
+            TarArchiveEntry entry;
+            while ((entry = tarStream.getNextTarEntry() ) != null) {
+                if (!entry.isFile() ) {
+                    continue;
+                }
+
+                final String[] path = relativePath(entry.getName() );
+                if (path.length == 2 && path[1].equals(CHART_DETAILS_FILE) ) {
+                    getOrCreate(charts, path[0]).chartDetails = IOUtils.toString(tarStream, "UTF-8");
+
+                } else if (path.length == 3 && path[1].equals(MANIFESTS_FOLDER) ) {
+                    getOrCreate(charts, path[0]).manifests.add(IOUtils.toString(tarStream, "UTF-8") );
+                }
+            }
+        }
+
+        return new GitHubChartArchive(commitSha, charts);
+    }
+
+    private static String[] relativePath(String entryName) {
+        final int rootFolderEnd = entryName.indexOf('/');
+        if (rootFolderEnd < 0) {
+            return new String[0];
+        }
+        return entryName.substring(rootFolderEnd + 1).split("/");
+    }
+
+    private static ChartSources getOrCreate(Map<String, ChartSources> charts, String chartName) {
+        ChartSources sources = charts.get(chartName);
+        if (sources == null) {
+            sources = new ChartSources();
+            charts.put(chartName, sources);
+        }
+        return sources;
+    }
+
+    public static class ChartSources {
+
+        private String chartDetails;
+        private final List<String> manifests = new ArrayList<>();
+
+        ChartSources() {
+        }
+
+        public ChartSources(String chartDetails, List<String> manifests) {
+            this.chartDetails = chartDetails;
+            this.manifests.addAll(manifests);
+        }
+
+        public String getChartDetails() {
+            return chartDetails;
+        }
+
+        public List<String> getManifests() {
+            return Collections.unmodifiableList(manifests);
+        }
+
+        /**
+         * Number of characters of the details and the manifests of the chart.
+         */
+        public long getWeight() {
+            long weight = (chartDetails != null) ? chartDetails.length() : 0;
+            for (String manifest : manifests) {
+                weight += manifest.length();
+            }
+            return weight;
+        }
+    }
+}
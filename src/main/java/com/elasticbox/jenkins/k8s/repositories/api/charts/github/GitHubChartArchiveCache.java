@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chart archives already downloaded, keyed by repository and commit SHA. A commit never changes, so an archive can be
+ * reused by every chart and build that resolves its ref to the same commit. The sources of every chart are also kept
+ * by the SHA of the chart folder tree, which allows reusing them across commits that did not modify the chart.
+ *
+ * <p>An archive holds the sources of every chart of the repository, so both caches are bounded by the characters of
+ * the sources they hold instead of by their number of entries: a few archives of a big repository cannot take more
+ * memory than many archives of a small one.</p>
+ */
+public class GitHubChartArchiveCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubChartArchiveCache.class.getName() );
+
+    public static final long MAX_ARCHIVES_WEIGHT = 8L * 1024 * 1024;
+    public static final long MAX_CHARTS_WEIGHT = 4L * 1024 * 1024;
+
+    private final Cache<String, GitHubChartArchive> archives = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_ARCHIVES_WEIGHT)
+        .weigher(new Weigher<String, GitHubChartArchive>() {
+            @Override
+            public int weigh(String key, GitHubChartArchive archive) {
+                return toWeight(archive.getWeight() );
+            }
+        })
+        .build();
+
+    private final Cache<String, GitHubChartArchive.ChartSources> chartSources = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_CHARTS_WEIGHT)
+        .weigher(new Weigher<String, GitHubChartArchive.ChartSources>() {
+            @Override
+            public int weigh(String key, GitHubChartArchive.ChartSources sources) {
+                return toWeight(sources.getWeight() );
+            }
+        })
+        .build();
+
+    public GitHubChartArchive getArchive(final ChartRepo repo,
+                                         final GitHubApiArchiveService client,
+                                         final String commitSha) throws RepositoryException {
+
+        try {
+            return archives.get(repo.getUrl() + "@" + commitSha, new Callable<GitHubChartArchive>() {
+                @Override
+                public GitHubChartArchive call() throws IOException {
+                    return download(repo, client, commitSha);
+                }
+            });
+
+        } catch (ExecutionException | RuntimeException exception) {
+            throw new RepositoryException("Error downloading the archive of: " + repo.getUrl() + " at commit: "
+                + commitSha, exception);
+        }
+    }
+
+    private static GitHubChartArchive download(ChartRepo repo, GitHubApiArchiveService client, String commitSha)
+            throws IOException {
+
+        final long start = System.currentTimeMillis();
+
+        final ResponseBody tarball = client.tarball(repo.getUrl().ownerInCaseOfRepoUrl(),
+            repo.getUrl().repoInCaseOfRepoUrl(), commitSha)
+            .toBlocking()
+            .single();
+
+        try (ResponseBody body = tarball) {
+            final GitHubChartArchive archive = GitHubChartArchive.read(commitSha, body.byteStream() );
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Archive of " + repo.getUrl() + " at commit " + commitSha + " with " + archive.size()
+                    + " charts (" + archive.getWeight() + " characters) downloaded in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            }
+            return archive;
+        }
+    }
+
+    public GitHubChartArchive.ChartSources getChartSources(String chartTreeSha) {
+        return chartSources.getIfPresent(chartTreeSha);
+    }
+
+    public void putChartSources(String chartTreeSha, GitHubChartArchive.ChartSources sources) {
+        chartSources.put(chartTreeSha, sources);
+    }
+
+    private static int toWeight(long characters) {
+        return (int) Math.min(characters + 1, Integer.MAX_VALUE);
+    }
+
+    public void invalidateAll() {
+        archives.invalidateAll();
+        chartSources.invalidateAll();
+    }
+}
@@ -21,6 +21,7 @@ import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import hudson.Extension;
 import okhttp3.Authenticator;
 import okhttp3.Credentials;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -57,11 +58,14 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
         .build(new GithubClientCacheLoader());
 
     private static GitHubClientsFactoryPartBuilder [] partBuilders = new GitHubClientsFactoryPartBuilder[] {
+        new AddSharedTransport(),
         new AddBaseUrl(),
         new AddResponseConverters(),
         new AddAuthenticationTokenInterceptor(),
         new AddClientAndPasswordAuthenticationInterceptor(),
         new AddProxyConfiguration(),
+        new AddHttpCache(),
+        new AddRateLimiter(),
         new AddLoggingInterceptor()
     };
 
@@ -212,6 +216,19 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
         void buildPart(ClientsFactoryBuilderContext context);
     }
 
+    private static class AddSharedTransport implements GitHubClientsFactoryPartBuilder {
+
+        @Override
+        public void buildPart(ClientsFactoryBuilderContext context) {
+            final HttpUrl apiBaseUrl = HttpUrl.parse(context.getApiBaseUrl() );
+            final String host = (apiBaseUrl != null) ? apiBaseUrl.host() : context.getApiBaseUrl();
+            final OkHttpClient baseClient = GitHubHttpTransport.getInstance().getBaseClient(host, context.getProxy() );
+
+            // Derived clients share the connection pool, the dispatcher and the cache of the base client
+            context.setOkHttpClientBuilder(baseClient.newBuilder() );
+        }
+    }
+
     private static class AddBaseUrl implements GitHubClientsFactoryPartBuilder {
 
         @Override
@@ -266,7 +283,7 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
 
                         final String basic = TOKEN + " " + token;
 
-                        final OkHttpClient.Builder okBuilder = new OkHttpClient.Builder()
+                        context.getOkHttpClientBuilder()
                             .addInterceptor(new Interceptor() {
                                 @Override
                                 public Response intercept(Chain chain) throws IOException {
@@ -280,7 +297,6 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
                                 }
                             });
 
-                        context.setOkHttpClientBuilder(okBuilder);
                         context.setAtLeastOneAuthenticationMethodProvided(true);
                     }
                 }
@@ -296,11 +312,6 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
 
             if (context.isDebug()) {
 
-                if (context.getOkHttpClientBuilder() == null) {
-                    final OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
-                    context.setOkHttpClientBuilder(httpClient);
-                }
-
                 final OkHttpClient.Builder okHttpClientBuilder = context.getOkHttpClientBuilder();
 
                 HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
@@ -316,18 +327,8 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
 
         @Override
         public void buildPart(ClientsFactoryBuilderContext context) {
-            final Proxy proxy = context.getProxy();
-            if (proxy == null) {
-                return;
-            }
-
-            if (context.getOkHttpClientBuilder() == null) {
-                final OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
-                context.setOkHttpClientBuilder(httpClient);
-            }
-
+            // The proxy itself is part of the shared transport, only its credentials are specific to the variant
             final OkHttpClient.Builder okHttpClientBuilder = context.getOkHttpClientBuilder();
-            okHttpClientBuilder.proxy(proxy);
 
             final UserAndPasswordAuthentication authentication = context.getProxyAuthentication();
             if (authentication != null) {
@@ -345,6 +346,26 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
         }
     }
 
+    private static class AddHttpCache implements GitHubClientsFactoryPartBuilder {
+
+        @Override
+        public void buildPart(ClientsFactoryBuilderContext context) {
+
+            // The cache itself is part of the shared transport
+            context.getOkHttpClientBuilder().addInterceptor(GitHubHttpCache.getInstance().getStatisticsInterceptor() );
+        }
+    }
+
+    private static class AddRateLimiter implements GitHubClientsFactoryPartBuilder {
+
+        @Override
+        public void buildPart(ClientsFactoryBuilderContext context) {
+
+            // Added after the authentication interceptors so the budget is tracked per token
+            context.getOkHttpClientBuilder().addInterceptor(GitHubRateLimiter.getInstance().getInterceptor() );
+        }
+    }
+
     private static class AddClientAndPasswordAuthenticationInterceptor implements GitHubClientsFactoryPartBuilder {
 
         public static final String BASIC_AUTH_TOKEN = "Basic";
@@ -374,7 +395,7 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
                             BASIC_AUTH_TOKEN + " " + new Base64()
                                 .encodeToString(credentials.getBytes(Charset.forName("UTF-8")));
 
-                        final OkHttpClient.Builder okBuilder = new OkHttpClient.Builder()
+                        context.getOkHttpClientBuilder()
                             .addInterceptor(new Interceptor() {
                                 @Override
                                 public Response intercept(Chain chain) throws IOException {
@@ -388,7 +409,6 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
                                 }
                             });
 
-                        context.setOkHttpClientBuilder(okBuilder);
                         context.setAtLeastOneAuthenticationMethodProvided(true);
                     }
                 }
@@ -405,13 +425,8 @@ public class GitHubClientsFactoryImpl implements GitHubClientsFactory {
                 partBuilder.buildPart(context);
             }
 
-            Retrofit.Builder clientBuilder = context.getClientBuilder();
-
-            if (context.getOkHttpClientBuilder() != null) {
-                final OkHttpClient.Builder okHttpClientBuilder = context.getOkHttpClientBuilder();
-                final OkHttpClient okHttpClient = okHttpClientBuilder.build();
-                clientBuilder = clientBuilder.client(okHttpClient);
-            }
+            final Retrofit.Builder clientBuilder = context.getClientBuilder()
+                .client(context.getOkHttpClientBuilder().build() );
 
             return new GitHubClient<>(context.getApiBaseUrl(), clientBuilder
                 .addCallAdapterFactory(RxJavaCallAdapterFactory.create())
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import jenkins.model.Jenkins;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HTTP response cache shared by every GitHub client. Responses are stored together with their ETag and
+ * Last-Modified headers so expired entries are revalidated with conditional requests, whose 304 replies do not
+ * count against the GitHub rate limit.
+ */
+public final class GitHubHttpCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubHttpCache.class.getName() );
+
+    public static final long MAX_CACHE_SIZE_BYTES = 50L * 1024 * 1024;
+    public static final String CACHE_DIRECTORY = "kubernetes-ci-plugin" + File.separator + "github-http-cache";
+
+    private static volatile GitHubHttpCache instance;
+
+    private final Cache cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Interceptor statisticsInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            final Response response = chain.proceed(chain.request() );
+
+            if (response.cacheResponse() != null && response.networkResponse() == null) {
+                hits.incrementAndGet();
+            } else if (response.networkResponse() != null
+                    && response.networkResponse().code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                revalidations.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            return response;
+        }
+    };
+
+    private GitHubHttpCache(File directory) {
+        this.cache = new Cache(directory, MAX_CACHE_SIZE_BYTES);
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("GitHub HTTP cache at: " + directory);
+        }
+    }
+
+    public static GitHubHttpCache getInstance() {
+        if (instance == null) {
+            synchronized (GitHubHttpCache.class) {
+                if (instance == null) {
+                    instance = new GitHubHttpCache(getCacheDirectory() );
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static File getCacheDirectory() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        final File baseDirectory = (jenkins != null)
+                ? new File(jenkins.getRootDir(), "caches")
+                : new File(System.getProperty("java.io.tmpdir") );
+
+        return new File(baseDirectory, CACHE_DIRECTORY);
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Removes the cached responses of the given repository requested by the name of the given ref, in its path (Git
+     * trees, commits and raw contents) or in its ref parameter (contents), returning how many were removed.
+     */
+    public int invalidate(String owner, String repository, String ref) throws IOException {
+        final String repositoryKey = owner + "/" + repository;
+        int removed = 0;
+
+        for (final Iterator<String> urls = cache.urls(); urls.hasNext(); ) {
+            final HttpUrl url = HttpUrl.parse(urls.next() );
+            if (url != null && repositoryKey.equalsIgnoreCase(GitHubRateLimiter.repositoryKey(url) )
+                    && isRequestedByRef(url, ref) ) {
+                urls.remove();
+                removed++;
+            }
+        }
+
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    static boolean isRequestedByRef(HttpUrl url, String ref) {
+        if (ref.equals(url.queryParameter("ref") ) ) {
+            return true;
+        }
+
+        // Refs can contain slashes, so they are looked for in the whole path
+        final StringBuilder path = new StringBuilder("/");
+        for (String segment : url.pathSegments() ) {
+            path.append(segment).append('/');
+        }
+        return path.indexOf("/" + ref + "/") >= 0;
+    }
+
+    public Interceptor getStatisticsInterceptor() {
+        return statisticsInterceptor;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubHttpCache [hits=" + hits + ", misses=" + misses + ", revalidations=" + revalidations
+                + ", invalidations=" + invalidations + "]";
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HTTP transport shared by the GitHub clients. There is a single base {@link OkHttpClient}, with its connection
+ * pool, dispatcher and HTTP cache, per host and proxy; every client variant (service interface, response type and
+ * credentials) is derived from it with {@link OkHttpClient#newBuilder()}, so JSON calls and raw downloads of the
+ * same repository reuse the same connections, multiplexed over HTTP/2 when the server and the JVM support it.
+ *
+ * <p>The pool can be tuned with the system properties prefixed by the name of this class:
+ * <code>maxIdleConnections</code>, <code>keepAliveMinutes</code> and <code>maxRequestsPerHost</code>.</p>
+ */
+public final class GitHubHttpTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubHttpTransport.class.getName() );
+
+    private static final String PROPERTY_PREFIX = GitHubHttpTransport.class.getName() + ".";
+
+    public static final int MAX_IDLE_CONNECTIONS =
+            Integer.getInteger(PROPERTY_PREFIX + "maxIdleConnections", 10);
+
+    public static final long KEEP_ALIVE_MINUTES = Long.getLong(PROPERTY_PREFIX + "keepAliveMinutes", 5);
+
+    public static final int MAX_REQUESTS_PER_HOST = Integer.getInteger(PROPERTY_PREFIX + "maxRequestsPerHost",
+            GitHubRateLimiter.MAX_CONCURRENT_REQUESTS_PER_HOST);
+
+    private static volatile GitHubHttpTransport instance;
+
+    private final ConcurrentMap<String, OkHttpClient> baseClients = new ConcurrentHashMap<>();
+
+    GitHubHttpTransport() {
+    }
+
+    public static GitHubHttpTransport getInstance() {
+        if (instance == null) {
+            synchronized (GitHubHttpTransport.class) {
+                if (instance == null) {
+                    instance = new GitHubHttpTransport();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public OkHttpClient getBaseClient(String host, Proxy proxy) {
+        final String key = transportKey(host, proxy);
+
+        OkHttpClient baseClient = baseClients.get(key);
+        if (baseClient == null) {
+            final OkHttpClient newClient = createBaseClient(proxy);
+            baseClient = baseClients.putIfAbsent(key, newClient);
+            if (baseClient == null) {
+                baseClient = newClient;
+                if (LOGGER.isLoggable(Level.CONFIG) ) {
+                    LOGGER.config("New GitHub HTTP transport for: " + key);
+                }
+            }
+        }
+        return baseClient;
+    }
+
+    private static OkHttpClient createBaseClient(Proxy proxy) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES) )
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) )
+                .cache(GitHubHttpCache.getInstance().getCache() );
+
+        if (proxy != null) {
+            builder.proxy(proxy);
+        }
+        return builder.build();
+    }
+
+    public Map<String, TransportStats> getStats() {
+        final Map<String, TransportStats> stats = new HashMap<>();
+        for (Map.Entry<String, OkHttpClient> entry : baseClients.entrySet() ) {
+            stats.put(entry.getKey(), new TransportStats(entry.getValue() ) );
+        }
+        return stats;
+    }
+
+    static String transportKey(String host, Proxy proxy) {
+        return (proxy != null) ? host + " via " + proxy : host;
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubHttpTransport " + getStats();
+    }
+
+    public static class TransportStats {
+
+        private final int connections;
+        private final int idleConnections;
+        private final int runningCalls;
+        private final int queuedCalls;
+
+        TransportStats(OkHttpClient client) {
+            this.connections = client.connectionPool().connectionCount();
+            this.idleConnections = client.connectionPool().idleConnectionCount();
+            this.runningCalls = client.dispatcher().runningCallsCount();
+            this.queuedCalls = client.dispatcher().queuedCallsCount();
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getRunningCalls() {
+            return runningCalls;
+        }
+
+        public int getQueuedCalls() {
+            return queuedCalls;
+        }
+
+        @Override
+        public String toString() {
+            return "TransportStats [connections=" + connections + ", idleConnections=" + idleConnections
+                    + ", runningCalls=" + runningCalls + ", queuedCalls=" + queuedCalls + "]";
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Request scheduler shared by every GitHub client. It reads the X-RateLimit headers of the GitHub responses to
+ * track the remaining budget of every token, caps the concurrent requests per host and, as the budget runs low,
+ * serves cached responses first and spaces out the requests that must reach GitHub. Once the budget is exhausted,
+ * requests wait for the reset when it is close, and fail with a descriptive error otherwise.
+ */
+public final class GitHubRateLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubRateLimiter.class.getName() );
+
+    static final String RATE_LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String ANONYMOUS = "anonymous";
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    public static final int MAX_CONCURRENT_REQUESTS_PER_HOST = 8;
+    public static final long MAX_THROTTLE_DELAY_MILLIS = 2000;
+    public static final long MAX_RESET_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // The budget is considered low below this fraction of the limit
+    private static final int LOW_BUDGET_DIVISOR = 10;
+
+    private static volatile GitHubRateLimiter instance;
+
+    private final int maxConcurrentRequestsPerHost;
+    private final long maxResetWaitMillis;
+
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RateLimitBudget> budgets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> consumedByRepository = new ConcurrentHashMap<>();
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong servedFromCache = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final Interceptor interceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            return schedule(chain);
+        }
+    };
+
+    GitHubRateLimiter(int maxConcurrentRequestsPerHost, long maxResetWaitMillis) {
+        this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+        this.maxResetWaitMillis = maxResetWaitMillis;
+    }
+
+    public static GitHubRateLimiter getInstance() {
+        if (instance == null) {
+            synchronized (GitHubRateLimiter.class) {
+                if (instance == null) {
+                    instance = new GitHubRateLimiter(MAX_CONCURRENT_REQUESTS_PER_HOST, MAX_RESET_WAIT_MILLIS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Interceptor getInterceptor() {
+        return interceptor;
+    }
+
+    private Response schedule(Interceptor.Chain chain) throws IOException {
+        final Request request = chain.request();
+        final String host = request.url().host();
+        final RateLimitBudget budget = getBudget(budgetKey(request) );
+
+        if (budget.isLow() ) {
+            final Response cachedResponse = proceedFromCache(chain, request);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+            waitForBudget(budget, host);
+        }
+
+        final Semaphore permits = getPermits(host);
+        try {
+            permits.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a GitHub connection to: " + host);
+        }
+
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } finally {
+            permits.release();
+        }
+
+        if (response.networkResponse() != null) {
+            budget.update(response.networkResponse() );
+
+            if (response.networkResponse().code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                getCounter(consumedByRepository, repositoryKey(request.url() ) ).incrementAndGet();
+            }
+        }
+        return response;
+    }
+
+    private Response proceedFromCache(Interceptor.Chain chain, Request request) throws IOException {
+        if (!"GET".equals(request.method() ) ) {
+            return null;
+        }
+
+        final Response response = chain.proceed(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build() );
+        if (response.code() == HTTP_GATEWAY_TIMEOUT && response.cacheResponse() == null) {
+            response.body().close();
+            return null;
+        }
+
+        servedFromCache.incrementAndGet();
+        return response;
+    }
+
+    private void waitForBudget(RateLimitBudget budget, String host) throws IOException {
+        final long untilReset = budget.getResetMillis() - System.currentTimeMillis();
+        final long delay;
+
+        if (budget.getRemaining() <= 0) {
+            if (untilReset > maxResetWaitMillis) {
+                rejected.incrementAndGet();
+                throw new IOException("GitHub API rate limit exhausted for: " + host + ", it resets at: "
+                        + new Date(budget.getResetMillis() ) );
+            }
+            delay = untilReset;
+
+        } else {
+            delay = Math.min(MAX_THROTTLE_DELAY_MILLIS, untilReset / budget.getRemaining() );
+        }
+
+        if (delay <= 0) {
+            return;
+        }
+
+        throttled.incrementAndGet();
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("GitHub budget low for: " + host + " (" + budget + "), delaying request " + delay + " ms");
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the GitHub rate limit of: " + host);
+        }
+    }
+
+    public RateLimitBudget getBudget(String budgetKey) {
+        RateLimitBudget budget = budgets.get(budgetKey);
+        if (budget == null) {
+            final RateLimitBudget newBudget = new RateLimitBudget();
+            budget = budgets.putIfAbsent(budgetKey, newBudget);
+            if (budget == null) {
+                budget = newBudget;
+            }
+        }
+        return budget;
+    }
+
+    public Map<String, RateLimitBudget> getBudgets() {
+        return Collections.<String, RateLimitBudget>unmodifiableMap(budgets);
+    }
+
+    /**
+     * Number of requests that reached GitHub, and so consumed rate limit budget, on behalf of the given repository.
+     */
+    public long getConsumedRequests(ChartRepo repo) {
+        final GitHubUrl url = repo.getUrl();
+        final AtomicLong consumed =
+                consumedByRepository.get(url.ownerInCaseOfRepoUrl() + "/" + url.repoInCaseOfRepoUrl() );
+
+        return (consumed != null) ? consumed.get() : 0;
+    }
+
+    public Map<String, Long> getConsumedRequestsByRepository() {
+        final Map<String, Long> consumed = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : consumedByRepository.entrySet() ) {
+            consumed.put(entry.getKey(), entry.getValue().get() );
+        }
+        return consumed;
+    }
+
+    public int getInFlightRequests(String host) {
+        final Semaphore permits = hostPermits.get(host);
+        return (permits != null) ? maxConcurrentRequestsPerHost - permits.availablePermits() : 0;
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getServedFromCache() {
+        return servedFromCache.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private Semaphore getPermits(String host) {
+        Semaphore permits = hostPermits.get(host);
+        if (permits == null) {
+            final Semaphore newPermits = new Semaphore(maxConcurrentRequestsPerHost, true);
+            permits = hostPermits.putIfAbsent(host, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private static AtomicLong getCounter(ConcurrentMap<String, AtomicLong> counters, String key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * GitHub keeps a budget per token (or per client address for anonymous requests), so the budget key is the
+     * host plus a digest of the credentials, which are never kept in memory as is.
+     */
+    static String budgetKey(Request request) {
+        final String authorization = request.header(AUTHORIZATION_HEADER);
+        final String owner = (authorization != null)
+                ? DigestUtils.sha256Hex(authorization).substring(0, 12)
+                : ANONYMOUS;
+
+        return request.url().host() + "/" + owner;
+    }
+
+    /**
+     * API paths (/repos/owner/repo/..., /api/v3/repos/owner/repo/... in GitHub Enterprise) and raw content paths
+     * (/owner/repo/..., /raw/owner/repo/... in GitHub Enterprise) all contain the repository.
+     */
+    static String repositoryKey(HttpUrl url) {
+        final List<String> segments = url.pathSegments();
+        int first = segments.indexOf("repos") + 1;
+        if (first == 0 && !segments.isEmpty() && "raw".equals(segments.get(0) ) ) {
+            first = 1;
+        }
+
+        if (segments.size() < first + 2) {
+            return url.host();
+        }
+        return segments.get(first) + "/" + segments.get(first + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubRateLimiter [budgets=" + budgets + ", throttled=" + throttled + ", servedFromCache="
+                + servedFromCache + ", rejected=" + rejected + ", consumed=" + consumedByRepository + "]";
+    }
+
+    public static class RateLimitBudget {
+
+        private volatile int limit = -1;
+        private volatile int remaining = -1;
+        private volatile long resetMillis;
+
+        synchronized void update(Response response) {
+            final String remainingHeader = response.header(RATE_LIMIT_REMAINING_HEADER);
+            if (StringUtils.isBlank(remainingHeader) ) {
+                return;
+            }
+
+            try {
+                final String limitHeader = StringUtils.defaultIfBlank(response.header(RATE_LIMIT_HEADER), "-1");
+                final String resetHeader = StringUtils.defaultIfBlank(response.header(RATE_LIMIT_RESET_HEADER), "0");
+
+                remaining = Integer.parseInt(remainingHeader.trim() );
+                limit = Integer.parseInt(limitHeader.trim() );
+                resetMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(resetHeader.trim() ) );
+
+            } catch (NumberFormatException exception) {
+                LOGGER.warning("Invalid GitHub rate limit headers: " + exception.getMessage() );
+            }
+        }
+
+        public boolean isLow() {
+            if (remaining < 0 || System.currentTimeMillis() >= resetMillis) {
+                return false;
+            }
+            return remaining <= Math.max(limit / LOW_BUDGET_DIVISOR, 0);
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public long getResetMillis() {
+            return resetMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "RateLimitBudget [remaining=" + remaining + "/" + limit + ", reset=" + new Date(resetMillis) + "]";
+        }
+    }
+}
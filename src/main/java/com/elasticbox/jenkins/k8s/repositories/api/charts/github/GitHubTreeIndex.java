@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Snapshot of a charts repository built from its recursive Git tree. Every chart is identified by the SHA of its
+ * folder tree, which only changes when some file of the chart changes, so two snapshots tell which charts were
+ * added, modified or removed between them without downloading any chart.
+ */
+public class GitHubTreeIndex {
+
+    public static final String TREE_TYPE = "tree";
+    public static final String BLOB_TYPE = "blob";
+
+    private final String sha;
+    private final Map<String, String> chartShas;
+    private final Map<String, String> blobShas;
+
+    private GitHubTreeIndex(String sha, Map<String, String> chartShas, Map<String, String> blobShas) {
+        this.sha = sha;
+        this.chartShas = Collections.unmodifiableMap(chartShas);
+        this.blobShas = Collections.unmodifiableMap(blobShas);
+    }
+
+    public static GitHubTreeIndex from(GitHubTree tree) {
+        final Map<String, String> chartShas = new LinkedHashMap<>();
+        final Map<String, String> blobShas = new LinkedHashMap<>();
+
+        if (tree.getTree() != null) {
+            for (GitHubTreeEntry entry : tree.getTree() ) {
+                if (TREE_TYPE.equals(entry.getType() ) && entry.getPath().indexOf('/') < 0) {
+                    chartShas.put(entry.getPath(), entry.getSha() );
+
+                } else if (BLOB_TYPE.equals(entry.getType() ) ) {
+                    blobShas.put(entry.getPath(), entry.getSha() );
+                }
+            }
+        }
+        return new GitHubTreeIndex(tree.getSha(), chartShas, blobShas);
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public List<String> getChartNames() {
+        return new ArrayList<>(chartShas.keySet() );
+    }
+
+    public String getChartSha(String chartName) {
+        return chartShas.get(chartName);
+    }
+
+    public String getBlobSha(String path) {
+        return blobShas.get(path);
+    }
+
+    public String getChartDetailsSha(String chartName) {
+        return blobShas.get(chartName + "/" + GitHubChartArchive.CHART_DETAILS_FILE);
+    }
+
+    public List<String> getManifestShas(String chartName) {
+        final String manifestsPrefix = chartName + "/" + GitHubChartArchive.MANIFESTS_FOLDER + "/";
+        final List<String> manifestShas = new ArrayList<>();
+        for (Map.Entry<String, String> blob : blobShas.entrySet() ) {
+            final String path = blob.getKey();
+            if (path.startsWith(manifestsPrefix) && path.indexOf('/', manifestsPrefix.length() ) < 0) {
+                manifestShas.add(blob.getValue() );
+            }
+        }
+        return manifestShas;
+    }
+
+    /**
+     * Names of the charts added, modified or removed since the given snapshot, every chart if there is none.
+     */
+    public List<String> changedSince(GitHubTreeIndex previous) {
+        if (previous == null) {
+            return getChartNames();
+        }
+        if (sha != null && sha.equals(previous.sha) ) {
+            return Collections.emptyList();
+        }
+
+        final TreeSet<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> chart : chartShas.entrySet() ) {
+            if (!chart.getValue().equals(previous.chartShas.get(chart.getKey() ) ) ) {
+                changed.add(chart.getKey() );
+            }
+        }
+        for (String chartName : previous.chartShas.keySet() ) {
+            if (!chartShas.containsKey(chartName) ) {
+                changed.add(chartName);
+            }
+        }
+        return new ArrayList<>(changed);
+    }
+}
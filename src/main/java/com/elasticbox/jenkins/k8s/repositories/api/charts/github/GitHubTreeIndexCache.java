@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latest tree snapshot seen for every repository and ref. A snapshot is reused, without asking GitHub for the tree
+ * again, until it is older than the max age or the ref is invalidated. The snapshot a ref had when it was
+ * invalidated is kept, to find out which charts changed once the ref is listed again.
+ */
+public class GitHubTreeIndexCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GitHubTreeIndexCache.class.getName() );
+
+    // Same freshness GitHub gives to the responses of its API
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final long maxAgeMillis;
+
+    private final ConcurrentMap<String, Snapshot> latest = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, GitHubTreeIndex> invalidated = new ConcurrentHashMap<>();
+
+    public GitHubTreeIndexCache() {
+        this(DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    GitHubTreeIndexCache(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public GitHubTreeIndex getLatest(ChartRepo repo, String ref) {
+        final Snapshot snapshot = latest.get(key(repo, ref) );
+        return (snapshot != null) ? snapshot.index : null;
+    }
+
+    /**
+     * Latest snapshot of the repository and ref if it can be used without listing the ref again, null otherwise.
+     */
+    public GitHubTreeIndex getFresh(ChartRepo repo, String ref) {
+        final Snapshot snapshot = latest.get(key(repo, ref) );
+        if (snapshot == null || System.currentTimeMillis() - snapshot.listedAt >= maxAgeMillis) {
+            return null;
+        }
+        return snapshot.index;
+    }
+
+    /**
+     * Stores the given snapshot as the latest one of the repository and ref, returning the charts that changed
+     * since the previous snapshot.
+     */
+    public List<String> update(ChartRepo repo, String ref, GitHubTreeIndex index) {
+        final Snapshot previous = latest.put(key(repo, ref), new Snapshot(index, System.currentTimeMillis() ) );
+        final List<String> changed = index.changedSince( (previous != null) ? previous.index : null);
+
+        if (previous != null && !changed.isEmpty() && LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Charts changed in " + repo.getUrl() + " at " + ref + " (tree " + previous.index.getSha()
+                + " -> " + index.getSha() + "): " + changed);
+        }
+        return changed;
+    }
+
+    /**
+     * The latest snapshot of the repository and ref is not used anymore, it is kept as the base to find out which
+     * charts change. Invalidating the ref again before it is diffed keeps the oldest base.
+     */
+    public void invalidate(ChartRepo repo, String ref) {
+        final String key = key(repo, ref);
+        final Snapshot snapshot = latest.remove(key);
+        if (snapshot != null) {
+            invalidated.putIfAbsent(key, snapshot.index);
+        }
+    }
+
+    /**
+     * Charts that changed between the snapshot the ref had when it was invalidated and the given one, or null if the
+     * ref was not invalidated since its last diff or had never been listed.
+     */
+    public List<String> changedSinceInvalidation(ChartRepo repo, String ref, GitHubTreeIndex index) {
+        final GitHubTreeIndex base = invalidated.remove(key(repo, ref) );
+        return (base != null) ? index.changedSince(base) : null;
+    }
+
+    private static String key(ChartRepo repo, String ref) {
+        return repo.getUrl() + "@" + ref;
+    }
+
+    private static class Snapshot {
+
+        private final GitHubTreeIndex index;
+        private final long listedAt;
+
+        Snapshot(GitHubTreeIndex index, long listedAt) {
+            this.index = index;
+            this.listedAt = listedAt;
+        }
+    }
+}
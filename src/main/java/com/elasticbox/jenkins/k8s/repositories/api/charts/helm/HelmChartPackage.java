@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.helm;
+
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive.ChartSources;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the Chart.yaml file and the manifests of a packaged chart while it is being downloaded, checking the SHA-256
+ * digest published in the repository index once the whole package has been read. The resources are read from the
+ * manifests folder and from the YAML files of the templates folder, which must be plain manifests: templates are not
+ * rendered, so a package with Go template directives, or with no resources at all, is rejected instead of deploying
+ * an incomplete chart.
+ */
+public final class HelmChartPackage {
+
+    public static final String TEMPLATES_FOLDER = "templates";
+
+    private static final String TEMPLATE_DIRECTIVE = "{{";
+
+    private HelmChartPackage() {
+    }
+
+    public static ChartSources read(InputStream chartPackage, String expectedDigest) throws IOException {
+
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+
+        final DigestInputStream digestStream = new DigestInputStream(chartPackage, sha256);
+
+        String chartDetails = null;
+        final List<String> manifests = new ArrayList<>();
+        final List<String> renderedTemplates = new ArrayList<>();
+
+        try (TarArchiveInputStream tarStream = new TarArchiveInputStream(new GZIPInputStream(digestStream) ) ) {
+            TarArchiveEntry entry;
+            while ((entry = tarStream.getNextTarEntry() ) != null) {
+                if (!entry.isFile() ) {
+                    continue;
+                }
+
+                final String[] path = entry.getName().split("/");
+                if (path.length == 2 && path[1].equals(GitHubChartArchive.CHART_DETAILS_FILE) ) {
+                    chartDetails = IOUtils.toString(tarStream, "UTF-8");
+
+                } else if (path.length == 3 && path[1].equals(GitHubChartArchive.MANIFESTS_FOLDER) ) {
+                    manifests.add(IOUtils.toString(tarStream, "UTF-8") );
+
+                } else if (path.length == 3 && path[1].equals(TEMPLATES_FOLDER) && isYaml(path[2]) ) {
+                    final String template = IOUtils.toString(tarStream, "UTF-8");
+                    if (template.contains(TEMPLATE_DIRECTIVE) ) {
+                        renderedTemplates.add(path[2]);
+                    } else {
+                        manifests.add(template);
+                    }
+                }
+            }
+
+            IOUtils.copy(digestStream, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+
+        if (expectedDigest != null) {
+            final String digest = Hex.encodeHexString(sha256.digest() );
+            if (!digest.equalsIgnoreCase(expectedDigest) ) {
+                throw new IOException("Chart package digest mismatch, expected: " + expectedDigest + " but was: "
+                    + digest);
+            }
+        }
+
+        if (chartDetails == null) {
+            throw new IOException("Chart package without " + GitHubChartArchive.CHART_DETAILS_FILE);
+        }
+        if (!renderedTemplates.isEmpty() ) {
+            throw new IOException("Chart package with templates that need to be rendered, which is not supported: "
+                + renderedTemplates);
+        }
+        if (manifests.isEmpty() ) {
+            throw new IOException("Chart package without resources in its " + GitHubChartArchive.MANIFESTS_FOLDER
+                + " or " + TEMPLATES_FOLDER + " folders");
+        }
+        return new ChartSources(chartDetails, manifests);
+    }
+
+    private static boolean isYaml(String fileName) {
+        return fileName.endsWith(".yaml") || fileName.endsWith(".yml");
+    }
+}
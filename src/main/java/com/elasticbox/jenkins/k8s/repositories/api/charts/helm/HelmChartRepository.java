@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.helm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.auth.Authentication;
+import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
+import com.elasticbox.jenkins.k8s.auth.UserAndPasswordAuthentication;
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.cache.ChartDiskCache;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.factory.ManifestFactory;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive.ChartSources;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import okhttp3.Authenticator;
+import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.Route;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Charts served by a Helm chart repository. The index.yaml of every repository is parsed once and kept in memory, it
+ * is revalidated with its ETag at most once per revalidation interval, so listing and resolving charts are memory
+ * lookups. Chart packages are cached by their digest, in memory and on disk.
+ */
+@Singleton
+public class HelmChartRepository implements ChartRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(HelmChartRepository.class.getName() );
+
+    public static final String INDEX_FILE = "index.yaml";
+    public static final long INDEX_REVALIDATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final int MAX_NUM_PACKAGES_CACHED = 100;
+
+    private static final String DEFAULT_REF = "master";
+
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient();
+
+    private final ConcurrentMap<String, HelmIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> indexLocks = new ConcurrentHashMap<>();
+
+    private final Cache<String, ChartSources> packages = CacheBuilder.newBuilder()
+        .maximumSize(MAX_NUM_PACKAGES_CACHED)
+        .build();
+
+    private final ChartDiskCache diskCache = ChartDiskCache.getInstance();
+
+    private final long indexRevalidationMillis;
+
+    public HelmChartRepository() {
+        this(INDEX_REVALIDATION_MILLIS);
+    }
+
+    HelmChartRepository(long indexRevalidationMillis) {
+        this.indexRevalidationMillis = indexRevalidationMillis;
+    }
+
+    @Override
+    public List<String> chartNames(ChartRepo repo) throws RepositoryException {
+        return chartNames(repo, null);
+    }
+
+    @Override
+    public List<String> chartNames(ChartRepo repo, String ref) throws RepositoryException {
+        return index(repo).getChartNames();
+    }
+
+    @Override
+    public Chart chart(ChartRepo repo, String chartName) throws RepositoryException {
+        return chart(repo, chartName, null);
+    }
+
+    @Override
+    public Chart chart(ChartRepo repo, String chartName, String ref) throws RepositoryException {
+        final String version = (StringUtils.isBlank(ref) || DEFAULT_REF.equals(ref) ) ? null : ref;
+
+        final HelmChartVersion chartVersion = index(repo).getChartVersion(chartName, version);
+        if (chartVersion == null || chartVersion.getUrls().isEmpty() ) {
+            throw new RepositoryException("Chart " + chartName + ((version != null) ? ":" + version : "")
+                + " not found in: " + repo.getUrl() );
+        }
+
+        final ChartSources sources = packageSources(repo, chartVersion);
+        return ManifestFactory.buildChart(chartName, sources.getChartDetails(), sources.getManifests() );
+    }
+
+    /**
+     * The index is revalidated on its next use, with a conditional request, regardless of the ref.
+     */
+    @Override
+    public void invalidate(ChartRepo repo, String ref) {
+        final HelmIndex index = indexes.get(repo.getUrl().toString() );
+        if (index != null) {
+            index.expire();
+        }
+    }
+
+    /**
+     * The index lists chart versions, not the changes between two revalidations.
+     */
+    @Override
+    public List<String> changedCharts(ChartRepo repo, String ref) {
+        return null;
+    }
+
+    /**
+     * The index has a single version of the catalog, with no refs.
+     */
+    @Override
+    public String defaultRef(ChartRepo repo) {
+        return null;
+    }
+
+    HelmIndex index(ChartRepo repo) throws RepositoryException {
+        final String repoUrl = repo.getUrl().toString();
+
+        HelmIndex index = indexes.get(repoUrl);
+        if (index != null && System.currentTimeMillis() - index.getValidatedAt() < indexRevalidationMillis) {
+            return index;
+        }
+
+        synchronized (lockFor(repoUrl) ) {
+            index = indexes.get(repoUrl);
+            if (index != null && System.currentTimeMillis() - index.getValidatedAt() < indexRevalidationMillis) {
+                return index;
+            }
+
+            final Request.Builder request = request(repo, repoUrl + INDEX_FILE);
+            if (index != null && index.getEtag() != null) {
+                request.header("If-None-Match", index.getEtag() );
+            }
+
+            try {
+                final Response response = httpClient(repo).newCall(request.build() ).execute();
+                try (ResponseBody body = response.body() ) {
+                    if (index != null && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        index.revalidated();
+                        return index;
+                    }
+                    if (!response.isSuccessful() ) {
+                        throw new IOException("Unexpected response HTTP " + response.code() );
+                    }
+
+                    final HelmIndex newIndex = HelmIndex.parse(body.byteStream(), response.header("ETag") );
+                    indexes.put(repoUrl, newIndex);
+
+                    if (LOGGER.isLoggable(Level.CONFIG) ) {
+                        LOGGER.config("Index of " + repoUrl + " loaded with " + newIndex.getChartNames().size()
+                            + " charts");
+                    }
+                    return newIndex;
+                }
+
+            } catch (IOException | RuntimeException exception) {
+                if (index != null) {
+                    LOGGER.log(Level.WARNING, "Error revalidating " + INDEX_FILE + " of: " + repoUrl
+                        + ", using the one already loaded", exception);
+                    return index;
+                }
+                throw new RepositoryException("Error getting " + INDEX_FILE + " from: " + repoUrl, exception);
+            }
+        }
+    }
+
+    private ChartSources packageSources(ChartRepo repo, HelmChartVersion chartVersion) throws RepositoryException {
+        final String packageUrl = URI.create(repo.getUrl().toString() ).resolve(chartVersion.getUrls().get(0) )
+            .toString();
+        final String digest = chartVersion.getDigest();
+        final String cacheKey = (digest != null) ? digest : packageUrl;
+
+        ChartSources sources = packages.getIfPresent(cacheKey);
+        if (sources == null && digest != null) {
+            sources = diskCache.getByDigest(digest);
+        }
+        if (sources != null) {
+            packages.put(cacheKey, sources);
+            return sources;
+        }
+
+        try {
+            final Response response = httpClient(repo).newCall(request(repo, packageUrl).build() ).execute();
+            try (ResponseBody body = response.body() ) {
+                if (!response.isSuccessful() ) {
+                    throw new RepositoryException("Error downloading chart package: " + packageUrl + " (HTTP "
+                        + response.code() + ")");
+                }
+                sources = HelmChartPackage.read(body.byteStream(), digest);
+            }
+
+        } catch (IOException exception) {
+            throw new RepositoryException("Error downloading chart package: " + packageUrl, exception);
+        }
+
+        packages.put(cacheKey, sources);
+        if (digest != null) {
+            diskCache.putByDigest(digest, sources);
+        }
+        return sources;
+    }
+
+    private Object lockFor(String repoUrl) {
+        final Object lock = new Object();
+        final Object existing = indexLocks.putIfAbsent(repoUrl, lock);
+        return (existing != null) ? existing : lock;
+    }
+
+    private static Request.Builder request(ChartRepo repo, String url) {
+        final Request.Builder request = new Request.Builder().url(url);
+
+        final Authentication authentication = repo.getAuthentication();
+        if (authentication instanceof TokenAuthentication) {
+            request.header("Authorization", "Bearer " + ((TokenAuthentication) authentication).getAuthToken() );
+
+        } else if (authentication instanceof UserAndPasswordAuthentication) {
+            final UserAndPasswordAuthentication userAndPassword = (UserAndPasswordAuthentication) authentication;
+            request.header("Authorization", Credentials.basic(userAndPassword.getUser(),
+                userAndPassword.getPassword() ) );
+        }
+        return request;
+    }
+
+    private static OkHttpClient httpClient(ChartRepo repo) {
+        if (!repo.needsProxy() ) {
+            return HTTP_CLIENT;
+        }
+
+        final OkHttpClient.Builder builder = HTTP_CLIENT.newBuilder().proxy(repo.getProxy() );
+        final UserAndPasswordAuthentication proxyAuthentication = repo.getProxyAuthentication();
+        if (proxyAuthentication != null) {
+            builder.proxyAuthenticator(new Authenticator() {
+                @Override
+                public Request authenticate(Route route, Response response) throws IOException {
+                    final String credential = Credentials.basic(proxyAuthentication.getUser(),
+                        proxyAuthentication.getPassword() );
+                    return response.request().newBuilder()
+                        .header("Proxy-Authorization", credential)
+                        .build();
+                }
+            });
+        }
+        return builder.build();
+    }
+}
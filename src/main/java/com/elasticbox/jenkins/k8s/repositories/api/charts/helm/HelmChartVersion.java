@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.helm;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Packaged version of a chart as listed in the index.yaml of a Helm chart repository.
+ */
+public class HelmChartVersion {
+
+    private final String name;
+    private final String version;
+    private final String digest;
+    private final List<String> urls;
+
+    public HelmChartVersion(String name, String version, String digest, List<String> urls) {
+        this.name = name;
+        this.version = version;
+        this.digest = digest;
+        this.urls = Collections.unmodifiableList(urls);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    @Override
+    public String toString() {
+        return "HelmChartVersion [" + name + ":" + version + "]";
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.helm;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parsed index.yaml of a Helm chart repository, together with the ETag used to revalidate it. The versions of every
+ * chart are kept in the order of the index, which lists the latest version first. The index is downloaded from the
+ * repository, so it is parsed only into standard YAML types.
+ */
+public class HelmIndex {
+
+    private static final String ENTRIES = "entries";
+
+    private final Map<String, List<HelmChartVersion>> charts;
+    private final String etag;
+    private volatile long validatedAt;
+
+    HelmIndex(Map<String, List<HelmChartVersion>> charts, String etag) {
+        this.charts = Collections.unmodifiableMap(charts);
+        this.etag = etag;
+        this.validatedAt = System.currentTimeMillis();
+    }
+
+    public static HelmIndex parse(InputStream indexYaml, String etag) {
+        final Map<String, List<HelmChartVersion>> charts = new TreeMap<>();
+
+        final Object index = new Yaml(new SafeConstructor() ).load(
+            new InputStreamReader(indexYaml, Charset.forName("UTF-8") ) );
+        if (index instanceof Map) {
+            final Object entries = ((Map<?, ?>) index).get(ENTRIES);
+            if (entries instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) entries).entrySet() ) {
+                    final String chartName = String.valueOf(entry.getKey() );
+                    charts.put(chartName, versions(chartName, entry.getValue() ) );
+                }
+            }
+        }
+        return new HelmIndex(charts, etag);
+    }
+
+    private static List<HelmChartVersion> versions(String chartName, Object entries) {
+        final List<HelmChartVersion> versions = new ArrayList<>();
+        if (!(entries instanceof List) ) {
+            return versions;
+        }
+
+        for (Object entry : (List<?>) entries) {
+            if (entry instanceof Map) {
+                final Map<?, ?> version = (Map<?, ?>) entry;
+                final List<String> urls = new ArrayList<>();
+                if (version.get("urls") instanceof List) {
+                    for (Object url : (List<?>) version.get("urls") ) {
+                        urls.add(String.valueOf(url) );
+                    }
+                }
+                versions.add(new HelmChartVersion(chartName, stringOrNull(version.get("version") ),
+                    stringOrNull(version.get("digest") ), urls) );
+            }
+        }
+        return versions;
+    }
+
+    private static String stringOrNull(Object value) {
+        return (value != null) ? value.toString() : null;
+    }
+
+    public List<String> getChartNames() {
+        return new ArrayList<>(charts.keySet() );
+    }
+
+    /**
+     * Returns the given version of a chart, or its latest version if no version is given.
+     */
+    public HelmChartVersion getChartVersion(String chartName, String version) {
+        final List<HelmChartVersion> versions = charts.get(chartName);
+        if (versions == null || versions.isEmpty() ) {
+            return null;
+        }
+        if (version == null) {
+            return versions.get(0);
+        }
+        for (HelmChartVersion chartVersion : versions) {
+            if (version.equals(chartVersion.getVersion() ) ) {
+                return chartVersion;
+            }
+        }
+        return null;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getValidatedAt() {
+        return validatedAt;
+    }
+
+    void revalidated() {
+        this.validatedAt = System.currentTimeMillis();
+    }
+
+    void expire() {
+        this.validatedAt = 0;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.local;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartDetails;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.factory.ManifestFactory;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.Service;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A chart of a local chart directory, kept parsed in memory. Its Chart.yaml file and every manifest are parsed on
+ * their own, so a change to one of the files parses only that file again; the chart itself is put together from the
+ * parsed files on its first use after a change, and then read without locking.
+ */
+class LocalChart {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String name;
+
+    // Guarded by this, sorted by file name so the resources are always in the same order
+    private final Map<String, Parsed> manifests = new TreeMap<>();
+    private Parsed details;
+
+    private volatile Parsed chart;
+
+    LocalChart(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    synchronized boolean hasDetails() {
+        return details != null;
+    }
+
+    synchronized void loadDetails(Path file) {
+        final ChartDetails chartDetails = new ChartDetails();
+        try {
+            final ChartDetails parsed = new Yaml().loadAs(read(file), ChartDetails.class);
+            details = new Parsed(null, (parsed != null) ? parsed : chartDetails, null);
+
+        } catch (IOException | YAMLException exception) {
+            details = new Parsed(null, chartDetails,
+                    new RepositoryException("Error parsing the details of chart: " + name, exception) );
+        }
+        chart = null;
+    }
+
+    synchronized void removeDetails() {
+        details = null;
+        chart = null;
+    }
+
+    synchronized void loadManifest(Path file) {
+        final String fileName = file.getFileName().toString();
+        final Chart.ChartBuilder builder = new Chart.ChartBuilder().chartDetails(new ChartDetails() );
+        try {
+            ManifestFactory.addManifest(read(file), builder);
+            manifests.put(fileName, new Parsed(builder.build(), null, null) );
+
+        } catch (IOException exception) {
+            final String message = "Error reading manifest: " + fileName + " of chart: " + name;
+            manifests.put(fileName, new Parsed(null, null, new RepositoryException(message, exception) ) );
+        } catch (RepositoryException exception) {
+            manifests.put(fileName, new Parsed(null, null, exception) );
+        }
+        chart = null;
+    }
+
+    synchronized void removeManifest(String fileName) {
+        if (manifests.remove(fileName) != null) {
+            chart = null;
+        }
+    }
+
+    synchronized void removeManifests() {
+        manifests.clear();
+        chart = null;
+    }
+
+    Chart get() throws RepositoryException {
+        Parsed current = chart;
+        if (current == null) {
+            current = assemble();
+        }
+
+        if (current.error != null) {
+            throw current.error;
+        }
+        return current.chart;
+    }
+
+    private synchronized Parsed assemble() {
+        if (chart != null) {
+            return chart;
+        }
+
+        final Chart.ChartBuilder builder = new Chart.ChartBuilder();
+        if (details == null) {
+            builder.chartDetails(new ChartDetails() )
+                    .addError(new RepositoryException("Chart " + name + " has no details file") );
+        } else {
+            builder.chartDetails(details.details);
+            if (details.error != null) {
+                builder.addError(details.error);
+            }
+        }
+
+        for (Parsed manifest : manifests.values() ) {
+            if (manifest.error != null) {
+                builder.addError(manifest.error);
+                continue;
+            }
+            for (Service service : manifest.chart.getServices() ) {
+                builder.addService(service);
+            }
+            for (ReplicationController controller : manifest.chart.getReplicationControllers() ) {
+                builder.addReplicationController(controller);
+            }
+            for (Pod pod : manifest.chart.getPods() ) {
+                builder.addPod(pod);
+            }
+        }
+
+        try {
+            chart = new Parsed(builder.build(), null, null);
+        } catch (RepositoryException exception) {
+            chart = new Parsed(null, null, exception);
+        }
+        return chart;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), UTF_8);
+    }
+
+    /**
+     * A parsed file or chart: the resources of a manifest or a whole chart, the details of the chart, or the error
+     * that prevented the parse.
+     */
+    private static class Parsed {
+
+        private final Chart chart;
+        private final ChartDetails details;
+        private final RepositoryException error;
+
+        Parsed(Chart chart, ChartDetails details, RepositoryException error) {
+            this.chart = chart;
+            this.details = details;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.local;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Charts of a directory of the Jenkins controller, configured with a <code>file://</code> URL, with the same layout as
+ * a GitHub chart repository: a folder per chart with its Chart.yaml file and its manifests folder. The directory is
+ * parsed once, on its first use, and then watched: every file created, modified or deleted is parsed again, or
+ * dropped, as soon as the change is notified, so listing and loading charts do not touch the file system. Changes
+ * are picked up when the file system notifies them, which is immediate on Linux. A directory has no refs, so the
+ * ref of the requests is ignored. Directories that are no longer configured are dropped, and stop being watched,
+ * with {@link #retainDirectories(Collection)}.
+ */
+@Singleton
+public class LocalChartRepository implements ChartRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(LocalChartRepository.class.getName() );
+
+    private static final String CHART_DETAILS_FILE = GitHubChartArchive.CHART_DETAILS_FILE;
+    private static final String MANIFESTS_FOLDER = GitHubChartArchive.MANIFESTS_FOLDER;
+
+    private final ConcurrentMap<Path, ChartDirectory> directories = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WatchKey, ChartDirectory> watchedFolders = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+
+    @Override
+    public List<String> chartNames(ChartRepo repo) throws RepositoryException {
+        return chartNames(repo, null);
+    }
+
+    @Override
+    public List<String> chartNames(ChartRepo repo, String ref) throws RepositoryException {
+        return directory(repo).getChartNames();
+    }
+
+    @Override
+    public Chart chart(ChartRepo repo, String chartName) throws RepositoryException {
+        return chart(repo, chartName, null);
+    }
+
+    @Override
+    public Chart chart(ChartRepo repo, String chartName, String ref) throws RepositoryException {
+        return directory(repo).getChart(chartName);
+    }
+
+    /**
+     * Parses the whole directory again, for the changes that could not be notified, like those of network file
+     * systems.
+     */
+    @Override
+    public void invalidate(ChartRepo repo, String ref) {
+        try {
+            final ChartDirectory directory = directories.get(rootOf(repo) );
+            if (directory != null) {
+                directory.scan();
+            }
+        } catch (RepositoryException exception) {
+            LOGGER.warning(exception.getMessage() );
+        }
+    }
+
+    /**
+     * A directory is parsed as a whole, it does not keep which charts changed.
+     */
+    @Override
+    public List<String> changedCharts(ChartRepo repo, String ref) {
+        return null;
+    }
+
+    /**
+     * A directory has no refs.
+     */
+    @Override
+    public String defaultRef(ChartRepo repo) {
+        return null;
+    }
+
+    /**
+     * Lists the charts of a directory parsing it once, without watching it nor keeping it in memory, to check a
+     * directory that may never be used.
+     */
+    public List<String> scanChartNames(ChartRepo repo) throws RepositoryException {
+        final Path root = existingRoot(repo);
+        final ChartDirectory directory = new ChartDirectory(root, false);
+        directory.scan();
+        return directory.getChartNames();
+    }
+
+    /**
+     * Drops the parsed charts of every directory but those of the given repositories, and stops watching them.
+     */
+    public void retainDirectories(Collection<ChartRepo> repos) {
+        final Set<Path> roots = new HashSet<>();
+        for (ChartRepo repo : repos) {
+            try {
+                roots.add(rootOf(repo) );
+            } catch (RepositoryException exception) {
+                LOGGER.warning(exception.getMessage() );
+            }
+        }
+
+        synchronized (directories) {
+            for (Iterator<ChartDirectory> iterator = directories.values().iterator(); iterator.hasNext(); ) {
+                final ChartDirectory directory = iterator.next();
+                if (!roots.contains(directory.root) ) {
+                    iterator.remove();
+                    stopWatching(directory);
+                    LOGGER.info("Chart directory " + directory.root + " no longer configured, dropped");
+                }
+            }
+        }
+    }
+
+    private void stopWatching(ChartDirectory directory) {
+        for (Iterator<Map.Entry<WatchKey, ChartDirectory>> iterator = watchedFolders.entrySet().iterator();
+                iterator.hasNext(); ) {
+
+            final Map.Entry<WatchKey, ChartDirectory> watchedFolder = iterator.next();
+            if (watchedFolder.getValue() == directory) {
+                watchedFolder.getKey().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private ChartDirectory directory(ChartRepo repo) throws RepositoryException {
+        final Path root = rootOf(repo);
+
+        ChartDirectory directory = directories.get(root);
+        if (directory == null) {
+            // Only the first use of a directory waits for it to be parsed
+            synchronized (directories) {
+                directory = directories.get(root);
+                if (directory == null) {
+                    existingRoot(repo);
+
+                    directory = new ChartDirectory(root, true);
+                    directory.scan();
+                    directories.put(root, directory);
+                }
+            }
+        }
+        return directory;
+    }
+
+    private static Path existingRoot(ChartRepo repo) throws RepositoryException {
+        final Path root = rootOf(repo);
+        if (!Files.isDirectory(root) ) {
+            throw new RepositoryException("Chart directory not found: " + root);
+        }
+        return root;
+    }
+
+    static Path rootOf(ChartRepo repo) throws RepositoryException {
+        try {
+            return Paths.get(new URI(repo.getUrl().toString() ) ).toAbsolutePath().normalize();
+
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException exception) {
+            throw new RepositoryException("Invalid local chart directory URL: " + repo.getUrl(), exception);
+        }
+    }
+
+    private WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            synchronized (watchedFolders) {
+                if (watchService == null) {
+                    final WatchService newWatchService = FileSystems.getDefault().newWatchService();
+                    new ThreadFactoryBuilder().setNameFormat("LocalChartWatcher-%d").setDaemon(true).build()
+                            .newThread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    watch(newWatchService);
+                                }
+                            })
+                            .start();
+
+                    watchService = newWatchService;
+                }
+            }
+        }
+        return watchService;
+    }
+
+    private void watch(WatchService service) {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            }
+
+            final ChartDirectory directory = watchedFolders.get(key);
+            final List<WatchEvent<?>> events = key.pollEvents();
+            if (directory != null) {
+                try {
+                    directory.changed( (Path) key.watchable(), events);
+                } catch (RuntimeException exception) {
+                    LOGGER.log(Level.WARNING, "Error processing the changes of: " + key.watchable(), exception);
+                }
+            }
+
+            if (!key.reset() ) {
+                watchedFolders.remove(key);
+            }
+        }
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * The parsed charts of a directory. Changes are applied one at a time, while the charts are read concurrently.
+     */
+    private class ChartDirectory {
+
+        private final Path root;
+        private final boolean watched;
+        private final ConcurrentMap<String, LocalChart> charts = new ConcurrentHashMap<>();
+
+        ChartDirectory(Path root, boolean watched) {
+            this.root = root;
+            this.watched = watched;
+        }
+
+        List<String> getChartNames() {
+            final List<String> chartNames = new ArrayList<>();
+            for (LocalChart chart : charts.values() ) {
+                if (chart.hasDetails() ) {
+                    chartNames.add(chart.getName() );
+                }
+            }
+            Collections.sort(chartNames);
+            return chartNames;
+        }
+
+        Chart getChart(String chartName) throws RepositoryException {
+            final LocalChart chart = charts.get(chartName);
+            if (chart == null) {
+                throw new RepositoryException("Chart " + chartName + " not found in: " + root);
+            }
+            return chart.get();
+        }
+
+        synchronized void scan() {
+            register(root);
+
+            final Map<String, LocalChart> scanned = new HashMap<>();
+            try (DirectoryStream<Path> folders = Files.newDirectoryStream(root) ) {
+                for (Path folder : folders) {
+                    if (Files.isDirectory(folder) && !isHidden(folder) ) {
+                        final LocalChart chart = load(folder);
+                        scanned.put(chart.getName(), chart);
+                    }
+                }
+            } catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Error reading chart directory: " + root, exception);
+            }
+
+            charts.keySet().retainAll(scanned.keySet() );
+            charts.putAll(scanned);
+
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Chart directory " + root + " parsed with " + scanned.size() + " charts");
+            }
+        }
+
+        synchronized void changed(Path folder, List<WatchEvent<?>> events) {
+            for (WatchEvent<?> event : events) {
+                if (event.kind() == OVERFLOW) {
+                    LOGGER.warning("Changes of " + folder + " lost, parsing chart directory " + root + " again");
+                    scan();
+                    return;
+                }
+                changed(folder.resolve( (Path) event.context() ), event.kind() );
+            }
+        }
+
+        private void changed(Path path, WatchEvent.Kind<?> kind) {
+            if (isHidden(path) ) {
+                return;
+            }
+
+            final Path relative = root.relativize(path);
+            final String chartName = relative.getName(0).toString();
+
+            if (relative.getNameCount() == 1) {
+                // A folder modification is notified along with the changes of its files
+                if (kind == ENTRY_DELETE) {
+                    charts.remove(chartName);
+                } else if (kind == ENTRY_CREATE && Files.isDirectory(path) ) {
+                    charts.put(chartName, load(path) );
+                }
+                return;
+            }
+
+            final LocalChart chart = charts.get(chartName);
+            if (chart == null) {
+                return;
+            }
+
+            final String fileName = path.getFileName().toString();
+            if (relative.getNameCount() == 2 && CHART_DETAILS_FILE.equals(fileName) ) {
+                if (Files.isRegularFile(path) ) {
+                    chart.loadDetails(path);
+                } else {
+                    chart.removeDetails();
+                }
+
+            } else if (relative.getNameCount() == 2 && MANIFESTS_FOLDER.equals(fileName) ) {
+                if (kind == ENTRY_DELETE) {
+                    chart.removeManifests();
+                } else if (kind == ENTRY_CREATE) {
+                    loadManifests(chart, path);
+                }
+
+            } else if (relative.getNameCount() == 3 && MANIFESTS_FOLDER.equals(relative.getName(1).toString() ) ) {
+                if (Files.isRegularFile(path) ) {
+                    chart.loadManifest(path);
+                } else {
+                    chart.removeManifest(fileName);
+                }
+            }
+
+            if (LOGGER.isLoggable(Level.FINE) ) {
+                LOGGER.fine("Chart " + chartName + " updated, " + kind.name() + ": " + relative);
+            }
+        }
+
+        private LocalChart load(Path folder) {
+            register(folder);
+
+            final LocalChart chart = new LocalChart(folder.getFileName().toString() );
+            final Path detailsFile = folder.resolve(CHART_DETAILS_FILE);
+            if (Files.isRegularFile(detailsFile) ) {
+                chart.loadDetails(detailsFile);
+            }
+
+            loadManifests(chart, folder.resolve(MANIFESTS_FOLDER) );
+            return chart;
+        }
+
+        private void loadManifests(LocalChart chart, Path manifestsFolder) {
+            chart.removeManifests();
+            if (!Files.isDirectory(manifestsFolder) ) {
+                return;
+            }
+
+            register(manifestsFolder);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(manifestsFolder) ) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file) && !isHidden(file) ) {
+                        chart.loadManifest(file);
+                    }
+                }
+            } catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Error reading the manifests of chart: " + chart.getName(), exception);
+            }
+        }
+
+        private void register(Path folder) {
+            if (!watched) {
+                return;
+            }
+            try {
+                watchedFolders.put(folder.register(getWatchService(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+                        this);
+            } catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Changes of " + folder + " will not be picked up", exception);
+            }
+        }
+    }
+}
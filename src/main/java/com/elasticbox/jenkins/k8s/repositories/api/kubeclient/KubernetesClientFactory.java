@@ -18,5 +18,9 @@ public interface KubernetesClientFactory {
 
     KubernetesClient createKubernetesClient(KubernetesCloudParams kubeCloudParams);
 
+    KubernetesListClient getListClient(String kubeName) throws RepositoryException;
+
+    KubernetesListClient createListClient(KubernetesCloudParams kubeCloudParams);
+
     void resetKubernetesClient(String kubeName);
 }
@@ -46,6 +46,16 @@ public class KubernetesClientFactoryImpl
             .expireAfterAccess(MAX_IDLE_HOURS, TimeUnit.HOURS)
             .build(this);
 
+    private LoadingCache<String, KubernetesListClient> listClients = CacheBuilder.newBuilder()
+            .maximumSize(MAX_NUM_CLIENTS_CACHED)
+            .expireAfterAccess(MAX_IDLE_HOURS, TimeUnit.HOURS)
+            .build(new CacheLoader<String, KubernetesListClient>() {
+                @Override
+                public KubernetesListClient load(String kubeName) throws Exception {
+                    return createListClient(getClusterParams(kubeName) );
+                }
+            });
+
     @Override
     public KubernetesClient getKubernetesClient(String kubeName) throws RepositoryException {
         try {
@@ -57,18 +67,24 @@ public class KubernetesClientFactoryImpl
 
     @Override
     public KubernetesClient load(String kubeName) throws Exception {
+        return createKubernetesClient(getClusterParams(kubeName) );
+    }
+
+    private static KubernetesCloudParams getClusterParams(String kubeName) throws RepositoryException {
 
         final Jenkins instance = Jenkins.getInstance();
 
-        final Cloud cloud = (instance != null) ? instance.getCloud(kubeName) : null;
+        final Cloud cloud = (instance != null) ? instance.getCloud(KubernetesCloud.cloudNameOf(kubeName) ) : null;
 
         if (cloud != null && cloud instanceof KubernetesCloud) {
-            KubernetesCloud kubeCloud = (KubernetesCloud) cloud;
+            final KubernetesCloudParams clusterParams = ((KubernetesCloud) cloud).getClusterParams(kubeName);
 
-            return createKubernetesClient(kubeCloud.getKubernetesCloudParams() );
+            if (clusterParams != null) {
+                return clusterParams;
+            }
         }
 
-        String msg = "There is no KubernetesCloud with name: " + kubeName;
+        String msg = "There is no KubernetesCloud cluster with name: " + kubeName;
         LOGGER.severe(msg);
 
         throw new RepositoryException(msg);
@@ -101,8 +117,26 @@ public class KubernetesClientFactoryImpl
         return new DefaultKubernetesClient(builder.build() );
     }
 
+    @Override
+    public KubernetesListClient getListClient(String kubeName) throws RepositoryException {
+        if (kubeName == null) {
+            throw new RepositoryException("No Kubernetes cloud given to list from");
+        }
+        try {
+            return listClients.get(kubeName);
+        } catch (ExecutionException exception) {
+            throw new RepositoryException("Error while creating list client", exception);
+        }
+    }
+
+    @Override
+    public KubernetesListClient createListClient(KubernetesCloudParams kubeCloudParams) {
+        return KubernetesListClient.create(kubeCloudParams);
+    }
+
     @Override
     public void resetKubernetesClient(String kubeName) {
         cache.invalidate(kubeName);
+        listClients.invalidate(kubeName);
     }
 }
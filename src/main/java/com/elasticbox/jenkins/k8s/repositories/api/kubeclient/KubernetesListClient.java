@@ -0,0 +1,360 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.kubeclient;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import com.elasticbox.jenkins.k8s.auth.Authentication;
+import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
+import com.elasticbox.jenkins.k8s.auth.UserAndPasswordAuthentication;
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloudParams;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Lists resource names through the Kubernetes API, for the callers that need names or counts but not the resources.
+ * The fabric8 client in use reads a whole list in one response and builds every model, this client asks for pages
+ * of {@link #PAGE_SIZE} items, chained with the continue token, asks for the metadata only and reads the names from
+ * the response as it streams, so only the names of one page are in memory at a time. API servers that do not
+ * support chunking or the metadata only lists return the whole list, which is still read as a stream.
+ */
+public class KubernetesListClient {
+
+    static final int PAGE_SIZE = 500;
+
+    static final String METADATA_ONLY = "application/json;as=PartialObjectMetadataList;v=v1;g=meta.k8s.io, "
+        + "application/json";
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 60;
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl masterUrl;
+    private final String authorization;
+
+    KubernetesListClient(OkHttpClient httpClient, String masterUrl, String authorization) {
+        this.httpClient = httpClient;
+        this.masterUrl = HttpUrl.parse(masterUrl);
+        this.authorization = authorization;
+
+        if (this.masterUrl == null) {
+            throw new KubernetesClientException("Invalid Kubernetes endpoint URL: " + masterUrl);
+        }
+    }
+
+    /**
+     * Client with the same endpoint, credentials and certificate checks as the fabric8 client of the given cloud.
+     */
+    public static KubernetesListClient create(KubernetesCloudParams kubeCloudParams) {
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+            .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            if (kubeCloudParams.isDisableCertCheck() ) {
+                trustAllCerts(builder);
+            } else if (StringUtils.isNotEmpty(kubeCloudParams.getServerCert() ) ) {
+                trustServerCert(builder, kubeCloudParams.getServerCert() );
+            }
+        } catch (GeneralSecurityException | IOException exception) {
+            throw new KubernetesClientException("Error setting up the certificate checks of: "
+                + kubeCloudParams.getEndpointUrl(), exception);
+        }
+
+        return new KubernetesListClient(builder.build(), kubeCloudParams.getEndpointUrl(),
+            authorization(kubeCloudParams.getAuthData() ) );
+    }
+
+    /**
+     * Names of the resources listed at the given API path, like <code>api/v1/namespaces</code>, optionally filtered
+     * with a field selector. Pages are requested as the iterator advances, so an error, as a
+     * {@link KubernetesClientException}, can be thrown by any of its calls.
+     */
+    public Iterator<String> names(String path, String fieldSelector) {
+        return new NameIterator(path, fieldSelector);
+    }
+
+    /**
+     * Number of resources listed at the given API path, reading every page without keeping any of them.
+     */
+    public int count(String path, String fieldSelector) {
+        int count = 0;
+        for (Iterator<String> names = names(path, fieldSelector); names.hasNext(); names.next() ) {
+            count++;
+        }
+        return count;
+    }
+
+    private Page page(String path, String fieldSelector, String continueToken) {
+        final HttpUrl.Builder url = masterUrl.newBuilder();
+        for (String segment : path.split("/") ) {
+            url.addPathSegment(segment);
+        }
+        url.addQueryParameter("limit", String.valueOf(PAGE_SIZE) );
+        if (fieldSelector != null) {
+            url.addQueryParameter("fieldSelector", fieldSelector);
+        }
+        if (continueToken != null) {
+            url.addQueryParameter("continue", continueToken);
+        }
+
+        final Request.Builder request = new Request.Builder().url(url.build() ).header("Accept", METADATA_ONLY);
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+
+        try {
+            final Response response = httpClient.newCall(request.build() ).execute();
+            try (ResponseBody body = response.body() ) {
+                if (!response.isSuccessful() ) {
+                    // An expired continue token is answered with 410 Gone, the list has to start over
+                    throw new KubernetesClientException("Error listing " + path + ": HTTP " + response.code(),
+                        response.code(), null);
+                }
+                return readPage(body.byteStream() );
+            }
+
+        } catch (IOException exception) {
+            throw new KubernetesClientException("Error listing " + path, exception);
+        }
+    }
+
+    static Page readPage(InputStream list) throws IOException {
+        final List<String> names = new ArrayList<>();
+        String continueToken = null;
+
+        try (JsonParser parser = JSON.createParser(list) ) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The list is not a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if ("metadata".equals(field) ) {
+                    continueToken = readString(parser, "continue");
+
+                } else if ("items".equals(field) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        final String name = readName(parser);
+                        if (name != null) {
+                            names.add(name);
+                        }
+                    }
+
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Page(names, StringUtils.isNotEmpty(continueToken) ? continueToken : null);
+    }
+
+    private static String readName(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("metadata".equals(field) ) {
+                name = readString(parser, "name");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Reads the given string field of the object the parser is at, skipping the rest of the object.
+     */
+    private static String readString(JsonParser parser, String fieldName) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if (fieldName.equals(field) && parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                value = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static String authorization(Authentication authData) {
+        if (authData instanceof TokenAuthentication) {
+            return "Bearer " + ( (TokenAuthentication) authData).getAuthToken();
+        } else if (authData instanceof UserAndPasswordAuthentication) {
+            final UserAndPasswordAuthentication userAndPassword = (UserAndPasswordAuthentication) authData;
+            return Credentials.basic(userAndPassword.getUser(), userAndPassword.getPassword() );
+        }
+        return null;
+    }
+
+    private static void trustAllCerts(OkHttpClient.Builder builder) throws GeneralSecurityException {
+        final TrustManager trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[] { trustAll }, new SecureRandom() );
+
+        builder.sslSocketFactory(sslContext.getSocketFactory() )
+            .hostnameVerifier(new HostnameVerifier() {
+                @Override
+                public boolean verify(String hostname, SSLSession session) {
+                    return true;
+                }
+            });
+    }
+
+    /**
+     * Trusts the given CA certificates, in PEM format or, as the fabric8 client accepts them, Base64 encoded.
+     */
+    private static void trustServerCert(OkHttpClient.Builder builder, String serverCert)
+            throws GeneralSecurityException, IOException {
+
+        final byte[] pem = serverCert.contains("-----BEGIN")
+            ? serverCert.getBytes(UTF_8)
+            : Base64.decodeBase64(serverCert);
+
+        final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType() );
+        keyStore.load(null, null);
+
+        int index = 0;
+        for (Certificate certificate : CertificateFactory.getInstance("X.509")
+                .generateCertificates(new ByteArrayInputStream(pem) ) ) {
+            keyStore.setCertificateEntry("serverCert" + index++, certificate);
+        }
+
+        final TrustManagerFactory trustManagerFactory =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm() );
+        trustManagerFactory.init(keyStore);
+
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), new SecureRandom() );
+        builder.sslSocketFactory(sslContext.getSocketFactory() );
+    }
+
+    static class Page {
+
+        private final List<String> names;
+        private final String continueToken;
+
+        Page(List<String> names, String continueToken) {
+            this.names = Collections.unmodifiableList(names);
+            this.continueToken = continueToken;
+        }
+
+        List<String> getNames() {
+            return names;
+        }
+
+        String getContinueToken() {
+            return continueToken;
+        }
+    }
+
+    private class NameIterator implements Iterator<String> {
+
+        private final String path;
+        private final String fieldSelector;
+
+        private Iterator<String> page = Collections.emptyIterator();
+        private String continueToken;
+        private boolean lastPage;
+
+        NameIterator(String path, String fieldSelector) {
+            this.path = path;
+            this.fieldSelector = fieldSelector;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Pages can come back empty, with a continue token, while the server filters the items
+            while (!page.hasNext() && !lastPage) {
+                final Page next = page(path, fieldSelector, continueToken);
+                page = next.getNames().iterator();
+                continueToken = next.getContinueToken();
+                lastPage = (continueToken == null);
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.retry;
+
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Retries Kubernetes API calls that failed because of a transient error (throttling, server errors, expired
+ * resource versions or broken connections) using exponential backoff with full jitter. Every operation type has its
+ * own attempt budget, and creations and deletions are idempotency-aware: a conflict on a retried creation or a
+ * not found on a retried deletion means that a previous attempt already succeeded. The result of the operation is
+ * then read again, when the operation has one, as the response of the successful attempt was lost.
+ *
+ * <p>The retries, the operations recovered by a retry and those that exhausted their attempt budget are counted per
+ * operation type.</p>
+ */
+@Singleton
+public class RetryPolicy {
+
+    private static final Logger LOGGER = Logger.getLogger(RetryPolicy.class.getName() );
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_GONE = 410;
+
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 200;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+
+    public enum OperationType {
+        READ(4),
+        LIST(4),
+        CREATE(5),
+        UPDATE(4),
+        DELETE(5);
+
+        private final int maxAttempts;
+
+        OperationType(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+    }
+
+    public interface Operation<T> {
+        T call() throws RepositoryException;
+    }
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final Map<OperationType, AtomicLong> retries = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, AtomicLong> recovered = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, AtomicLong> exhausted = new EnumMap<>(OperationType.class);
+
+    public RetryPolicy() {
+        this(DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public RetryPolicy(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+
+        for (OperationType type : OperationType.values() ) {
+            retries.put(type, new AtomicLong() );
+            recovered.put(type, new AtomicLong() );
+            exhausted.put(type, new AtomicLong() );
+        }
+    }
+
+    /**
+     * Executes an operation with no result, like the creations and deletions that return nothing: it returns null
+     * when a retried attempt finds that a previous attempt was already applied.
+     */
+    public <T> T execute(OperationType type, String description, Operation<T> operation)
+            throws RepositoryException {
+
+        return execute(type, description, operation, null);
+    }
+
+    /**
+     * Executes an operation, reading its result with the given operation when a retried attempt finds that a
+     * previous attempt was already applied, so the caller gets the resource that attempt created.
+     */
+    public <T> T execute(OperationType type, String description, Operation<T> operation, Operation<T> readApplied)
+            throws RepositoryException {
+
+        int attempt = 1;
+        while (true) {
+            try {
+                final T result = operation.call();
+                if (attempt > 1) {
+                    recovered.get(type).incrementAndGet();
+                    LOGGER.info(description + " succeeded after " + attempt + " attempts");
+                }
+                return result;
+
+            } catch (KubernetesClientException exception) {
+                if (attempt > 1 && isAlreadyApplied(type, exception) ) {
+                    recovered.get(type).incrementAndGet();
+                    LOGGER.info(description + " already applied by a previous attempt (HTTP "
+                            + exception.getCode() + ")");
+                    return (readApplied != null) ? readApplied.call() : null;
+                }
+
+                if (!isTransient(exception) ) {
+                    throw exception;
+                }
+
+                if (attempt >= type.getMaxAttempts() ) {
+                    exhausted.get(type).incrementAndGet();
+                    LOGGER.severe(description + " failed after " + attempt + " attempts: " + exception.getMessage() );
+                    throw exception;
+                }
+
+                final long delay = backoffDelay(attempt);
+                retries.get(type).incrementAndGet();
+                LOGGER.warning(description + " failed with a transient error (attempt " + attempt + " of "
+                        + type.getMaxAttempts() + "), retrying in " + delay + " ms: " + exception.getMessage() );
+
+                sleep(delay);
+                attempt++;
+            }
+        }
+    }
+
+    public long getRetries(OperationType type) {
+        return retries.get(type).get();
+    }
+
+    public long getRecovered(OperationType type) {
+        return recovered.get(type).get();
+    }
+
+    public long getExhausted(OperationType type) {
+        return exhausted.get(type).get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("RetryPolicy [");
+        for (OperationType type : OperationType.values() ) {
+            sb.append(type).append("=[retries=").append(getRetries(type) )
+                .append(", recovered=").append(getRecovered(type) )
+                .append(", exhausted=").append(getExhausted(type) ).append("] ");
+        }
+        return sb.append(']').toString();
+    }
+
+    static boolean isTransient(KubernetesClientException exception) {
+        final int code = exception.getCode();
+        if (code == HTTP_TOO_MANY_REQUESTS || code == HTTP_GONE || code >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+            return true;
+        }
+
+        Throwable cause = exception.getCause();
+        while (cause != null) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private static boolean isAlreadyApplied(OperationType type, KubernetesClientException exception) {
+        switch (type) {
+            case CREATE:
+                return exception.getCode() == HttpURLConnection.HTTP_CONFLICT;
+            case DELETE:
+                return exception.getCode() == HttpURLConnection.HTTP_NOT_FOUND;
+            default:
+                return false;
+        }
+    }
+
+    private long backoffDelay(int attempt) {
+        final long exponential = baseDelayMillis << Math.min(attempt - 1, 16);
+        final long cap = Math.min(maxDelayMillis, exponential);
+        return (cap > 0) ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    private static void sleep(long delay) throws RepositoryException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting to retry", exception);
+        }
+    }
+}
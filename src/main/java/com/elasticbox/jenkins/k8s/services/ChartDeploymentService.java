@@ -11,15 +11,55 @@ package com.elasticbox.jenkins.k8s.services;
 import com.elasticbox.jenkins.k8s.chart.Chart;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
+import io.fabric8.kubernetes.api.model.Namespace;
 
+import java.util.List;
 import java.util.Map;
 
 public interface ChartDeploymentService {
 
+    /**
+     * Deploys the chart into the namespace. Concurrent deployments of the same chart into the same namespace are
+     * coalesced: only one of them is executed and the others share its result, adding their label to the resources
+     * it deployed. Every deployment takes a reference to the chart, to be given back with
+     * {@link #releaseChart(String, String, ChartRepo, String)}.
+     */
     Chart deployChart(String kubeName, String namespace, ChartRepo chartRepo, String chartName,
-                      Map<String, String> label) throws ServiceException;
+                      Map<String, String> label, TaskLogger taskLogger) throws ServiceException;
+
+    /**
+     * Gives back a reference taken when deploying the chart, and returns whether it was the last one, so the chart
+     * is not used by any other build and can be deleted.
+     */
+    boolean releaseChart(String kubeName, String namespace, ChartRepo chartRepo, String chartName);
+
+    /**
+     * Waits until every Pod and ReplicationController of the deployed chart is ready, failing as soon as one of
+     * their containers cannot become ready or when the timeout expires.
+     */
+    void waitUntilReady(String kubeName, String namespace, Chart chart, long timeoutMillis, TaskLogger taskLogger)
+            throws ServiceException;
 
     void deleteChart(String kubeName, String namespace, ChartRepo chartRepo, String chartName) throws ServiceException;
 
     void deleteChart(String kubeName, String namespace, Chart chart) throws ServiceException;
+
+    /**
+     * Deletes the Services, ReplicationControllers and Pods of the namespace that are not part of the chart, like
+     * those created by a build. The Pods of the ReplicationControllers of the chart are kept. Other kinds of
+     * resources are not looked at.
+     */
+    void deleteResourcesNotInChart(String kubeName, String namespace, Chart chart) throws ServiceException;
+
+    void createNamespace(String kubeName, String namespace, Map<String, String> labels,
+                         Map<String, String> annotations) throws ServiceException;
+
+    List<Namespace> getNamespaces(String kubeName, Map<String, String> labels) throws ServiceException;
+
+    /**
+     * Deletes a namespace together with every chart deployed into it, without waiting for its resources to be
+     * terminated.
+     */
+    void deleteNamespace(String kubeName, String namespace) throws ServiceException;
 }
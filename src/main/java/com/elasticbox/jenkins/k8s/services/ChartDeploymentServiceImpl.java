@@ -8,24 +8,47 @@
 
 package com.elasticbox.jenkins.k8s.services;
 
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import com.elasticbox.jenkins.k8s.chart.Chart;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartResources;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
 import com.elasticbox.jenkins.k8s.repositories.ReplicationControllerRepository;
 import com.elasticbox.jenkins.k8s.repositories.ServiceRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.services.deployment.ApplyResourceOperation;
+import com.elasticbox.jenkins.k8s.services.deployment.ChartDeploymentEngine;
+import com.elasticbox.jenkins.k8s.services.deployment.ChartDeploymentPlan;
+import com.elasticbox.jenkins.k8s.services.deployment.ChartReadinessTracker;
+import com.elasticbox.jenkins.k8s.services.deployment.DeploymentStage;
+import com.elasticbox.jenkins.k8s.services.deployment.ResourceOperation;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
+import io.fabric8.kubernetes.api.model.Namespace;
+import io.fabric8.kubernetes.api.model.NamespaceBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Singleton
@@ -33,12 +56,25 @@ public class ChartDeploymentServiceImpl implements ChartDeploymentService {
 
     private static final Logger LOGGER = Logger.getLogger(ChartDeploymentServiceImpl.class.getName() );
 
+    private static final int MAX_PARALLEL_OPERATIONS = 8;
+
+    private static final long POD_DELETION_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long POD_DELETION_POLL_MILLIS = 500;
+
+    // Pods are listed periodically while waiting for readiness, in case a watch event was missed
+    private static final long READINESS_RECONCILE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
     private final KubernetesRepository kubernetesRepository;
     private final ChartRepository chartRepository;
     private final ServiceRepository serviceRepository;
     private final PodRepository podRepository;
     private final ReplicationControllerRepository replicationControllerRepository;
 
+    private final ChartDeploymentEngine deploymentEngine = new ChartDeploymentEngine(MAX_PARALLEL_OPERATIONS);
+
+    // Deployments in flight or in use by some build, by cloud, namespace and chart. Guarded by itself
+    private final Map<String, SharedDeployment> sharedDeployments = new HashMap<>();
+
     @Inject
     public ChartDeploymentServiceImpl(KubernetesRepository kubernetesRepository, ChartRepository chartRepository,
                                       ServiceRepository serviceRepository, PodRepository podRepository,
@@ -53,46 +89,437 @@ public class ChartDeploymentServiceImpl implements ChartDeploymentService {
 
     @Override
     public Chart deployChart(String kubeName, String namespace, ChartRepo chartRepo, String chartName,
-                             Map<String, String> label)
-            throws ServiceException {
+                             Map<String, String> label, TaskLogger taskLogger) throws ServiceException {
+
+        final String key = deploymentKey(kubeName, namespace, chartRepo, chartName);
+        final SharedDeployment deployment;
+        final boolean inFlight;
+
+        synchronized (sharedDeployments) {
+            SharedDeployment existing = sharedDeployments.get(key);
+            if (existing == null) {
+                existing = new SharedDeployment();
+                sharedDeployments.put(key, existing);
+            }
+            existing.references++;
+
+            inFlight = existing.result != null && !existing.result.isDone();
+            if (!inFlight) {
+                existing.result = SettableFuture.create();
+            }
+            deployment = existing;
+        }
+
+        if (inFlight) {
+            if (taskLogger != null) {
+                taskLogger.info("Chart [" + chartName + "] is already being deployed into namespace [" + namespace
+                        + "], waiting for that deployment");
+            }
+            try {
+                // The shared deployment only carries the labels of the build that executed it
+                final Chart chart = deployment.await(chartName);
+                labelChart(kubeName, namespace, chart, label, taskLogger);
+                return chart;
 
+            } catch (ServiceException | RuntimeException exception) {
+                dropReference(key, deployment);
+                throw exception;
+            }
+        }
+
+        final SettableFuture<Chart> result = deployment.result;
         try {
+            final Chart chart = doDeployChart(kubeName, namespace, chartRepo, chartName, label, taskLogger);
+            result.set(chart);
+            return chart;
+
+        } catch (ServiceException | RuntimeException exception) {
+            // The builds that waited for the failed deployment get the error and give back their references, while
+            // the builds still using the chart of an earlier deployment keep theirs
+            dropReference(key, deployment);
+            result.setException(exception);
+            throw exception;
+        }
+    }
+
+    @Override
+    public boolean releaseChart(String kubeName, String namespace, ChartRepo chartRepo, String chartName) {
+        final String key = deploymentKey(kubeName, namespace, chartRepo, chartName);
+
+        synchronized (sharedDeployments) {
+            final SharedDeployment deployment = sharedDeployments.get(key);
+            if (deployment == null) {
+                return true;
+            }
+
+            if (dropReference(key, deployment) ) {
+                return true;
+            }
+
+            if (LOGGER.isLoggable(Level.CONFIG) ) {
+                LOGGER.config("Chart [" + chartName + "] in namespace [" + namespace + "] still used by "
+                        + deployment.references + " builds");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Gives back a reference to the deployment, which is forgotten once no build is using it. Returns whether it was
+     * the last reference.
+     */
+    private boolean dropReference(String key, SharedDeployment deployment) {
+        synchronized (sharedDeployments) {
+            deployment.references--;
+            if (deployment.references > 0) {
+                return false;
+            }
+
+            if (sharedDeployments.get(key) == deployment) {
+                sharedDeployments.remove(key);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Charts are always deployed from the default ref of their repository, the build steps have no ref setting.
+     */
+    static String deploymentKey(String kubeName, String namespace, ChartRepo chartRepo, String chartName) {
+        return kubeName + "/" + namespace + "/" + chartRepo.getType() + ":" + chartRepo.getUrl() + "/" + chartName;
+    }
+
+    private Chart doDeployChart(final String kubeName, final String namespace, ChartRepo chartRepo, String chartName,
+                                final Map<String, String> label, TaskLogger taskLogger) throws ServiceException {
+
+        try {
+            final long start = System.currentTimeMillis();
             final Chart chart = chartRepository.chart(chartRepo, chartName);
 
-            if ( !kubernetesRepository.namespaceExists(kubeName, namespace)) {
-                LOGGER.warning("Namespace not found, creating it: " + namespace);
-                kubernetesRepository.createNamespece(kubeName, namespace);
+            final ChartDeploymentPlan plan = new ChartDeploymentPlan();
+
+            plan.add(DeploymentStage.NAMESPACE, new ResourceOperation("Namespace", namespace) {
+                @Override
+                public Outcome execute() throws RepositoryException {
+                    return kubernetesRepository.createNamespaceIfAbsent(kubeName, namespace)
+                            ? Outcome.CREATED : Outcome.ALREADY_EXISTS;
+                }
+            });
+
+            final Set<String> buildLabels = (label != null) ? label.keySet() : Collections.<String>emptySet();
+
+            // Changed Pods are deleted by the engine and created again by this thread once they are gone, so the
+            // threads of the engine, shared by every deployment, never wait for the termination of a Pod
+            final List<Pod> podsToRecreate = Collections.synchronizedList(new ArrayList<Pod>() );
+
+            if (chart.getServices() != null) {
+                for (final Service service : chart.getServices() ) {
+                    plan.add(DeploymentStage.SERVICES, new ApplyResourceOperation<Service>("Service", service,
+                            buildLabels) {
+                        @Override
+                        protected Service get(String name) throws RepositoryException {
+                            return serviceRepository.get(kubeName, namespace, name);
+                        }
+
+                        @Override
+                        protected void create(Service resource) throws RepositoryException {
+                            serviceRepository.create(kubeName, namespace, resource, label);
+                        }
+
+                        @Override
+                        protected Outcome update(Service resource) throws RepositoryException {
+                            serviceRepository.replace(kubeName, namespace, resource, label);
+                            return Outcome.REPLACED;
+                        }
+                    });
+                }
+            }
+
+            if (chart.getReplicationControllers() != null) {
+                for (final ReplicationController replicationController : chart.getReplicationControllers() ) {
+                    plan.add(DeploymentStage.WORKLOADS, new ApplyResourceOperation<ReplicationController>(
+                            "ReplicationController", replicationController, buildLabels) {
+                        @Override
+                        protected ReplicationController get(String name) throws RepositoryException {
+                            return replicationControllerRepository.get(kubeName, namespace, name);
+                        }
+
+                        @Override
+                        protected void create(ReplicationController resource) throws RepositoryException {
+                            replicationControllerRepository.create(kubeName, namespace, resource, label);
+                        }
+
+                        @Override
+                        protected Outcome update(ReplicationController resource) throws RepositoryException {
+                            replicationControllerRepository.replace(kubeName, namespace, resource, label);
+                            return Outcome.REPLACED;
+                        }
+                    });
+                }
+            }
+
+            if (chart.getPods() != null) {
+                for (final Pod pod : chart.getPods() ) {
+                    plan.add(DeploymentStage.WORKLOADS, new ApplyResourceOperation<Pod>("Pod", pod, buildLabels) {
+                        @Override
+                        protected Pod get(String name) throws RepositoryException {
+                            return podRepository.getPod(kubeName, namespace, name);
+                        }
+
+                        @Override
+                        protected void create(Pod resource) throws RepositoryException {
+                            podRepository.create(kubeName, namespace, resource, label);
+                        }
+
+                        @Override
+                        protected Outcome update(Pod resource) throws RepositoryException {
+                            // The spec of a Pod cannot be replaced, the Pod is deleted and created again
+                            podRepository.delete(kubeName, namespace, resource.getMetadata().getName() );
+                            podsToRecreate.add(resource);
+                            return Outcome.RECREATED;
+                        }
+                    });
+                }
             }
 
+            deploymentEngine.execute(plan, taskLogger);
+            recreatePods(kubeName, namespace, podsToRecreate, label);
+
+            if (taskLogger != null) {
+                taskLogger.info("Chart [" + chartName + "] deployed (" + plan.size() + " resources) in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+            return chart;
+
+        } catch (RepositoryException exception) {
+            final String message = "Error accessing/creating namespace [" + namespace + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+
+        } catch (KubernetesClientException exception) {
+            final String message = "Error in Kubernetes client trying to deploy chart [" + chartName + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    /**
+     * Adds the labels of a build to the resources of a chart deployed by another build, leaving everything else as
+     * that deployment left it.
+     */
+    private void labelChart(final String kubeName, final String namespace, Chart chart,
+                            final Map<String, String> label, TaskLogger taskLogger) throws ServiceException {
+
+        if (label == null || label.isEmpty() ) {
+            return;
+        }
+
+        try {
+            final List<ResourceOperation> operations = new ArrayList<>();
+
             if (chart.getServices() != null) {
                 for (Service service : chart.getServices() ) {
-                    serviceRepository.create(kubeName, namespace, service, label);
+                    final String serviceName = service.getMetadata().getName();
+                    operations.add(new ResourceOperation("Service", serviceName) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            serviceRepository.addLabels(kubeName, namespace, serviceName, label);
+                            return Outcome.LABELED;
+                        }
+                    });
                 }
             }
 
             if (chart.getReplicationControllers() != null) {
                 for (ReplicationController replicationController : chart.getReplicationControllers() ) {
-                    replicationControllerRepository.create(kubeName, namespace, replicationController, label);
+                    final String controllerName = replicationController.getMetadata().getName();
+                    operations.add(new ResourceOperation("ReplicationController", controllerName) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            replicationControllerRepository.addLabels(kubeName, namespace, controllerName, label);
+                            return Outcome.LABELED;
+                        }
+                    });
                 }
             }
 
             if (chart.getPods() != null) {
                 for (Pod pod : chart.getPods() ) {
-                    podRepository.create(kubeName, namespace, pod, label);
+                    final String podName = pod.getMetadata().getName();
+                    operations.add(new ResourceOperation("Pod", podName) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            podRepository.addLabels(kubeName, namespace, podName, label);
+                            return Outcome.LABELED;
+                        }
+                    });
                 }
             }
 
-            return chart;
+            deploymentEngine.executeAll(operations, taskLogger);
 
         } catch (RepositoryException exception) {
-            final String message = "Error accessing/creating namespace [" + namespace + "]. ";
+            final String message = "Error labeling chart [" + chart.getName() + "] in namespace [" + namespace
+                    + "]. ";
             LOGGER.severe(message + exception.getMessage() );
             throw new ServiceException(message, exception);
 
         } catch (KubernetesClientException exception) {
-            final String message = "Error in Kubernetes client trying to deploy chart [" + chartName + "]. ";
+            final String message = "Error in Kubernetes client trying to label chart [" + chart.getName() + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    @Override
+    public void waitUntilReady(String kubeName, final String namespace, Chart chart, long timeoutMillis,
+                               final TaskLogger taskLogger) throws ServiceException {
+
+        final ChartReadinessTracker tracker = new ChartReadinessTracker(chart);
+        if (!tracker.hasWorkloads() ) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeoutMillis;
+
+        Watch watch = null;
+        try {
+            watch = podRepository.watchPods(kubeName, namespace, new Watcher<Pod>() {
+                @Override
+                public void eventReceived(Action action, Pod pod) {
+                    if (action == Action.ERROR) {
+                        return;
+                    }
+                    synchronized (tracker) {
+                        logReadiness(taskLogger, tracker.update(pod, action == Action.DELETED) );
+                        tracker.notifyAll();
+                    }
+                }
+
+                @Override
+                public void onClose(KubernetesClientException cause) {
+                    if (cause != null) {
+                        LOGGER.warning("Pod watch closed in namespace " + namespace + ": " + cause.getMessage() );
+                    }
+                }
+            });
+
+            long lastReconcile = 0;
+            while (true) {
+                if (System.currentTimeMillis() - lastReconcile >= READINESS_RECONCILE_MILLIS) {
+                    final List<Pod> pods = listChartPods(kubeName, namespace, chart);
+                    lastReconcile = System.currentTimeMillis();
+                    synchronized (tracker) {
+                        logReadiness(taskLogger, tracker.reset(pods) );
+                    }
+                }
+
+                synchronized (tracker) {
+                    final String failure = tracker.getFailure();
+                    if (failure != null) {
+                        throw new ServiceException("Chart [" + chart.getName() + "] cannot become ready. " + failure);
+                    }
+
+                    if (tracker.isReady() ) {
+                        break;
+                    }
+
+                    final long now = System.currentTimeMillis();
+                    if (now >= deadline) {
+                        throw new ServiceException("Timeout waiting for chart [" + chart.getName()
+                                + "] to be ready. Pending: " + tracker.getPendingSummary() );
+                    }
+                    tracker.wait(Math.max(1, Math.min(deadline - now,
+                            READINESS_RECONCILE_MILLIS - (now - lastReconcile) ) ) );
+                }
+            }
+
+            if (taskLogger != null) {
+                taskLogger.info("Chart [" + chart.getName() + "] ready in " + (System.currentTimeMillis() - start)
+                        + " ms");
+            }
+
+        } catch (RepositoryException exception) {
+            final String message = "Error watching the Pods of chart [" + chart.getName() + "]. ";
             LOGGER.severe(message + exception.getMessage() );
             throw new ServiceException(message, exception);
+
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted waiting for chart [" + chart.getName() + "] to be ready",
+                    exception);
+        } finally {
+            if (watch != null) {
+                watch.close();
+            }
+        }
+    }
+
+    /**
+     * The Pods of the chart and those selected by its ReplicationControllers, without listing the rest of the Pods
+     * of the namespace, like the ones of the builds.
+     */
+    private List<Pod> listChartPods(String kubeName, String namespace, Chart chart) throws RepositoryException {
+        final Map<String, Pod> pods = new HashMap<>();
+
+        if (chart.getReplicationControllers() != null) {
+            for (ReplicationController controller : chart.getReplicationControllers() ) {
+                final Map<String, String> selector = ChartResources.selector(controller);
+                if (selector == null || selector.isEmpty() ) {
+                    continue;
+                }
+                for (Pod pod : podRepository.getPods(kubeName, namespace, selector) ) {
+                    pods.put(pod.getMetadata().getName(), pod);
+                }
+            }
+        }
+
+        if (chart.getPods() != null) {
+            for (Pod chartPod : chart.getPods() ) {
+                final Pod pod = podRepository.getPod(kubeName, namespace, chartPod.getMetadata().getName() );
+                if (pod != null) {
+                    pods.put(pod.getMetadata().getName(), pod);
+                }
+            }
+        }
+        return new ArrayList<>(pods.values() );
+    }
+
+    private static void logReadiness(TaskLogger taskLogger, List<String> messages) {
+        for (String message : messages) {
+            if (taskLogger != null) {
+                taskLogger.info(message);
+            } else {
+                LOGGER.info(message);
+            }
+        }
+    }
+
+    private void recreatePods(String kubeName, String namespace, List<Pod> pods, Map<String, String> label)
+            throws RepositoryException {
+
+        // The deleted Pods terminate at the same time, so they all share the same deadline
+        final long deadline = System.currentTimeMillis() + POD_DELETION_TIMEOUT_MILLIS;
+        for (Pod pod : pods) {
+            waitUntilPodDeleted(kubeName, namespace, pod.getMetadata().getName(), deadline);
+            podRepository.create(kubeName, namespace, pod, label);
+        }
+    }
+
+    private void waitUntilPodDeleted(String kubeName, String namespace, String podName, long deadline)
+            throws RepositoryException {
+
+        while (podRepository.getPod(kubeName, namespace, podName) != null) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new RepositoryException("Timeout waiting for the deletion of Pod: " + podName);
+            }
+            try {
+                Thread.sleep(POD_DELETION_POLL_MILLIS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Interrupted waiting for the deletion of Pod: " + podName, exception);
+            }
         }
     }
 
@@ -113,7 +540,7 @@ public class ChartDeploymentServiceImpl implements ChartDeploymentService {
     }
 
     @Override
-    public void deleteChart(String kubeName, String namespace, Chart chart) throws ServiceException {
+    public void deleteChart(final String kubeName, final String namespace, Chart chart) throws ServiceException {
 
         try {
             if ( !kubernetesRepository.namespaceExists(kubeName, namespace)) {
@@ -121,24 +548,49 @@ public class ChartDeploymentServiceImpl implements ChartDeploymentService {
                 return;
             }
 
+            // Resources are independent of each other once the chart is being removed, so they are all deleted
+            // at the same time, and none of the deletions waits for the termination of the Pods
+            final List<ResourceOperation> operations = new ArrayList<>();
+
             if (chart.getServices() != null) {
-                for (Service service : chart.getServices() ) {
-                    serviceRepository.delete(kubeName, namespace, service);
+                for (final Service service : chart.getServices() ) {
+                    operations.add(new ResourceOperation("Service", service.getMetadata().getName() ) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            serviceRepository.delete(kubeName, namespace, service);
+                            return Outcome.DELETED;
+                        }
+                    });
                 }
             }
 
             if (chart.getReplicationControllers() != null) {
-                for (ReplicationController replicationController : chart.getReplicationControllers() ) {
-                    replicationControllerRepository.delete(kubeName, namespace, replicationController);
+                for (final ReplicationController replicationController : chart.getReplicationControllers() ) {
+                    operations.add(new ResourceOperation("ReplicationController",
+                            replicationController.getMetadata().getName() ) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            replicationControllerRepository.delete(kubeName, namespace, replicationController);
+                            return Outcome.DELETED;
+                        }
+                    });
                 }
             }
 
             if (chart.getPods() != null) {
-                for (Pod pod : chart.getPods() ) {
-                    podRepository.delete(kubeName, namespace, pod);
+                for (final Pod pod : chart.getPods() ) {
+                    operations.add(new ResourceOperation("Pod", pod.getMetadata().getName() ) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            podRepository.delete(kubeName, namespace, pod);
+                            return Outcome.DELETED;
+                        }
+                    });
                 }
             }
 
+            deploymentEngine.executeAll(operations, null);
+
         } catch (RepositoryException exception) {
             final String message = "Error accessing namespace [" + namespace + "]. ";
             LOGGER.severe(message + exception.getMessage() );
@@ -150,4 +602,187 @@ public class ChartDeploymentServiceImpl implements ChartDeploymentService {
             throw new ServiceException(message, exception);
         }
     }
+
+    @Override
+    public void deleteResourcesNotInChart(final String kubeName, final String namespace, Chart chart)
+            throws ServiceException {
+
+        final Set<String> chartServices = new HashSet<>();
+        final Set<String> chartControllers = new HashSet<>();
+        final Set<String> chartPods = new HashSet<>();
+        final List<Map<String, String>> chartSelectors = new ArrayList<>();
+
+        if (chart.getServices() != null) {
+            for (Service service : chart.getServices() ) {
+                chartServices.add(service.getMetadata().getName() );
+            }
+        }
+        if (chart.getReplicationControllers() != null) {
+            for (ReplicationController controller : chart.getReplicationControllers() ) {
+                chartControllers.add(controller.getMetadata().getName() );
+                final Map<String, String> selector = ChartResources.selector(controller);
+                if (selector != null && !selector.isEmpty() ) {
+                    chartSelectors.add(selector);
+                }
+            }
+        }
+        if (chart.getPods() != null) {
+            for (Pod pod : chart.getPods() ) {
+                chartPods.add(pod.getMetadata().getName() );
+            }
+        }
+
+        try {
+            final List<ResourceOperation> operations = new ArrayList<>();
+
+            for (final Service service : serviceRepository.getServices(kubeName, namespace) ) {
+                if (!chartServices.contains(service.getMetadata().getName() ) ) {
+                    operations.add(new ResourceOperation("Service", service.getMetadata().getName() ) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            serviceRepository.delete(kubeName, namespace, service);
+                            return Outcome.DELETED;
+                        }
+                    });
+                }
+            }
+
+            for (final ReplicationController controller
+                    : replicationControllerRepository.getReplicationControllers(kubeName, namespace) ) {
+
+                if (!chartControllers.contains(controller.getMetadata().getName() ) ) {
+                    operations.add(new ResourceOperation("ReplicationController",
+                            controller.getMetadata().getName() ) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            replicationControllerRepository.delete(kubeName, namespace, controller);
+                            return Outcome.DELETED;
+                        }
+                    });
+                }
+            }
+
+            for (final Pod pod : podRepository.getPods(kubeName, namespace) ) {
+                final String podName = pod.getMetadata().getName();
+                if (!chartPods.contains(podName) && !isSelected(pod, chartSelectors) ) {
+                    operations.add(new ResourceOperation("Pod", podName) {
+                        @Override
+                        public Outcome execute() throws RepositoryException {
+                            podRepository.delete(kubeName, namespace, podName);
+                            return Outcome.DELETED;
+                        }
+                    });
+                }
+            }
+
+            if (!operations.isEmpty() ) {
+                LOGGER.info("Deleting " + operations.size() + " resources not in chart [" + chart.getName()
+                        + "] from namespace [" + namespace + "]");
+                deploymentEngine.executeAll(operations, null);
+            }
+
+        } catch (RepositoryException | KubernetesClientException exception) {
+            final String message = "Error deleting the resources not in chart [" + chart.getName()
+                    + "] from namespace [" + namespace + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    private static boolean isSelected(Pod pod, List<Map<String, String>> selectors) {
+        final Map<String, String> labels = pod.getMetadata().getLabels();
+        if (labels == null) {
+            return false;
+        }
+        for (Map<String, String> selector : selectors) {
+            if (labels.entrySet().containsAll(selector.entrySet() ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void createNamespace(String kubeName, String namespace, Map<String, String> labels,
+                                Map<String, String> annotations) throws ServiceException {
+
+        final Namespace newNamespace = new NamespaceBuilder()
+                .withNewMetadata()
+                    .withName(namespace)
+                    .withLabels(labels)
+                    .withAnnotations(annotations)
+                .endMetadata()
+                .build();
+
+        try {
+            kubernetesRepository.createNamespace(kubeName, newNamespace);
+
+        } catch (RepositoryException | KubernetesClientException exception) {
+            final String message = "Error creating namespace [" + namespace + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    @Override
+    public List<Namespace> getNamespaces(String kubeName, Map<String, String> labels) throws ServiceException {
+        try {
+            return kubernetesRepository.getNamespaces(kubeName, labels);
+
+        } catch (RepositoryException | KubernetesClientException exception) {
+            final String message = "Error listing the namespaces labelled " + labels + ". ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    @Override
+    public void deleteNamespace(String kubeName, String namespace) throws ServiceException {
+        // Nothing deployed into the namespace can be shared anymore
+        final String keyPrefix = kubeName + "/" + namespace + "/";
+        synchronized (sharedDeployments) {
+            for (Iterator<String> iterator = sharedDeployments.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().startsWith(keyPrefix) ) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        try {
+            kubernetesRepository.deleteNamespace(kubeName, namespace);
+
+        } catch (RepositoryException | KubernetesClientException exception) {
+            final String message = "Error deleting namespace [" + namespace + "]. ";
+            LOGGER.severe(message + exception.getMessage() );
+            throw new ServiceException(message, exception);
+        }
+    }
+
+    /**
+     * Deployment of a chart shared by the builds that deploy it into the same namespace at the same time. The result
+     * is the one of the deployment in flight or of the last one, and the references are the builds using the chart.
+     */
+    private static class SharedDeployment {
+
+        private SettableFuture<Chart> result;
+        private int references;
+
+        Chart await(String chartName) throws ServiceException {
+            try {
+                return result.get();
+
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof ServiceException) {
+                    throw (ServiceException) exception.getCause();
+                }
+                throw new ServiceException("Error in the shared deployment of chart [" + chartName + "]",
+                        exception.getCause() );
+
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new ServiceException("Interrupted waiting for the deployment of chart [" + chartName + "]",
+                        exception);
+            }
+        }
+    }
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of warm chart environments: namespaces with a chart already deployed, kept between builds and leased to one
+ * build at a time. Environments are pooled by cloud, chart repository and chart, and there are at most as many
+ * environments per pool as requested by the callers; when all of them are leased, new leases wait for a release.
+ * Before being leased again, the chart is redeployed into the environment: its resources edited or removed by the
+ * previous build are deployed again, and the Services, ReplicationControllers and Pods the chart does not own are
+ * deleted. Other kinds of resources created by a build, and data written by the workloads themselves, are kept.
+ * Environments that cannot be reset, and those idle for too long, are deleted.
+ *
+ * <p>Every lease holds a reference to the chart deployment until it is released or discarded.</p>
+ */
+@Singleton
+public class ChartEnvironmentPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartEnvironmentPool.class.getName() );
+
+    public static final String POOL_LABEL = "elastickube.com/chart-pool";
+
+    public static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final long EVICTION_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String NAME_PREFIX = "pool-";
+    private static final int MAX_CHART_NAME_LENGTH = 40;
+    private static final int SUFFIX_LENGTH = 6;
+
+    private final ChartDeploymentService deploymentService;
+    private final ChartTeardownQueue teardownQueue;
+    private final long idleTimeoutMillis;
+
+    // Guarded by this
+    private final Map<String, List<PooledEnvironment>> pools = new HashMap<>();
+
+    @Inject
+    public ChartEnvironmentPool(ChartDeploymentService deploymentService, ChartTeardownQueue teardownQueue) {
+        this(deploymentService, teardownQueue, IDLE_TIMEOUT_MILLIS);
+
+        final ScheduledExecutorService evictionService = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("ChartEnvironmentPool-%d").setDaemon(true).build() );
+
+        evictionService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdleEnvironments();
+            }
+        }, EVICTION_PERIOD_MILLIS, EVICTION_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    ChartEnvironmentPool(ChartDeploymentService deploymentService, ChartTeardownQueue teardownQueue,
+                         long idleTimeoutMillis) {
+        this.deploymentService = deploymentService;
+        this.teardownQueue = teardownQueue;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Leases an environment of the given chart, reusing an idle one if possible and creating a new one while the
+     * pool has less than the maximum environments. The namespaces of new environments get the given labels.
+     */
+    public Lease lease(String kubeName, ChartRepo chartRepo, String chartName, int maxEnvironments,
+                       long timeoutMillis, Map<String, String> namespaceLabels, Map<String, String> label,
+                       TaskLogger taskLogger) throws ServiceException {
+
+        final String key = poolKey(kubeName, chartRepo, chartName);
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        while (true) {
+            final PooledEnvironment environment;
+            final boolean created;
+
+            synchronized (this) {
+                final List<PooledEnvironment> pool = getPool(key);
+                PooledEnvironment idle = null;
+                for (PooledEnvironment candidate : pool) {
+                    if (!candidate.leased && (idle == null || candidate.lastReleased > idle.lastReleased) ) {
+                        idle = candidate;
+                    }
+                }
+
+                if (idle != null) {
+                    environment = idle;
+                    created = false;
+
+                } else if (pool.size() < maxEnvironments) {
+                    environment = new PooledEnvironment(kubeName, newNamespaceName(chartName) );
+                    pool.add(environment);
+                    created = true;
+
+                } else {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new ServiceException("No environment of chart [" + chartName + "] available after "
+                                + timeoutMillis + " ms, all the " + pool.size() + " environments are leased");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        throw new ServiceException("Interrupted waiting for an environment of chart [" + chartName
+                                + "]", exception);
+                    }
+                    continue;
+                }
+                environment.leased = true;
+            }
+
+            Chart chart = null;
+            try {
+                if (created) {
+                    final Map<String, String> labels = new HashMap<>(namespaceLabels);
+                    labels.put(POOL_LABEL, Boolean.TRUE.toString() );
+                    deploymentService.createNamespace(kubeName, environment.namespace, labels,
+                            Collections.<String, String>emptyMap() );
+                }
+
+                // For a reused environment, this is the reset: only what the previous lease changed is redeployed
+                chart = deploymentService.deployChart(kubeName, environment.namespace, chartRepo, chartName, label,
+                        taskLogger);
+                if (!created) {
+                    deploymentService.deleteResourcesNotInChart(kubeName, environment.namespace, chart);
+                }
+
+                environment.leases++;
+                return new Lease(key, environment, chartRepo, chartName, chart, !created);
+
+            } catch (ServiceException | RuntimeException exception) {
+                if (chart != null) {
+                    deploymentService.releaseChart(kubeName, environment.namespace, chartRepo, chartName);
+                }
+                discard(key, environment);
+                if (created) {
+                    throw exception;
+                }
+                if (taskLogger != null) {
+                    taskLogger.info("Pooled environment [" + environment.namespace + "] cannot be reset, "
+                            + "discarded: " + exception.getMessage() );
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives back the environment and the reference to the chart deployment taken by the lease.
+     */
+    public void release(Lease lease) {
+        final PooledEnvironment environment = lease.environment;
+        deploymentService.releaseChart(environment.kubeName, environment.namespace, lease.chartRepo,
+                lease.chartName);
+
+        synchronized (this) {
+            if (!getPool(lease.key).contains(environment) ) {
+                return;
+            }
+
+            environment.leased = false;
+            environment.lastReleased = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config("Pooled environment released: " + environment.namespace + " after "
+                    + environment.leases + " leases");
+        }
+    }
+
+    private void discard(String key, PooledEnvironment environment) {
+        synchronized (this) {
+            getPool(key).remove(environment);
+            notifyAll();
+        }
+        teardownQueue.submitNamespace(environment.kubeName, environment.namespace);
+    }
+
+    void evictIdleEnvironments() {
+        final List<PooledEnvironment> evicted = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            for (List<PooledEnvironment> pool : pools.values() ) {
+                for (Iterator<PooledEnvironment> iterator = pool.iterator(); iterator.hasNext(); ) {
+                    final PooledEnvironment environment = iterator.next();
+                    if (!environment.leased && now - environment.lastReleased >= idleTimeoutMillis) {
+                        iterator.remove();
+                        evicted.add(environment);
+                    }
+                }
+            }
+        }
+
+        for (PooledEnvironment environment : evicted) {
+            LOGGER.info("Deleting idle pooled environment: " + environment.namespace);
+            teardownQueue.submitNamespace(environment.kubeName, environment.namespace);
+        }
+    }
+
+    /**
+     * Whether the namespace belongs to an environment of the pool. Pooled namespaces that do not, left behind for
+     * instance by a restart, can be deleted.
+     */
+    public synchronized boolean isPooled(String kubeName, String namespace) {
+        for (List<PooledEnvironment> pool : pools.values() ) {
+            for (PooledEnvironment environment : pool) {
+                if (environment.kubeName.equals(kubeName) && environment.namespace.equals(namespace) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getEnvironments(String kubeName, ChartRepo chartRepo, String chartName) {
+        final List<PooledEnvironment> pool = pools.get(poolKey(kubeName, chartRepo, chartName) );
+        return (pool != null) ? pool.size() : 0;
+    }
+
+    private List<PooledEnvironment> getPool(String key) {
+        List<PooledEnvironment> pool = pools.get(key);
+        if (pool == null) {
+            pool = new LinkedList<>();
+            pools.put(key, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Pooled charts are always deployed from the default ref of their repository, the build steps have no ref
+     * setting.
+     */
+    static String poolKey(String kubeName, ChartRepo chartRepo, String chartName) {
+        return kubeName + "#" + chartRepo.getType() + ":" + chartRepo.getUrl() + "/" + chartName;
+    }
+
+    static String newNamespaceName(String chartName) {
+        String chartPart = chartName.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-+|-+$", "");
+        if (chartPart.length() > MAX_CHART_NAME_LENGTH) {
+            chartPart = chartPart.substring(0, MAX_CHART_NAME_LENGTH).replaceAll("-+$", "");
+        }
+
+        final String suffix = UUID.randomUUID().toString().replace("-", "").substring(0, SUFFIX_LENGTH);
+        return NAME_PREFIX + (chartPart.isEmpty() ? "" : chartPart + "-") + suffix;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ChartEnvironmentPool " + pools;
+    }
+
+    private static class PooledEnvironment {
+
+        private final String kubeName;
+        private final String namespace;
+
+        private boolean leased;
+        private long lastReleased = System.currentTimeMillis();
+        private int leases;
+
+        PooledEnvironment(String kubeName, String namespace) {
+            this.kubeName = kubeName;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public String toString() {
+            return namespace + (leased ? " (leased)" : " (idle)");
+        }
+    }
+
+    public static class Lease {
+
+        private final String key;
+        private final PooledEnvironment environment;
+        private final ChartRepo chartRepo;
+        private final String chartName;
+        private final Chart chart;
+        private final boolean reused;
+
+        Lease(String key, PooledEnvironment environment, ChartRepo chartRepo, String chartName, Chart chart,
+              boolean reused) {
+            this.key = key;
+            this.environment = environment;
+            this.chartRepo = chartRepo;
+            this.chartName = chartName;
+            this.chart = chart;
+            this.reused = reused;
+        }
+
+        public String getKubeName() {
+            return environment.kubeName;
+        }
+
+        public String getNamespace() {
+            return environment.namespace;
+        }
+
+        public Chart getChart() {
+            return chart;
+        }
+
+        public boolean isReused() {
+            return reused;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Background queue that removes deployed charts, or the ephemeral namespaces they were deployed into, once the
+ * builds that deployed them finished, so the builds do not hold their executors while the resources are deleted.
+ * Failed teardowns are retried with an exponential backoff and the outcome of every teardown is logged and kept in a
+ * bounded history.
+ */
+@Singleton
+public class ChartTeardownQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartTeardownQueue.class.getName() );
+
+    public static final int MAX_ATTEMPTS = 5;
+    public static final long INITIAL_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final int WORKER_THREADS = 2;
+    private static final int MAX_COMPLETED_HISTORY = 100;
+
+    public enum Status {
+        PENDING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final ChartDeploymentService deploymentService;
+    private final int maxAttempts;
+    private final long initialRetryDelayMillis;
+
+    private final ScheduledExecutorService executorService;
+
+    private final Set<Teardown> pending = Collections.newSetFromMap(new ConcurrentHashMap<Teardown, Boolean>() );
+    private final LinkedList<Teardown> completed = new LinkedList<>();
+
+    @Inject
+    public ChartTeardownQueue(ChartDeploymentService deploymentService) {
+        this(deploymentService, MAX_ATTEMPTS, INITIAL_RETRY_DELAY_MILLIS);
+    }
+
+    ChartTeardownQueue(ChartDeploymentService deploymentService, int maxAttempts, long initialRetryDelayMillis) {
+        this.deploymentService = deploymentService;
+        this.maxAttempts = maxAttempts;
+        this.initialRetryDelayMillis = initialRetryDelayMillis;
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("ChartTeardownQueue-%d")
+                .setDaemon(true)
+                .build();
+
+        this.executorService = Executors.newScheduledThreadPool(WORKER_THREADS, threadFactory);
+    }
+
+    public Teardown submit(String kubeName, String namespace, Chart chart) {
+        final Teardown teardown = new Teardown(kubeName, namespace, chart);
+        pending.add(teardown);
+        schedule(teardown, 0);
+        return teardown;
+    }
+
+    public Teardown submitNamespace(String kubeName, String namespace) {
+        return submit(kubeName, namespace, null);
+    }
+
+    private void schedule(final Teardown teardown, long delayMillis) {
+        executorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(teardown);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void execute(Teardown teardown) {
+        teardown.attempts++;
+        try {
+            final long start = System.currentTimeMillis();
+            if (teardown.chart != null) {
+                deploymentService.deleteChart(teardown.kubeName, teardown.namespace, teardown.chart);
+            } else {
+                deploymentService.deleteNamespace(teardown.kubeName, teardown.namespace);
+            }
+
+            LOGGER.info(teardown + " completed in " + (System.currentTimeMillis() - start) + " ms");
+            complete(teardown, Status.SUCCEEDED);
+
+        } catch (ServiceException | RuntimeException exception) {
+            teardown.lastError = (exception instanceof ServiceException)
+                    ? ((ServiceException) exception).getCausedByMessages()
+                    : exception.toString();
+
+            if (teardown.attempts >= maxAttempts) {
+                LOGGER.severe(teardown + " failed after " + teardown.attempts + " attempts: " + teardown.lastError);
+                complete(teardown, Status.FAILED);
+                return;
+            }
+
+            final long delay = initialRetryDelayMillis << (teardown.attempts - 1);
+            LOGGER.warning(teardown + " failed (attempt " + teardown.attempts + " of " + maxAttempts
+                    + "), retrying in " + delay + " ms: " + teardown.lastError);
+            schedule(teardown, delay);
+        }
+    }
+
+    private void complete(Teardown teardown, Status status) {
+        teardown.status = status;
+        pending.remove(teardown);
+
+        synchronized (completed) {
+            completed.addFirst(teardown);
+            if (completed.size() > MAX_COMPLETED_HISTORY) {
+                completed.removeLast();
+            }
+        }
+    }
+
+    public List<Teardown> getPending() {
+        return new ArrayList<>(pending);
+    }
+
+    /**
+     * Most recently completed teardowns, successful or not, the latest first.
+     */
+    public List<Teardown> getCompleted() {
+        synchronized (completed) {
+            return new ArrayList<>(completed);
+        }
+    }
+
+    public static class Teardown {
+
+        private final String kubeName;
+        private final String namespace;
+        private final Chart chart;
+        private final long submitted = System.currentTimeMillis();
+
+        private volatile Status status = Status.PENDING;
+        private volatile int attempts;
+        private volatile String lastError;
+
+        Teardown(String kubeName, String namespace, Chart chart) {
+            this.kubeName = kubeName;
+            this.namespace = namespace;
+            this.chart = chart;
+        }
+
+        public String getKubeName() {
+            return kubeName;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        /**
+         * Name of the chart removed, or null when the whole namespace is deleted.
+         */
+        public String getChartName() {
+            return (chart != null) ? chart.getName() : null;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            final String target = (chart != null)
+                    ? "chart [" + chart.getName() + "] in namespace [" + namespace + "]"
+                    : "namespace [" + namespace + "]";
+
+            return "Teardown of " + target + " of cloud [" + kubeName + "]";
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+
+import java.util.Collection;
+
+/**
+ * Incremental deployment of a chart resource. The resource is created when it does not exist yet, skipped when
+ * the live resource carries the same {@link ResourceContentHash} as the desired one and none of the fields set by the
+ * chart were changed on the cluster, and updated otherwise.
+ */
+public abstract class ApplyResourceOperation<T extends HasMetadata> extends ResourceOperation {
+
+    private final T desired;
+    private final Collection<String> ignoredLabels;
+
+    protected ApplyResourceOperation(String kind, T desired, Collection<String> ignoredLabels) {
+        super(kind, desired.getMetadata().getName() );
+        this.desired = desired;
+        this.ignoredLabels = ignoredLabels;
+    }
+
+    @Override
+    public Outcome execute() throws RepositoryException {
+        final String hash = ResourceContentHash.of(desired, ignoredLabels);
+        final T live = get(getName() );
+
+        if (live == null) {
+            try {
+                create(ResourceContentHash.annotated(desired, hash) );
+                return Outcome.CREATED;
+            } catch (KubernetesClientException exception) {
+                if (isAlreadyExists(exception) ) {
+                    return Outcome.ALREADY_EXISTS;
+                }
+                throw exception;
+            }
+        }
+
+        if (hash.equals(ResourceContentHash.deployedHash(live) ) && ResourceContentHash.matches(desired, live) ) {
+            return Outcome.UNCHANGED;
+        }
+        return update(ResourceContentHash.annotated(desired, hash) );
+    }
+
+    protected abstract T get(String name) throws RepositoryException;
+
+    protected abstract void create(T resource) throws RepositoryException;
+
+    /**
+     * Updates the live resource, returning either {@link Outcome#REPLACED} or {@link Outcome#RECREATED}.
+     */
+    protected abstract Outcome update(T resource) throws RepositoryException;
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes a {@link ChartDeploymentPlan} stage by stage. Operations of the same stage are run in parallel, bounded
+ * by the size of the worker pool, and the next stage only starts once every operation of the current one finished.
+ */
+public class ChartDeploymentEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ChartDeploymentEngine.class.getName() );
+
+    private final ExecutorService executorService;
+
+    public ChartDeploymentEngine(int maxParallelOperations) {
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("ChartDeploymentEngine-%d")
+                .setDaemon(true)
+                .build();
+
+        this.executorService = Executors.newFixedThreadPool(maxParallelOperations, threadFactory);
+    }
+
+    public void execute(ChartDeploymentPlan plan, TaskLogger taskLogger) throws RepositoryException {
+        for (DeploymentStage stage : DeploymentStage.values() ) {
+            final List<ResourceOperation> operations = plan.getOperations(stage);
+            if (operations.isEmpty() ) {
+                continue;
+            }
+
+            final long stageStart = System.currentTimeMillis();
+            executeStage(operations, taskLogger);
+
+            log(taskLogger, "Stage " + stage + " completed (" + operations.size() + " resources) in "
+                    + (System.currentTimeMillis() - stageStart) + " ms");
+        }
+    }
+
+    /**
+     * Executes independent operations, such as the deletion of the resources of a chart, all in parallel.
+     */
+    public void executeAll(List<ResourceOperation> operations, TaskLogger taskLogger) throws RepositoryException {
+        if (!operations.isEmpty() ) {
+            executeStage(operations, taskLogger);
+        }
+    }
+
+    private void executeStage(List<ResourceOperation> operations, final TaskLogger taskLogger)
+            throws RepositoryException {
+
+        final List<Callable<Void>> tasks = new ArrayList<>(operations.size() );
+        for (final ResourceOperation operation : operations) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    final long start = System.currentTimeMillis();
+                    final ResourceOperation.Outcome outcome = operation.execute();
+                    final long elapsed = System.currentTimeMillis() - start;
+
+                    switch (outcome) {
+                        case ALREADY_EXISTS:
+                            log(taskLogger, operation + " already exists, skipped in " + elapsed + " ms");
+                            break;
+                        case UNCHANGED:
+                            log(taskLogger, operation + " unchanged, skipped in " + elapsed + " ms");
+                            break;
+                        case REPLACED:
+                            log(taskLogger, operation + " changed, replaced in " + elapsed + " ms");
+                            break;
+                        case RECREATED:
+                            log(taskLogger, operation + " changed, recreated in " + elapsed + " ms");
+                            break;
+                        case LABELED:
+                            log(taskLogger, operation + " labeled in " + elapsed + " ms");
+                            break;
+                        case DELETED:
+                            log(taskLogger, operation + " deleted in " + elapsed + " ms");
+                            break;
+                        default:
+                            log(taskLogger, operation + " created in " + elapsed + " ms");
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final List<Future<Void>> futures;
+        try {
+            futures = executorService.invokeAll(tasks);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Chart deployment interrupted", exception);
+        }
+
+        Throwable firstFailure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException exception) {
+                LOGGER.severe("Error executing " + operations.get(i) + ": " + exception.getCause() );
+                if (firstFailure == null) {
+                    firstFailure = exception.getCause();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Chart deployment interrupted", exception);
+            }
+        }
+
+        if (firstFailure instanceof RepositoryException) {
+            throw (RepositoryException) firstFailure;
+        } else if (firstFailure instanceof RuntimeException) {
+            throw (RuntimeException) firstFailure;
+        } else if (firstFailure != null) {
+            throw new RepositoryException("Error executing chart resource operations", firstFailure);
+        }
+    }
+
+    private static void log(TaskLogger taskLogger, String message) {
+        if (taskLogger != null) {
+            taskLogger.info(message);
+        } else if (LOGGER.isLoggable(Level.CONFIG) ) {
+            LOGGER.config(message);
+        }
+    }
+
+}
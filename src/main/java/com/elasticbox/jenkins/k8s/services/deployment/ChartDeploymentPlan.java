@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency graph of the operations needed to deploy a chart, grouped by {@link DeploymentStage}.
+ */
+public class ChartDeploymentPlan {
+
+    private final Map<DeploymentStage, List<ResourceOperation>> stages = new EnumMap<>(DeploymentStage.class);
+
+    private int size = 0;
+
+    public ChartDeploymentPlan add(DeploymentStage stage, ResourceOperation operation) {
+        List<ResourceOperation> operations = stages.get(stage);
+        if (operations == null) {
+            operations = new ArrayList<>();
+            stages.put(stage, operations);
+        }
+        operations.add(operation);
+        size++;
+        return this;
+    }
+
+    public List<ResourceOperation> getOperations(DeploymentStage stage) {
+        final List<ResourceOperation> operations = stages.get(stage);
+        return (operations != null) ? Collections.unmodifiableList(operations)
+                : Collections.<ResourceOperation>emptyList();
+    }
+
+    public int size() {
+        return size;
+    }
+}
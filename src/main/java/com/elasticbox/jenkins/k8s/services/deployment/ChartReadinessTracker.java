@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodCondition;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Readiness of the workloads of a deployed chart: its Pods and the Pods managed by its ReplicationControllers. It is
+ * fed with the Pod events of the namespace, ignores the Pods that do not belong to the chart and reports the
+ * workloads that became ready, with the time they took, and the containers that will not become ready without a
+ * change (crash loops, image pull errors or invalid configuration). Instances are not thread safe.
+ */
+public class ChartReadinessTracker {
+
+    static final Set<String> FAILURE_REASONS = new HashSet<>(Arrays.asList("CrashLoopBackOff", "ErrImagePull",
+            "ImagePullBackOff", "InvalidImageName", "CreateContainerConfigError", "RunContainerError"));
+
+    private static final String POD_FAILED = "Failed";
+    private static final String READY_CONDITION = "Ready";
+    private static final String TRUE = "True";
+
+    private final long start;
+
+    private final Set<String> podNames = new HashSet<>();
+    private final Map<String, Map<String, String>> controllerSelectors = new LinkedHashMap<>();
+    private final Map<String, Integer> controllerReplicas = new HashMap<>();
+
+    // Keys are sorted so the progress is always reported in the same order
+    private final Map<String, Pod> pods = new TreeMap<>();
+    private final Map<String, Long> readyWorkloads = new HashMap<>();
+
+    public ChartReadinessTracker(Chart chart) {
+        this(chart, System.currentTimeMillis() );
+    }
+
+    ChartReadinessTracker(Chart chart, long start) {
+        this.start = start;
+
+        if (chart.getPods() != null) {
+            for (Pod pod : chart.getPods() ) {
+                podNames.add(pod.getMetadata().getName() );
+            }
+        }
+
+        if (chart.getReplicationControllers() != null) {
+            for (ReplicationController controller : chart.getReplicationControllers() ) {
+                final String name = controller.getMetadata().getName();
+                final Map<String, String> selector = (controller.getSpec().getSelector() != null)
+                        ? controller.getSpec().getSelector()
+                        : controller.getSpec().getTemplate().getMetadata().getLabels();
+
+                final Integer replicas = controller.getSpec().getReplicas();
+                controllerSelectors.put(name, selector);
+                controllerReplicas.put(name, (replicas != null) ? replicas : 1);
+            }
+        }
+    }
+
+    public boolean hasWorkloads() {
+        return !podNames.isEmpty() || !controllerSelectors.isEmpty();
+    }
+
+    /**
+     * Records the current state of a Pod and returns the messages for the workloads that became ready with it.
+     */
+    public List<String> update(Pod pod, boolean deleted) {
+        final String name = pod.getMetadata().getName();
+        if (!belongsToChart(pod) ) {
+            return Collections.emptyList();
+        }
+
+        if (deleted) {
+            pods.remove(name);
+        } else {
+            pods.put(name, pod);
+        }
+        return newlyReady();
+    }
+
+    /**
+     * Replaces the known Pods with the given full list, used to reconcile events that could have been missed.
+     */
+    public List<String> reset(List<Pod> currentPods) {
+        pods.clear();
+        for (Pod pod : currentPods) {
+            if (belongsToChart(pod) ) {
+                pods.put(pod.getMetadata().getName(), pod);
+            }
+        }
+        return newlyReady();
+    }
+
+    public boolean isReady() {
+        return readyWorkloads.size() == podNames.size() + controllerSelectors.size();
+    }
+
+    /**
+     * Description of the first container that will not become ready by itself, or null if there is none.
+     */
+    public String getFailure() {
+        for (Pod pod : pods.values() ) {
+            if (pod.getStatus() == null) {
+                continue;
+            }
+
+            if (POD_FAILED.equals(pod.getStatus().getPhase() ) ) {
+                return "Pod " + pod.getMetadata().getName() + " failed: " + pod.getStatus().getReason() + " "
+                        + pod.getStatus().getMessage();
+            }
+
+            if (pod.getStatus().getContainerStatuses() == null) {
+                continue;
+            }
+
+            for (ContainerStatus container : pod.getStatus().getContainerStatuses() ) {
+                if (container.getState() != null && container.getState().getWaiting() != null
+                        && FAILURE_REASONS.contains(container.getState().getWaiting().getReason() ) ) {
+
+                    return "Pod " + pod.getMetadata().getName() + ", container " + container.getName() + ": "
+                            + container.getState().getWaiting().getReason() + " - "
+                            + container.getState().getWaiting().getMessage();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Summary of the workloads not ready yet, with their ready Pods and containers.
+     */
+    public String getPendingSummary() {
+        final List<String> pending = new ArrayList<>();
+
+        for (String podName : podNames) {
+            if (!readyWorkloads.containsKey(podName) ) {
+                final Pod pod = pods.get(podName);
+                pending.add("Pod " + podName + " (" + ( (pod != null) ? readyContainers(pod) : "not created") + ")");
+            }
+        }
+
+        for (Map.Entry<String, Map<String, String>> entry : controllerSelectors.entrySet() ) {
+            if (!readyWorkloads.containsKey(entry.getKey() ) ) {
+                pending.add("ReplicationController " + entry.getKey() + " (" + readyPods(entry.getValue() ) + "/"
+                        + controllerReplicas.get(entry.getKey() ) + " pods ready)");
+            }
+        }
+        return pending.toString();
+    }
+
+    private List<String> newlyReady() {
+        final List<String> messages = new ArrayList<>();
+        final long elapsed = System.currentTimeMillis() - start;
+
+        for (String podName : podNames) {
+            final Pod pod = pods.get(podName);
+            if (!readyWorkloads.containsKey(podName) && pod != null && isReady(pod) ) {
+                readyWorkloads.put(podName, elapsed);
+                messages.add("Pod " + podName + " ready in " + elapsed + " ms (" + readyContainers(pod) + ")");
+            }
+        }
+
+        for (Map.Entry<String, Map<String, String>> entry : controllerSelectors.entrySet() ) {
+            final String controllerName = entry.getKey();
+            final int replicas = controllerReplicas.get(controllerName);
+            final int readyPods = readyPods(entry.getValue() );
+
+            if (!readyWorkloads.containsKey(controllerName) && readyPods >= replicas) {
+                readyWorkloads.put(controllerName, elapsed);
+                messages.add("ReplicationController " + controllerName + " ready in " + elapsed + " ms ("
+                        + readyPods + "/" + replicas + " pods ready)");
+            }
+        }
+        return messages;
+    }
+
+    private boolean belongsToChart(Pod pod) {
+        if (podNames.contains(pod.getMetadata().getName() ) ) {
+            return true;
+        }
+        for (Map<String, String> selector : controllerSelectors.values() ) {
+            if (matches(selector, pod) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int readyPods(Map<String, String> selector) {
+        int ready = 0;
+        for (Pod pod : pods.values() ) {
+            if (matches(selector, pod) && isReady(pod) ) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    private static boolean matches(Map<String, String> selector, Pod pod) {
+        final Map<String, String> labels = pod.getMetadata().getLabels();
+        return selector != null && !selector.isEmpty() && labels != null
+                && labels.entrySet().containsAll(selector.entrySet() );
+    }
+
+    static boolean isReady(Pod pod) {
+        if (pod.getStatus() == null || pod.getStatus().getConditions() == null
+                || pod.getMetadata().getDeletionTimestamp() != null) {
+            return false;
+        }
+        for (PodCondition condition : pod.getStatus().getConditions() ) {
+            if (READY_CONDITION.equals(condition.getType() ) ) {
+                return TRUE.equals(condition.getStatus() );
+            }
+        }
+        return false;
+    }
+
+    private static String readyContainers(Pod pod) {
+        final List<ContainerStatus> statuses = (pod.getStatus() != null)
+                ? pod.getStatus().getContainerStatuses()
+                : null;
+
+        final int total = (pod.getSpec() != null && pod.getSpec().getContainers() != null)
+                ? pod.getSpec().getContainers().size()
+                : 0;
+
+        int ready = 0;
+        if (statuses != null) {
+            for (ContainerStatus status : statuses) {
+                if (Boolean.TRUE.equals(status.getReady() ) ) {
+                    ready++;
+                }
+            }
+        }
+        return ready + "/" + total + " containers ready";
+    }
+}
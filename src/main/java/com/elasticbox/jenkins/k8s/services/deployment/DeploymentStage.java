@@ -0,0 +1,20 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+/**
+ * Levels of the chart resource dependency graph. Every resource of a stage depends on all the resources of the
+ * previous stages, while resources within the same stage are independent of each other.
+ */
+public enum DeploymentStage {
+
+    NAMESPACE,
+    SERVICES,
+    WORKLOADS
+}
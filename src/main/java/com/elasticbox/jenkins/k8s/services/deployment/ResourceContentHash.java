@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import com.elasticbox.jenkins.k8s.chart.ChartResources;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Content hash of a chart resource, stored as an annotation on every deployed resource. Comparing the hash of the
+ * desired resource with the annotation of the live one tells whether the chart changed since the resource was
+ * deployed, without comparing the resources field by field. Labels added by the build (that change on every build),
+ * the status and the hash annotation itself are not part of the hash.
+ *
+ * <p>The annotation is not updated when the live resource is edited, so changes made on the cluster are found with
+ * {@link #matches(HasMetadata, HasMetadata)} instead, which compares the fields set by the chart with those of the
+ * live resource and ignores the ones populated by the server.</p>
+ */
+public final class ResourceContentHash {
+
+    public static final String ANNOTATION = "elastickube.com/content-hash";
+
+    private static final String METADATA = "metadata";
+    private static final String LABELS = "labels";
+    private static final String ANNOTATIONS = "annotations";
+    private static final String STATUS = "status";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private ResourceContentHash() {
+    }
+
+    public static String of(HasMetadata resource, Collection<String> ignoredLabels) {
+        final ObjectNode tree = MAPPER.valueToTree(resource);
+        tree.remove(STATUS);
+
+        final ObjectNode metadata = (ObjectNode) tree.get(METADATA);
+        if (metadata != null) {
+            final ObjectNode labels = (ObjectNode) metadata.get(LABELS);
+            if (labels != null && ignoredLabels != null) {
+                labels.remove(ignoredLabels);
+            }
+
+            final ObjectNode annotations = (ObjectNode) metadata.get(ANNOTATIONS);
+            if (annotations != null) {
+                annotations.remove(ANNOTATION);
+            }
+        }
+
+        try {
+            return DigestUtils.sha256Hex(MAPPER.writeValueAsBytes(tree) );
+        } catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("Unable to serialize resource: " + resource.getMetadata().getName(),
+                    exception);
+        }
+    }
+
+    /**
+     * Copy of the given resource with the hash annotation set, so the resources of a (possibly shared) chart are
+     * never modified.
+     */
+    public static <T extends HasMetadata> T annotated(T resource, String hash) {
+        return ChartResources.copy(resource, null, Collections.singletonMap(ANNOTATION, hash) );
+    }
+
+    /**
+     * Whether every field set in the desired resource has the same value in the live one. Fields the desired resource
+     * leaves unset, like those defaulted by the server, are ignored, as well as the elements the server appends to a
+     * list (for instance the service account volume of a Pod).
+     */
+    public static boolean matches(HasMetadata desired, HasMetadata liveResource) {
+        if (liveResource == null) {
+            return false;
+        }
+
+        final ObjectNode desiredTree = MAPPER.valueToTree(desired);
+        desiredTree.remove(STATUS);
+        return contains(MAPPER.<JsonNode>valueToTree(liveResource), desiredTree);
+    }
+
+    private static boolean contains(JsonNode live, JsonNode desired) {
+        if (isUnset(desired) ) {
+            return true;
+        }
+        if (live == null) {
+            return false;
+        }
+
+        if (desired.isObject() ) {
+            if (!live.isObject() ) {
+                return false;
+            }
+            for (Iterator<Map.Entry<String, JsonNode>> fields = desired.fields(); fields.hasNext(); ) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                if (!contains(live.get(field.getKey() ), field.getValue() ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (desired.isArray() ) {
+            if (!live.isArray() || live.size() < desired.size() ) {
+                return false;
+            }
+            for (int index = 0; index < desired.size(); index++) {
+                if (!contains(live.get(index), desired.get(index) ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return desired.equals(live);
+    }
+
+    private static boolean isUnset(JsonNode node) {
+        return node == null || node.isNull() || (node.isContainerNode() && node.size() == 0);
+    }
+
+    public static String deployedHash(HasMetadata liveResource) {
+        if (liveResource == null || liveResource.getMetadata() == null
+                || liveResource.getMetadata().getAnnotations() == null) {
+            return null;
+        }
+        return liveResource.getMetadata().getAnnotations().get(ANNOTATION);
+    }
+}
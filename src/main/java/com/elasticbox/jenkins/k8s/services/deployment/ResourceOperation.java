@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Single step of a {@link ChartDeploymentPlan}.
+ */
+public abstract class ResourceOperation {
+
+    public enum Outcome {
+        CREATED,
+        ALREADY_EXISTS,
+        UNCHANGED,
+        REPLACED,
+        RECREATED,
+        LABELED,
+        DELETED
+    }
+
+    private final String kind;
+    private final String name;
+
+    protected ResourceOperation(String kind, String name) {
+        this.kind = kind;
+        this.name = name;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract Outcome execute() throws RepositoryException;
+
+    protected static boolean isAlreadyExists(KubernetesClientException exception) {
+        return exception.getCode() == HttpURLConnection.HTTP_CONFLICT;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " [" + name + "]";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.slavesprovisioning;
+
+import com.google.inject.Singleton;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the provisioning metrics of every Kubernetes cluster and decides whether a cluster is healthy enough to
+ * receive new slaves. A cluster that failed several times in a row is skipped until its cool down period expires.
+ */
+@Singleton
+public class ClusterHealthTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterHealthTracker.class.getName() );
+
+    public static final int MAX_CONSECUTIVE_FAILURES = 3;
+    public static final long COOL_DOWN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final ConcurrentMap<String, ClusterStats> stats = new ConcurrentHashMap<>();
+
+    public boolean isHealthy(String clusterKey) {
+        final ClusterStats clusterStats = stats.get(clusterKey);
+        if (clusterStats == null || clusterStats.consecutiveFailures.get() < MAX_CONSECUTIVE_FAILURES) {
+            return true;
+        }
+        return currentTimeMillis() - clusterStats.lastFailure.get() > COOL_DOWN_MILLIS;
+    }
+
+    public void recordSuccess(String clusterKey) {
+        final ClusterStats clusterStats = getStats(clusterKey);
+        clusterStats.provisioned.incrementAndGet();
+        clusterStats.consecutiveFailures.set(0);
+    }
+
+    public void recordFailure(String clusterKey) {
+        final ClusterStats clusterStats = getStats(clusterKey);
+        clusterStats.failures.incrementAndGet();
+        clusterStats.lastFailure.set(currentTimeMillis() );
+
+        if (clusterStats.consecutiveFailures.incrementAndGet() == MAX_CONSECUTIVE_FAILURES) {
+            LOGGER.warning("Cluster " + clusterKey + " marked as unhealthy for " + COOL_DOWN_MILLIS + " ms");
+        }
+    }
+
+    public void recordSpillover(String clusterKey) {
+        getStats(clusterKey).spillovers.incrementAndGet();
+    }
+
+    public ClusterStats getStats(String clusterKey) {
+        ClusterStats clusterStats = stats.get(clusterKey);
+        if (clusterStats == null) {
+            final ClusterStats newStats = new ClusterStats();
+            clusterStats = stats.putIfAbsent(clusterKey, newStats);
+            if (clusterStats == null) {
+                clusterStats = newStats;
+            }
+        }
+        return clusterStats;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static class ClusterStats {
+
+        private final AtomicLong provisioned = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong spillovers = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong lastFailure = new AtomicLong();
+
+        public long getProvisioned() {
+            return provisioned.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getSpillovers() {
+            return spillovers.get();
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures.get();
+        }
+
+        @Override
+        public String toString() {
+            return "ClusterStats [provisioned=" + provisioned + ", failures=" + failures + ", spillovers="
+                    + spillovers + ", consecutiveFailures=" + consecutiveFailures + "]";
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class PodDeploymentContext {
     private PodSlaveConfigurationParams podConfigurationChosen;
 
     private KubernetesCloud cloudToDeployInto;
+    private String clusterKey;
     private String deploymentNamespace;
 
     private KubernetesSlave kubernetesSlave;
@@ -45,6 +46,22 @@ public class PodDeploymentContext {
         return deploymentNamespace;
     }
 
+    public void setDeploymentNamespace(String deploymentNamespace) {
+        this.deploymentNamespace = deploymentNamespace;
+    }
+
+    /**
+     * Key of the cluster of the cloud where the pod is going to be deployed. It is the cloud name, which identifies
+     * its primary cluster, until a cluster has been chosen.
+     */
+    public String getClusterKey() {
+        return (clusterKey != null) ? clusterKey : cloudToDeployInto.getName();
+    }
+
+    public void setClusterKey(String clusterKey) {
+        this.clusterKey = clusterKey;
+    }
+
     public Label getJobLabel() {
         return jobLabel;
     }
@@ -47,6 +47,8 @@ public class AddSlaveToJenkinsCloud extends AbstractPodDeployment {
 
             KubernetesSlave slave = new KubernetesSlave(podName, podRepository,
                                                         deploymentContext.getCloudToDeployInto(),
+                                                        deploymentContext.getClusterKey(),
+                                                        deploymentContext.getDeploymentNamespace(),
                                                         deploymentContext.getJobLabel());
 
             Jenkins.getInstance().addNode(slave);
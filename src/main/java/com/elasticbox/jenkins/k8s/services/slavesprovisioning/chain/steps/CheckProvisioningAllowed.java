@@ -11,15 +11,16 @@ package com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.steps;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesClusterEndpoint;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
+import com.elasticbox.jenkins.k8s.services.slavesprovisioning.ClusterHealthTracker;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.AbstractPodDeployment;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.PodDeploymentContext;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.List;
@@ -34,10 +35,14 @@ public class CheckProvisioningAllowed extends AbstractPodDeployment {
     @Inject
     private PodRepository podRepository;
 
+    @Inject
+    private ClusterHealthTracker clusterHealthTracker;
+
 
     /**
-     * Its mission is to check if we can provision one slave more. It will be impossible if we have already reached
-     * the specific limit for the cloud
+     * Its mission is to check if we can provision one slave more and to choose the cluster of the cloud where it is
+     * going to be deployed. Clusters are tried in order, spilling over to the next one when a cluster has already
+     * reached its specific limit, is unhealthy or cannot be reached.
      */
     @Override
     public void handle(PodDeploymentContext deploymentContext) throws ServiceException {
@@ -45,8 +50,9 @@ public class CheckProvisioningAllowed extends AbstractPodDeployment {
         final KubernetesCloud cloudToDeployInto = deploymentContext.getCloudToDeployInto();
 
         final int cloudCapacity = cloudToDeployInto.getInstanceCap();
+        final List<KubernetesClusterEndpoint> additionalClusters = cloudToDeployInto.getAdditionalClusters();
 
-        if (cloudCapacity == 0) {
+        if (cloudCapacity == 0 && additionalClusters.isEmpty() ) {
             //is not possible to deploy any slave in this kubernetes cloud
             String message = "It is impossible to deploy a slave in a cloud which capacity is zero";
             LOGGER.log(Level.SEVERE, message);
@@ -57,28 +63,65 @@ public class CheckProvisioningAllowed extends AbstractPodDeployment {
             ? deploymentContext.getDeploymentNamespace()
             : cloudToDeployInto.getPredefinedNamespace();
 
-        try {
+        if (tryCluster(deploymentContext, KubernetesCloud.clusterKey(cloudToDeployInto.getName(), null),
+                deploymentNamespace, cloudCapacity) ) {
+            return;
+        }
+
+        for (KubernetesClusterEndpoint cluster : additionalClusters) {
+            if (tryCluster(deploymentContext, KubernetesCloud.clusterKey(cloudToDeployInto.getName(), cluster.getId() ),
+                    cluster.getNamespace(), cluster.getInstanceCap() )) {
+                return;
+            }
+        }
+
+        String message = "Not provisioning, all the clusters of the cloud " + cloudToDeployInto.getName()
+                + " are full or unavailable";
+        LOGGER.log(Level.SEVERE, message);
+        throw new ServiceException(message);
+    }
+
+    private boolean tryCluster(PodDeploymentContext deploymentContext, String clusterKey, String namespace,
+                               int clusterCapacity) {
+
+        if (clusterCapacity == 0) {
+            return false;
+        }
 
-            final List<Pod> pods = podRepository.getRunningPods(cloudToDeployInto.getName(), deploymentNamespace);
+        if (!clusterHealthTracker.isHealthy(clusterKey) ) {
+            LOGGER.warning("Skipping unhealthy cluster: " + clusterKey);
+            clusterHealthTracker.recordSpillover(clusterKey);
+            return false;
+        }
+
+        try {
+            final int runningPods = podRepository.countRunningPods(clusterKey, namespace);
 
             if (LOGGER.isLoggable(Level.FINER) ) {
-                LOGGER.finer("Cloud defined max. capacity: " + cloudCapacity + ". Current capacity: " + pods.size() );
+                LOGGER.finer("Cluster " + clusterKey + " defined max. capacity: " + clusterCapacity
+                        + ". Current capacity: " + runningPods);
             }
-            if (pods.size() >= cloudCapacity) {
-                String message = "Not provisioning, max cloud capacity: " + cloudCapacity + " reached";
-                LOGGER.log(Level.SEVERE, message);
-                throw new ServiceException(message);
+            if (runningPods >= clusterCapacity) {
+                LOGGER.warning("Max cluster capacity: " + clusterCapacity + " reached in cluster: " + clusterKey);
+                clusterHealthTracker.recordSpillover(clusterKey);
+                return false;
             }
 
-            LOGGER.log(Level.INFO, "Pod deployment granted, cloud capacity: " + pods.size() );
+            LOGGER.log(Level.INFO, "Pod deployment granted in cluster " + clusterKey + ", cluster capacity: "
+                    + runningPods);
+
+            deploymentContext.setClusterKey(clusterKey);
+            deploymentContext.setDeploymentNamespace(namespace);
+            return true;
 
-        } catch (RepositoryException e) {
+        } catch (RepositoryException | KubernetesClientException e) {
 
-            LOGGER.log(Level.SEVERE, "Error getting the kubernetes client for the cloud "
-                    + cloudToDeployInto.getName() );
+            LOGGER.log(Level.SEVERE, "Error getting the running pods of the cluster " + clusterKey + ": "
+                    + e.getMessage() );
 
-            throw new ServiceException("Error getting the kubernetes client for the cloud "
-                    + cloudToDeployInto.getName() );
+            clusterHealthTracker.recordFailure(clusterKey);
+            clusterHealthTracker.recordSpillover(clusterKey);
+            return false;
         }
     }
 }
@@ -17,7 +17,6 @@ import com.elasticbox.jenkins.k8s.plugin.slaves.KubernetesSlave;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.AbstractPodDeployment;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.PodDeploymentContext;
 
-import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
 import com.elasticbox.jenkins.k8s.plugin.clouds.PodSlaveConfigurationParams;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
@@ -55,8 +54,6 @@ public class CreatePodFromPodConfiguration extends AbstractPodDeployment {
     @Override
     public void handle(PodDeploymentContext deploymentContext) throws ServiceException {
 
-        final KubernetesCloud cloudToDeployInto = deploymentContext.getCloudToDeployInto();
-
         final PodSlaveConfigurationParams podConfigurationChosen = deploymentContext.getPodConfigurationChosen();
 
         if (podConfigurationChosen == null) {
@@ -66,8 +63,8 @@ public class CreatePodFromPodConfiguration extends AbstractPodDeployment {
 
         try {
 
-            final Pod podToDeploy = podRepository.pod(cloudToDeployInto.getName(),
-                                                        cloudToDeployInto.getPredefinedNamespace(),
+            final Pod podToDeploy = podRepository.pod(deploymentContext.getClusterKey(),
+                                                        deploymentContext.getDeploymentNamespace(),
                                                         podConfigurationChosen.getPodYaml());
 
             addName(podToDeploy, deploymentContext);
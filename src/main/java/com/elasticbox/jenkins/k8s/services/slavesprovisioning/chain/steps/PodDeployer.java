@@ -19,7 +19,9 @@ import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.services.slavesprovisioning.ClusterHealthTracker;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 
 import java.util.Map;
 import java.util.logging.Level;
@@ -36,24 +38,34 @@ public class PodDeployer extends AbstractPodDeployment {
     @Inject
     private PodRepository podRepository;
 
+    @Inject
+    private ClusterHealthTracker clusterHealthTracker;
+
     @Override
     public void handle(PodDeploymentContext deploymentContext) throws ServiceException {
 
         final Pod podToDeploy = deploymentContext.getPodToDeploy();
         final KubernetesCloud cloudToDeployInto = deploymentContext.getCloudToDeployInto();
         final String deploymentNamespace = deploymentContext.getDeploymentNamespace();
+        final String clusterKey = deploymentContext.getClusterKey();
 
         try {
-            podRepository.create(cloudToDeployInto.getName(), deploymentNamespace, podToDeploy);
+            podRepository.create(clusterKey, deploymentNamespace, podToDeploy);
+            clusterHealthTracker.recordSuccess(clusterKey);
 
             String podName = podToDeploy.getMetadata().getName();
 
-            LOGGER.log(Level.INFO, "Pod: " + podName + " created");
+            LOGGER.log(Level.INFO, "Pod: " + podName + " created in cluster: " + clusterKey);
 
         } catch (RepositoryException exception) {
+            clusterHealthTracker.recordFailure(clusterKey);
             String message = "Error getting the Kubernetes client for the cloud " + cloudToDeployInto.getName() ;
             LOGGER.log(Level.SEVERE, message);
             throw new ServiceException(message, exception);
+
+        } catch (KubernetesClientException exception) {
+            clusterHealthTracker.recordFailure(clusterKey);
+            throw exception;
         }
 
     }
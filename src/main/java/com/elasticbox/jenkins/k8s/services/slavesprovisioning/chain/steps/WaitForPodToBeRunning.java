@@ -15,7 +15,6 @@ import com.elasticbox.jenkins.k8s.repositories.PodRepository;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.AbstractPodDeployment;
 import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.PodDeploymentContext;
 
-import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
 import com.elasticbox.jenkins.k8s.services.task.ScheduledPoolingTask;
@@ -61,13 +60,12 @@ public class WaitForPodToBeRunning extends AbstractPodDeployment {
     public void handle(PodDeploymentContext deploymentContext) throws ServiceException {
 
         final String podName = deploymentContext.getPodToDeploy().getMetadata().getName();
-        final KubernetesCloud kubeCloud = deploymentContext.getCloudToDeployInto();
 
         try {
             new WaitForThePodToBeRunningTask(
                 podRepository,
-                kubeCloud.getName(),
-                kubeCloud.getPredefinedNamespace(),
+                deploymentContext.getClusterKey(),
+                deploymentContext.getDeploymentNamespace(),
                 podName,
                 delay,
                 initialDelay,
@@ -19,6 +19,7 @@ import com.elasticbox.jenkins.k8s.auth.Authentication;
 import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
 import com.elasticbox.jenkins.k8s.auth.UserAndPasswordAuthentication;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
 import com.elasticbox.jenkins.k8s.plugin.auth.TokenCredentialsImpl;
 import hudson.ProxyConfiguration;
 import hudson.security.ACL;
@@ -118,8 +119,13 @@ public class PluginHelper {
     }
 
     public static ChartRepo getChartRepoData(String chartsRepoUrl, String credentialsId) {
+        return getChartRepoData(chartsRepoUrl, credentialsId, ChartRepoType.GITHUB);
+    }
+
+    public static ChartRepo getChartRepoData(String chartsRepoUrl, String credentialsId, ChartRepoType repoType) {
         Authentication authData = PluginHelper.getAuthenticationData(credentialsId);
         ChartRepo chartRepo = new ChartRepo(chartsRepoUrl, authData);
+        chartRepo.setType(repoType);
 
         final ProxyConfiguration proxyConfig = Jenkins.getInstance().proxy;
         if (proxyConfig != null) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TestChartResources {
+
+    private static final String BUILD_LABEL = "elastickube.com/jenkins-build";
+
+    @Test
+    public void testCopyDoesNotModifyTheChartResource() throws Exception {
+        final Pod pod = new PodBuilder()
+                .withNewMetadata().withName("nginx").addToLabels("app", "nginx").endMetadata()
+                .withNewSpec().addNewContainer().withName("nginx").withImage("nginx").endContainer().endSpec()
+                .build();
+
+        final Pod copy = ChartResources.copy(pod, Collections.singletonMap(BUILD_LABEL, "job-1"),
+                Collections.singletonMap("annotation", "value") );
+
+        assertEquals("nginx", copy.getMetadata().getName() );
+        assertEquals("nginx", copy.getMetadata().getLabels().get("app") );
+        assertEquals("job-1", copy.getMetadata().getLabels().get(BUILD_LABEL) );
+        assertEquals("value", copy.getMetadata().getAnnotations().get("annotation") );
+        assertSame(pod.getSpec(), copy.getSpec() );
+
+        assertFalse(pod.getMetadata().getLabels().containsKey(BUILD_LABEL) );
+        assertNull(pod.getMetadata().getAnnotations() );
+    }
+
+    @Test
+    public void testCopyForReplaceKeepsTheLiveServiceState() throws Exception {
+        final Service service = new ServiceBuilder()
+                .withNewMetadata().withName("nginx").addToLabels("app", "nginx").endMetadata()
+                .withNewSpec().addToSelector("app", "nginx").endSpec()
+                .build();
+
+        final Service live = new ServiceBuilder()
+                .withNewMetadata().withName("nginx").withResourceVersion("42").endMetadata()
+                .withNewSpec().withClusterIP("10.0.0.10").endSpec()
+                .build();
+
+        final Service copy = ChartResources.copyForReplace(service,
+                Collections.singletonMap(BUILD_LABEL, "job-2"), live);
+
+        assertEquals("42", copy.getMetadata().getResourceVersion() );
+        assertEquals("10.0.0.10", copy.getSpec().getClusterIP() );
+        assertEquals("nginx", copy.getSpec().getSelector().get("app") );
+        assertEquals("job-2", copy.getMetadata().getLabels().get(BUILD_LABEL) );
+
+        assertNull(service.getMetadata().getResourceVersion() );
+        assertNull(service.getSpec().getClusterIP() );
+        assertFalse(service.getMetadata().getLabels().containsKey(BUILD_LABEL) );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testChartResourcesAreUnmodifiable() throws Exception {
+        final ChartDetails details = new ChartDetails();
+        details.setName("nginx");
+
+        final Chart chart = new Chart.ChartBuilder().chartDetails(details).build();
+        chart.getPods().add(new Pod() );
+    }
+}
@@ -18,7 +18,9 @@ import com.elasticbox.jenkins.k8s.plugin.TestBaseKubernetes;
 import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import com.elasticbox.jenkins.k8s.services.ChartDeploymentService;
+import com.elasticbox.jenkins.k8s.services.ChartTeardownQueue;
 import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Result;
@@ -61,15 +63,20 @@ public class TestChartBuildSteps extends TestBaseKubernetes {
         DeployChartBuildStep deployChartBuildStep = getFakeDeployChartBuildStep(false);
 
         Mockito.when(chartDeploymentServiceMock
-                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class) ))
+                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class),
+                        any(TaskLogger.class) ))
                 .thenReturn(getFakeChart() );
+        Mockito.when(chartDeploymentServiceMock
+                .releaseChart(anyString(), anyString(), any(ChartRepo.class), anyString() ))
+                .thenReturn(Boolean.TRUE);
 
         // Test only deploy chart:
         Result result = executeBuild(deployChartBuildStep);
 
         Assert.assertTrue("Build result was not successful", result.isBetterOrEqualTo(result.SUCCESS) );
         Mockito.verify(chartDeploymentServiceMock)
-                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class) );
+                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class),
+                        any(TaskLogger.class) );
         Mockito.verify(chartDeploymentServiceMock, Mockito.times(0) )
                 .deleteChart(anyString(), anyString(), any(Chart.class) );
 
@@ -79,20 +86,24 @@ public class TestChartBuildSteps extends TestBaseKubernetes {
 
         Assert.assertTrue("Build result was not successful", result.isBetterOrEqualTo(result.SUCCESS) );
         Mockito.verify(chartDeploymentServiceMock, Mockito.times(2) )
-                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class) );
-        Mockito.verify(chartDeploymentServiceMock, Mockito.times(1) )
+                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class),
+                        any(TaskLogger.class) );
+        // The chart is removed in the background once the build finished
+        Mockito.verify(chartDeploymentServiceMock, Mockito.timeout(5000).times(1) )
                 .deleteChart(anyString(), anyString(), any(Chart.class) );
 
         // Test exception:
         Mockito.doThrow(new ServiceException(FAKE_MOCK_EXCEPTION, new Throwable() ))
                 .when(chartDeploymentServiceMock)
-                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class) );
+                .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class),
+                        any(TaskLogger.class) );
 
         try {
             result = executeBuild(deployChartBuildStep);
         } catch (IOException e) {
             Mockito.verify(chartDeploymentServiceMock, Mockito.times(3) )
-                    .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class) );
+                    .deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(), any(Map.class),
+                        any(TaskLogger.class) );
             Mockito.verify(chartDeploymentServiceMock, Mockito.times(1) )
                     .deleteChart(anyString(), anyString(), any(Chart.class) );
         }
@@ -181,6 +192,23 @@ public class TestChartBuildSteps extends TestBaseKubernetes {
         Assert.assertFalse("Invalid item selected", items.get(1).selected);
     }
 
+    @Test
+    public void testPrefetchTargetsAreDistinct() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            FreeStyleProject project = jenkins.createFreeStyleProject();
+            project.getBuildersList().add(getFakeDeployChartBuildStep(true) );
+            project.getBuildersList().add(new DeleteChartBuildStep(EMPTY, cloud.getName(),
+                    cloud.getPredefinedNamespace(), FAKE_CHARTS_REPO, FAKE_CHART_NAME) );
+        }
+
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+        project.getBuildersList().add(new DeleteChartBuildStep(EMPTY, cloud.getName(),
+                cloud.getPredefinedNamespace(), "UnknownChartsRepo", FAKE_CHART_NAME) );
+
+        Assert.assertEquals("Charts must be prefetched once", 1,
+                ChartCachePrefetcher.collectTargets(jenkins.getInstance() ).size() );
+    }
+
     private DeployChartBuildStep getFakeDeployChartBuildStep(boolean alsoDeleteChart) {
 
         DeployChartBuildStep deployChartBuildStep =
@@ -189,6 +217,9 @@ public class TestChartBuildSteps extends TestBaseKubernetes {
         Assert.assertNotNull("Injection failed", deployChartBuildStep.deploymentService);
         deployChartBuildStep.deploymentService = chartDeploymentServiceMock;
 
+        Assert.assertNotNull("Injection failed", deployChartBuildStep.teardownQueue);
+        deployChartBuildStep.teardownQueue = new ChartTeardownQueue(chartDeploymentServiceMock);
+
         return deployChartBuildStep;
     }
 }
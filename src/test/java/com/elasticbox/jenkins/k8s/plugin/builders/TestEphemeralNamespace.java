@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.builders;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestEphemeralNamespace {
+
+    private static final String DNS_LABEL = "[a-z0-9]([-a-z0-9]*[a-z0-9])?";
+
+    @Test
+    public void testNamesAreValidAndUnique() {
+        final String name = EphemeralNamespace.newName("Folder/My Job_With.Strange#Chars", 42);
+
+        Assert.assertTrue("Invalid namespace name: " + name, name.matches(DNS_LABEL) );
+        Assert.assertTrue("Build not in namespace name: " + name,
+                name.startsWith("build-folder-my-job-with-strange-") );
+        Assert.assertTrue("Build number not in namespace name: " + name, name.contains("-42-") );
+
+        Assert.assertNotEquals(name, EphemeralNamespace.newName("Folder/My Job_With.Strange#Chars", 42) );
+    }
+
+    @Test
+    public void testLongJobNamesAreTruncated() {
+        final String longName = "a-very-long-job-name-that-does-not-fit-in-a-kubernetes-namespace-name-at-all";
+
+        final String name = EphemeralNamespace.newName(longName, 123456);
+        Assert.assertTrue("Invalid namespace name: " + name, name.matches(DNS_LABEL) );
+        Assert.assertTrue("Namespace name too long: " + name, name.length() <= 63);
+
+        Assert.assertTrue("Invalid namespace name", EphemeralNamespace.newName("---", 1).matches(DNS_LABEL) );
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.plugin.webhooks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+public class TestGitHubChartWebhook {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Example of the GitHub documentation on validating webhook deliveries
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final byte[] PAYLOAD = "Hello, World!".getBytes(UTF_8);
+    private static final String SIGNATURE_256 =
+            "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17";
+
+    @Test
+    public void testSignatureIsVerified() throws Exception {
+        assertTrue(GitHubChartWebhook.isValidSignature(SECRET, PAYLOAD, SIGNATURE_256, null) );
+
+        assertFalse(GitHubChartWebhook.isValidSignature("other secret", PAYLOAD, SIGNATURE_256, null) );
+        assertFalse(GitHubChartWebhook.isValidSignature(SECRET, "Hello, World?".getBytes(UTF_8), SIGNATURE_256,
+                null) );
+        assertFalse(GitHubChartWebhook.isValidSignature(SECRET, PAYLOAD, null, null) );
+        assertFalse(GitHubChartWebhook.isValidSignature(SECRET, PAYLOAD, "sha1=757107ea0eb2509fc211", null) );
+    }
+
+    @Test
+    public void testPushEventListsTheChangedCharts() throws Exception {
+        final String payload = "{\"ref\":\"refs/heads/develop\",\"repository\":{\"full_name\":\"owner/charts\"},"
+                + "\"commits\":[{\"added\":[\"redis/manifests/redis-svc.yaml\"],\"modified\":[\"README.md\"],"
+                + "\"removed\":[]},{\"added\":[],\"modified\":[\"nginx/Chart.yaml\"],"
+                + "\"removed\":[\"mysql/manifests/mysql-rc.yaml\"]}]}";
+
+        final GitHubPushEvent event = GitHubPushEvent.parse(payload.getBytes(UTF_8) );
+
+        assertEquals("owner/charts", event.getRepository() );
+        assertEquals("develop", event.getRef() );
+        assertEquals(new TreeSet<>(Arrays.asList("mysql", "nginx", "redis") ), event.getChangedCharts() );
+    }
+
+    @Test
+    public void testPingEventHasNoRef() throws Exception {
+        final String payload = "{\"zen\":\"Keep it logically awesome.\","
+                + "\"repository\":{\"full_name\":\"owner/charts\"}}";
+
+        final GitHubPushEvent event = GitHubPushEvent.parse(payload.getBytes(UTF_8) );
+
+        assertEquals("owner/charts", event.getRepository() );
+        assertNull(event.getRef() );
+        assertNull(event.getChangedCharts() );
+    }
+
+    @Test
+    public void testTagRefIsShortened() throws Exception {
+        assertEquals("v1.0", GitHubPushEvent.shortRef("refs/tags/v1.0") );
+        assertEquals("feature/charts", GitHubPushEvent.shortRef("refs/heads/feature/charts") );
+    }
+}
@@ -8,15 +8,30 @@
 
 package com.elasticbox.jenkins.k8s.repositories.api;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 
 import com.elasticbox.jenkins.k8s.util.TestUtils;
 import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
 import com.elasticbox.jenkins.k8s.auth.UserAndPasswordAuthentication;
 import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartDetails;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.ChartRepositoryApiImpl;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiContentsService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRawContentDownloadService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRepositoryService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiResponseContentType;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubClientsFactory;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubClientsFactoryImpl;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubContent;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.helm.HelmChartRepository;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
@@ -29,6 +44,10 @@ import okhttp3.mockwebserver.RecordedRequest;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -37,6 +56,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class TestChartRepository {
 
@@ -136,16 +161,187 @@ public class TestChartRepository {
     }
 
     private MockWebServer createMockWebServer() throws IOException {
+        final String rootChartsRepoTree = IOUtils.toString(this.getClass().getResourceAsStream("rootChartsRepoTree.json") );
         final String rootChartsRepoContent = IOUtils.toString(this.getClass().getResourceAsStream("rootChartsRepoContent.json") );
 
         MockWebServer server = new MockWebServer();
         server.start(9999);
 
         final HttpUrl url = server.url("http://127.0.0.1:9999/fakeOwner/fakeChartsRepo");
+        server.enqueue(new MockResponse().setResponseCode(200)
+            .setBody("{\"full_name\":\"fakeOwner/fakeChartsRepo\",\"default_branch\":\"master\"}") );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(rootChartsRepoTree));
         server.enqueue(new MockResponse().setResponseCode(200).setBody(rootChartsRepoContent));
         return server;
     }
 
+    @Test
+    public void testFailedManifestFetchReachesTheCaller() throws Exception {
+        final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+        final GitHubClientsFactory clientsFactory = TestUtils.getGitHubClientsFactoryMock();
+        final String serviceUrl = TestUtils.getFakeServiceManifest().getDownloadUrl();
+
+        Mockito.when(downloadService(clientsFactory, fakeRepo).rawContent(serviceUrl) )
+                .thenReturn(Observable.<String>error(new IOException("Fake download error") ) );
+        repository.setClientsFactory(clientsFactory);
+
+        try {
+            repository.chart(fakeRepo, "fakeChartName");
+            fail("The failed manifest fetch must reach the caller");
+        } catch (RepositoryException exception) {
+            assertTrue(exception.getMessage().contains(serviceUrl) );
+        }
+    }
+
+    @Test
+    public void testManifestsKeepTheirOrderWhenFetchedConcurrently() throws Exception {
+        final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+        final GitHubClientsFactory clientsFactory = TestUtils.getGitHubClientsFactoryMock();
+        final String service = IOUtils.toString(TestUtils.class.getResourceAsStream("serviceChartManifest.yaml") );
+
+        final GitHubContent firstManifest = TestUtils.getFakeServiceManifest();
+        firstManifest.setDownloadUrl(firstManifest.getDownloadUrl() + "?first");
+        final GitHubContent secondManifest = TestUtils.getFakeServiceManifest();
+        secondManifest.setDownloadUrl(secondManifest.getDownloadUrl() + "?second");
+
+        final GitHubApiContentsService contentsService = clientsFactory.getClient(fakeRepo,
+                GitHubApiContentsService.class, GitHubApiResponseContentType.JSON);
+        Mockito.when(contentsService.content(anyString() ) )
+                .thenReturn(Observable.just(Arrays.asList(firstManifest, secondManifest) ) );
+
+        // The first manifest is downloaded last
+        final GitHubApiRawContentDownloadService downloadService = downloadService(clientsFactory, fakeRepo);
+        Mockito.when(downloadService.rawContent(firstManifest.getDownloadUrl() ) )
+                .thenReturn(Observable.just(service.replace("name: rabbitmq", "name: first") )
+                        .delay(500, TimeUnit.MILLISECONDS) );
+        Mockito.when(downloadService.rawContent(secondManifest.getDownloadUrl() ) )
+                .thenReturn(Observable.just(service.replace("name: rabbitmq", "name: second") ) );
+
+        repository.setClientsFactory(clientsFactory);
+        final List<Service> services = repository.chart(fakeRepo, "fakeChartName").getServices();
+
+        assertEquals(2, services.size() );
+        assertEquals("first", services.get(0).getMetadata().getName() );
+        assertEquals("second", services.get(1).getMetadata().getName() );
+    }
+
+    @Test
+    public void testChartsAreReadFromTheDefaultBranch() throws Exception {
+        final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+        final GitHubClientsFactory clientsFactory = TestUtils.getGitHubClientsFactoryMock();
+
+        final GitHubRepository fakeRepository = new GitHubRepository();
+        fakeRepository.setDefaultBranch("fakeDefaultBranch");
+        final GitHubApiRepositoryService repositoryService = clientsFactory.getClient(fakeRepo,
+                GitHubApiRepositoryService.class, GitHubApiResponseContentType.JSON);
+        Mockito.when(repositoryService.repository(anyString(), anyString() ) )
+                .thenReturn(Observable.just(fakeRepository) );
+        repository.setClientsFactory(clientsFactory);
+
+        repository.chartNames(fakeRepo);
+        assertEquals("fakeDefaultBranch", repository.defaultRef(fakeRepo) );
+
+        final GitHubApiContentsService contentsService = clientsFactory.getClient(fakeRepo,
+                GitHubApiContentsService.class, GitHubApiResponseContentType.JSON);
+        Mockito.verify(contentsService).content(anyString(), anyString(), anyString(),
+                Mockito.eq("fakeDefaultBranch") );
+        Mockito.verify(repositoryService).repository(anyString(), anyString() );
+
+        // A push can change the default branch
+        repository.invalidate(fakeRepo, "fakeDefaultBranch");
+        repository.defaultRef(fakeRepo);
+        Mockito.verify(repositoryService, Mockito.times(2) ).repository(anyString(), anyString() );
+    }
+
+    private static GitHubApiRawContentDownloadService downloadService(GitHubClientsFactory clientsFactory,
+                                                                      ChartRepo repo) throws RepositoryException {
+
+        return clientsFactory.getClient(repo, GitHubApiRawContentDownloadService.class,
+                GitHubApiResponseContentType.RAW_STRING);
+    }
+
+    @Test
+    public void testConcurrentLoadsOfTheSameChartAreCoalesced() throws Exception {
+        final HelmChartRepository helmRepositoryMock = Mockito.mock(HelmChartRepository.class);
+        repository.setHelmChartRepository(helmRepositoryMock);
+
+        final Chart chart = new Chart.ChartBuilder().chartDetails(new ChartDetails() ).build();
+        Mockito.when(helmRepositoryMock.chart(any(ChartRepo.class), anyString(), anyString() ) )
+                .thenAnswer(slowly(chart) );
+
+        final List<Future<Chart>> loads = loadConcurrently(3);
+        for (Future<Chart> load : loads) {
+            assertSame("Concurrent loads must share the chart", chart, load.get() );
+        }
+
+        Mockito.verify(helmRepositoryMock).chart(any(ChartRepo.class), anyString(), anyString() );
+        assertEquals(2, repository.getCoalescedLoads() );
+    }
+
+    @Test
+    public void testFailedLoadIsSharedButNotCached() throws Exception {
+        final HelmChartRepository helmRepositoryMock = Mockito.mock(HelmChartRepository.class);
+        repository.setHelmChartRepository(helmRepositoryMock);
+
+        Mockito.when(helmRepositoryMock.chart(any(ChartRepo.class), anyString(), anyString() ) )
+                .thenAnswer(slowly(new RepositoryException("Fake chart error") ) );
+
+        for (Future<Chart> load : loadConcurrently(3) ) {
+            try {
+                load.get();
+                fail("The failure must reach every caller");
+            } catch (ExecutionException exception) {
+                assertTrue(exception.getCause() instanceof RepositoryException);
+            }
+        }
+
+        try {
+            repository.chart(getFakeHelmRepo(), "fakeChartName", "fakeRef");
+            fail("The chart must be loaded again");
+        } catch (RepositoryException exception) {
+            Mockito.verify(helmRepositoryMock, Mockito.times(2) ).chart(any(ChartRepo.class), anyString(),
+                    anyString() );
+        }
+    }
+
+    private List<Future<Chart>> loadConcurrently(int loads) throws InterruptedException {
+        final List<Callable<Chart>> tasks = new ArrayList<>();
+        for (int i = 0; i < loads; i++) {
+            tasks.add(new Callable<Chart>() {
+                @Override
+                public Chart call() throws Exception {
+                    return repository.chart(getFakeHelmRepo(), "fakeChartName", "fakeRef");
+                }
+            });
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(loads);
+        try {
+            return executorService.invokeAll(tasks);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static Answer<Chart> slowly(final Object result) {
+        return new Answer<Chart>() {
+            @Override
+            public Chart answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(500);
+                if (result instanceof Throwable) {
+                    throw (Throwable) result;
+                }
+                return (Chart) result;
+            }
+        };
+    }
+
+    private static ChartRepo getFakeHelmRepo() {
+        final ChartRepo repo = new ChartRepo("https://fakecharts.example.com/fakeChartsRepo");
+        repo.setType(ChartRepoType.HELM);
+        return repo;
+    }
+
     @After
     public void shutdownMockWebServer() throws IOException {
         if (mockWebserver != null) {
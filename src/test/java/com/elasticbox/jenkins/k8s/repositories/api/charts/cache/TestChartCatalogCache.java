@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.ChartRepository;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestChartCatalogCache {
+
+    private final ChartRepo repo = new ChartRepo("https://github.com/helm/charts");
+
+    private final ChartRepository chartRepository = Mockito.mock(ChartRepository.class);
+
+    @Test
+    public void testFreshCatalogIsServedFromMemory() throws RepositoryException {
+        final ChartCatalogCache cache = new ChartCatalogCache(ChartCatalogCache.DEFAULT_TTL_MILLIS);
+        Mockito.when(chartRepository.chartNames(any(ChartRepo.class) ) ).thenReturn(Arrays.asList("redis", "mysql") );
+
+        assertEquals(2, cache.getChartNames(chartRepository, repo).size() );
+        assertEquals(2, cache.getChartNames(chartRepository, repo).size() );
+
+        Mockito.verify(chartRepository, Mockito.times(1) ).chartNames(repo);
+        assertFalse(cache.getCatalogEntry(repo).isStale() );
+    }
+
+    @Test
+    public void testStaleCatalogIsReturnedWhileRefreshing() throws Exception {
+        final ChartCatalogCache cache = new ChartCatalogCache(0);
+        Mockito.when(chartRepository.chartNames(any(ChartRepo.class) ) )
+                .thenReturn(Collections.singletonList("redis") )
+                .thenReturn(Arrays.asList("redis", "mysql") );
+
+        assertEquals(1, cache.getChartNames(chartRepository, repo).size() );
+
+        // Stale: the previous list is returned immediately and refreshed in the background
+        assertEquals(1, cache.getChartNames(chartRepository, repo).size() );
+        Mockito.verify(chartRepository, Mockito.timeout(5000).times(2) ).chartNames(repo);
+
+        List<String> chartNames = cache.getChartNames(chartRepository, repo);
+        for (int i = 0; i < 50 && chartNames.size() != 2; i++) {
+            Thread.sleep(100);
+            chartNames = cache.getChartNames(chartRepository, repo);
+        }
+        assertEquals(2, chartNames.size() );
+    }
+
+    @Test
+    public void testFailedRefreshKeepsPreviousCatalog() throws Exception {
+        final ChartCatalogCache cache = new ChartCatalogCache(ChartCatalogCache.DEFAULT_TTL_MILLIS);
+        Mockito.when(chartRepository.chartNames(any(ChartRepo.class) ) )
+                .thenReturn(Collections.singletonList("redis") )
+                .thenThrow(new RepositoryException("GitHub unavailable") );
+
+        cache.getChartNames(chartRepository, repo);
+        cache.prefetch(chartRepository, repo);
+        Mockito.verify(chartRepository, Mockito.timeout(5000).times(2) ).chartNames(repo);
+
+        final ChartCatalogCache.CatalogEntry entry = cache.getCatalogEntry(repo);
+        for (int i = 0; i < 50 && entry.isRefreshing(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertTrue(entry.isLoaded() );
+        assertNotNull(entry.getLastError() );
+        assertEquals(Collections.singletonList("redis"), cache.getChartNames(chartRepository, repo) );
+    }
+}
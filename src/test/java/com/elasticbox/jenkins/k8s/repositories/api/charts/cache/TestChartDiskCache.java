@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubChartArchive.ChartSources;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestChartDiskCache {
+
+    private static final String COMMIT_SHA = "af5769570942320a8bd018ae054280028dd5f0c9";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ChartRepo repo = new ChartRepo("https://github.com/helm/charts");
+
+    @Test
+    public void testBlobShaMatchesGit() {
+        assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", ChartDiskCache.blobSha("hello\n") );
+    }
+
+    @Test
+    public void testPinnedChartSurvivesRestart() throws Exception {
+        final File directory = folder.newFolder();
+
+        new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES)
+            .putPinned(repo, COMMIT_SHA, "rabbitmq", new ChartSources("name: rabbitmq",
+                Arrays.asList("kind: ReplicationController", "kind: Service") ) );
+
+        final ChartSources sources = new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES)
+            .getPinned(repo, COMMIT_SHA, "rabbitmq");
+
+        assertNotNull(sources);
+        assertEquals("name: rabbitmq", sources.getChartDetails() );
+        assertEquals(Arrays.asList("kind: ReplicationController", "kind: Service"), sources.getManifests() );
+        assertTrue(ChartDiskCache.isCommitSha(COMMIT_SHA) );
+    }
+
+    @Test
+    public void testBlobsAreSharedAcrossCharts() throws Exception {
+        final ChartDiskCache cache = new ChartDiskCache(folder.newFolder(), ChartDiskCache.MAX_CACHE_SIZE_BYTES);
+
+        cache.putByTree("tree1", new ChartSources("name: redis", Collections.singletonList("kind: Service") ) );
+        final long size = cache.getSizeBytes();
+        cache.putByTree("tree2", new ChartSources("name: redis", Collections.singletonList("kind: Service") ) );
+
+        assertEquals(size, cache.getSizeBytes() );
+
+        final ChartSources sources = cache.getByBlobs(ChartDiskCache.blobSha("name: redis"),
+            Collections.singletonList(ChartDiskCache.blobSha("kind: Service") ) );
+        assertNotNull(sources);
+        assertEquals("kind: Service", sources.getManifests().get(0) );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedBlobsAreEvicted() throws Exception {
+        final File directory = folder.newFolder();
+        final ChartDiskCache cache = new ChartDiskCache(directory, 20);
+
+        cache.putByTree("tree1", new ChartSources("name: first chart", Collections.<String>emptyList() ) );
+
+        final String firstSha = ChartDiskCache.blobSha("name: first chart");
+        final File firstBlob = new File(directory, "blobs/" + firstSha.substring(0, 2) + "/" + firstSha);
+        assertTrue(firstBlob.setLastModified(System.currentTimeMillis() - 60000) );
+
+        cache.putByTree("tree2", new ChartSources("name: second chart", Collections.<String>emptyList() ) );
+
+        assertNull(cache.getByTree("tree1") );
+        assertNotNull(cache.getByTree("tree2") );
+        assertTrue(cache.getSizeBytes() <= 20);
+    }
+
+    @Test
+    public void testEvictedBlobsAreRemovedFromTheIndex() throws Exception {
+        final File directory = folder.newFolder();
+        final ChartDiskCache cache = new ChartDiskCache(directory, 20);
+
+        cache.putByTree("tree1", new ChartSources("name: first chart", Collections.<String>emptyList() ) );
+
+        final String firstSha = ChartDiskCache.blobSha("name: first chart");
+        final File firstBlob = new File(directory, "blobs/" + firstSha.substring(0, 2) + "/" + firstSha);
+        assertTrue(firstBlob.setLastModified(System.currentTimeMillis() - 60000) );
+
+        cache.putByTree("tree2", new ChartSources("name: second chart", Collections.<String>emptyList() ) );
+
+        final String journal = FileUtils.readFileToString(new File(directory, "index.journal"), "UTF-8");
+        assertFalse(journal.contains("tree.tree1") );
+        assertTrue(journal.contains("tree.tree2") );
+    }
+
+    @Test
+    public void testIndexKeepsTheMostRecentlyUsedEntries() throws Exception {
+        final File directory = folder.newFolder();
+        final ChartDiskCache cache = new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES, 2);
+
+        cache.putByTree("tree1", new ChartSources("name: first chart", Collections.<String>emptyList() ) );
+        cache.putByTree("tree2", new ChartSources("name: second chart", Collections.<String>emptyList() ) );
+        assertNotNull(cache.getByTree("tree1") );
+        cache.putByTree("tree3", new ChartSources("name: third chart", Collections.<String>emptyList() ) );
+
+        // The journal replays to the same entries after a restart
+        final ChartDiskCache restarted = new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES, 2);
+        assertNotNull(restarted.getByTree("tree1") );
+        assertNull(restarted.getByTree("tree2") );
+        assertNotNull(restarted.getByTree("tree3") );
+    }
+
+    @Test
+    public void testIndexOfEarlierVersionsIsMovedToTheJournal() throws Exception {
+        final File directory = folder.newFolder();
+        new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES)
+            .putByTree("tree1", new ChartSources("name: redis", Collections.<String>emptyList() ) );
+
+        assertTrue(new File(directory, "index.journal").delete() );
+        final File legacyIndex = new File(directory, "index.properties");
+        FileUtils.writeStringToFile(legacyIndex, "tree.tree1=" + ChartDiskCache.blobSha("name: redis") + "\n",
+            "UTF-8");
+
+        assertNotNull(new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES).getByTree("tree1") );
+        assertFalse(legacyIndex.exists() );
+        assertNotNull(new ChartDiskCache(directory, ChartDiskCache.MAX_CACHE_SIZE_BYTES).getByTree("tree1") );
+    }
+}
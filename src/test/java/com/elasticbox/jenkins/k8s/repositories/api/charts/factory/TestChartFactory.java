@@ -8,6 +8,7 @@
 
 package com.elasticbox.jenkins.k8s.repositories.api.charts.factory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.elasticbox.jenkins.k8s.chart.Chart;
@@ -89,6 +90,91 @@ public class TestChartFactory {
             ("provider").equals("rabbitmq"));
     }
 
+    @Test
+    public void testMultiDocumentManifest() throws IOException, RepositoryException {
+
+        final String yaml = IOUtils.toString(TestUtils.class.getResourceAsStream("serviceChartManifest.yaml") )
+            + "\n---\n"
+            + IOUtils.toString(TestUtils.class.getResourceAsStream("replicationControllerChartManifest.yaml") );
+
+        Chart.ChartBuilder builder = new Chart.ChartBuilder();
+        builder.chartDetails(getFakeChartDetails() );
+
+        ManifestParser.addManifests(IOUtils.toInputStream(yaml), builder);
+
+        final Chart build = builder.build();
+
+        assertTrue("It should contain one service", 1 == build.getServices().size() );
+        assertTrue("It should contain one rc", 1 == build.getReplicationControllers().size() );
+        assertTrue("Service port should be parsed", build.getServices().get(0).getSpec().getPorts().get(0)
+            .getPort() == 5672);
+    }
+
+    @Test
+    public void testListManifest() throws IOException, RepositoryException {
+
+        final String yaml = "apiVersion: v1\n"
+            + "kind: List\n"
+            + "items:\n"
+            + "- apiVersion: v1\n"
+            + "  kind: Service\n"
+            + "  metadata:\n"
+            + "    name: first\n"
+            + "- apiVersion: v1\n"
+            + "  kind: Service\n"
+            + "  metadata:\n"
+            + "    name: second\n";
+
+        Chart.ChartBuilder builder = new Chart.ChartBuilder();
+        builder.chartDetails(getFakeChartDetails() );
+
+        ManifestParser.addManifests(IOUtils.toInputStream(yaml), builder);
+
+        final Chart build = builder.build();
+
+        assertTrue("It should contain two services", 2 == build.getServices().size() );
+        assertTrue("Items should keep their order", build.getServices().get(1).getMetadata().getName()
+            .equals("second") );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testNotSupportedKind() throws RepositoryException {
+
+        final String yaml = "apiVersion: v1\nkind: Secret\nmetadata:\n  name: secret\n";
+
+        ManifestFactory.addManifest(yaml, new Chart.ChartBuilder() );
+    }
+
+    @Test
+    public void testTimestampsAreKeptAsWritten() throws RepositoryException {
+
+        final String yaml = "apiVersion: v1\n"
+            + "kind: Service\n"
+            + "metadata:\n"
+            + "  name: fakeService\n"
+            + "  labels:\n"
+            + "    release: 2016-04-20\n"
+            + "  annotations:\n"
+            + "    deployedAt: 2016-04-20T10:15:30Z\n";
+
+        Chart.ChartBuilder builder = new Chart.ChartBuilder();
+        builder.chartDetails(getFakeChartDetails() );
+
+        ManifestParser.addManifests(IOUtils.toInputStream(yaml), builder);
+
+        final Service service = builder.build().getServices().get(0);
+        assertEquals("2016-04-20", service.getMetadata().getLabels().get("release") );
+        assertEquals("2016-04-20T10:15:30Z", service.getMetadata().getAnnotations().get("deployedAt") );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testArbitraryClassesAreNotBuilt() throws RepositoryException {
+
+        final String yaml = "!!java.io.File [\"/tmp\"]\n";
+
+        ManifestParser.addManifests(IOUtils.toInputStream(yaml), new Chart.ChartBuilder() );
+    }
+
     private ChartDetails getFakeChartDetails() {
         ChartDetails fakeDetails = new ChartDetails();
         fakeDetails.setDescription("fakeDescription");
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.Test;
+import rx.Observable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+public class TestGitHubChartArchive {
+
+    private static final String COMMIT_SHA = "af5769570942320a8bd018ae054280028dd5f0c9";
+    private static final String ROOT = "helm-charts-af57695/";
+
+    @Test
+    public void testOnlyChartSourcesAreExtracted() throws IOException {
+
+        final GitHubChartArchive archive = GitHubChartArchive.read(COMMIT_SHA, new ByteArrayInputStream(tarball() ) );
+
+        assertEquals(COMMIT_SHA, archive.getCommitSha() );
+        assertEquals(2, archive.size() );
+
+        final GitHubChartArchive.ChartSources rabbitmq = archive.getChart("rabbitmq");
+        assertEquals("name: rabbitmq", rabbitmq.getChartDetails() );
+        assertEquals(2, rabbitmq.getManifests().size() );
+        assertEquals("kind: ReplicationController", rabbitmq.getManifests().get(0) );
+        assertEquals("kind: Service", rabbitmq.getManifests().get(1) );
+
+        final GitHubChartArchive.ChartSources redis = archive.getChart("redis");
+        assertEquals("name: redis", redis.getChartDetails() );
+        assertEquals(0, redis.getManifests().size() );
+
+        assertNull(archive.getChart("README.md") );
+    }
+
+    @Test
+    public void testArchiveIsDownloadedOncePerCommit() throws Exception {
+
+        final GitHubApiArchiveService client = mock(GitHubApiArchiveService.class);
+        when(client.tarball("helm", "charts", COMMIT_SHA))
+            .thenReturn(Observable.just(ResponseBody.create(MediaType.parse("application/x-gzip"), tarball() ) ) );
+
+        final ChartRepo repo = new ChartRepo("https://github.com/helm/charts");
+        final GitHubChartArchiveCache cache = new GitHubChartArchiveCache();
+
+        final GitHubChartArchive first = cache.getArchive(repo, client, COMMIT_SHA);
+        final GitHubChartArchive second = cache.getArchive(repo, client, COMMIT_SHA);
+
+        assertSame(first, second);
+        verify(client, times(1) ).tarball("helm", "charts", COMMIT_SHA);
+    }
+
+    @Test
+    public void testCachedSourcesAreBoundedByTheirWeight() throws IOException {
+
+        final GitHubChartArchive archive = GitHubChartArchive.read(COMMIT_SHA, new ByteArrayInputStream(tarball() ) );
+        assertEquals("name: rabbitmq".length() + "kind: ReplicationController".length() + "kind: Service".length()
+            + "name: redis".length(), archive.getWeight() );
+
+        final String bigManifest = new String(new char[(int) GitHubChartArchiveCache.MAX_CHARTS_WEIGHT]);
+        final GitHubChartArchive.ChartSources big = new GitHubChartArchive.ChartSources("name: big",
+            Collections.singletonList(bigManifest) );
+
+        final GitHubChartArchiveCache cache = new GitHubChartArchiveCache();
+        cache.putChartSources("bigTreeSha", big);
+
+        assertNull("Sources heavier than the cache must not be kept", cache.getChartSources("bigTreeSha") );
+    }
+
+    private static byte[] tarball() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(bytes) ) ) {
+            addFile(tar, ROOT + "README.md", "# Charts");
+            addFile(tar, ROOT + "rabbitmq/Chart.yaml", "name: rabbitmq");
+            addFile(tar, ROOT + "rabbitmq/README.md", "# RabbitMQ");
+            addFile(tar, ROOT + "rabbitmq/manifests/rabbitmq-rc.yaml", "kind: ReplicationController");
+            addFile(tar, ROOT + "rabbitmq/manifests/rabbitmq-svc.yaml", "kind: Service");
+            addFile(tar, ROOT + "redis/Chart.yaml", "name: redis");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addFile(TarArchiveOutputStream tar, String name, String content) throws IOException {
+        final byte[] data = content.getBytes(Charset.forName("UTF-8") );
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(data.length);
+        tar.putArchiveEntry(entry);
+        tar.write(data);
+        tar.closeArchiveEntry();
+    }
+}
@@ -13,8 +13,12 @@ import com.elasticbox.jenkins.k8s.auth.TokenAuthentication;
 import com.elasticbox.jenkins.k8s.auth.UserAndPasswordAuthentication;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import okhttp3.OkHttpClient;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.net.InetSocketAddress;
@@ -137,4 +141,24 @@ public class TestGitHubClientFactory {
         assertTrue(client9 != client8);
         assertTrue(client9 == client7);
     }
+
+    @Test
+    public void testClientVariantsShareTransport() throws RepositoryException {
+        final GitHubHttpTransport transport = new GitHubHttpTransport();
+        final Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(8888) );
+
+        final OkHttpClient baseClient = transport.getBaseClient("api.github.com", null);
+        assertSame(baseClient, transport.getBaseClient("api.github.com", null) );
+        assertNotSame(baseClient, transport.getBaseClient("api.github.com", proxy) );
+        assertEquals(2, transport.getStats().size() );
+
+        final GitHubClientsFactoryImpl factory = new GitHubClientsFactoryImpl();
+        final ChartRepo chartRepo = new ChartRepo("https://github.com/helm/charts");
+
+        factory.getClient(chartRepo, GitHubApiContentsService.class, GitHubApiResponseContentType.JSON);
+        factory.getClient(chartRepo, GitHubApiRawContentDownloadService.class, GitHubApiResponseContentType.RAW_STRING);
+
+        assertEquals(2, factory.getCache().size() );
+        assertTrue(GitHubHttpTransport.getInstance().getStats().containsKey("api.github.com") );
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class TestGitHubHttpCache {
+
+    private static final String TREE = "{\"sha\":\"fakeTreeSha\",\"tree\":[],\"truncated\":false}";
+
+    private final GitHubHttpCache httpCache = GitHubHttpCache.getInstance();
+
+    private MockWebServer server;
+    private GitHubApiTreesService client;
+
+    // The cache is kept on disk between runs, so every run asks for refs that were never cached
+    private final String ref = "fakeRef" + System.nanoTime();
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        final ChartRepo repo = new ChartRepo(server.url("/fakeOwner/fakeChartsRepo").toString() );
+        client = new GitHubClientsFactoryImpl().getClient(repo, GitHubApiTreesService.class,
+            GitHubApiResponseContentType.JSON);
+    }
+
+    @After
+    public void shutdownServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testExpiredResponseIsRevalidatedWithItsETag() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("ETag", "\"fakeETag\"").setBody(TREE) );
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"fakeETag\"") );
+
+        final long misses = httpCache.getMisses();
+        final long revalidations = httpCache.getRevalidations();
+
+        assertEquals("fakeTreeSha", tree(ref).getSha() );
+        assertNull(server.takeRequest().getHeader("If-None-Match") );
+        assertEquals(misses + 1, httpCache.getMisses() );
+
+        // The 304 reply has no body, the tree is read from the cached response
+        assertEquals("fakeTreeSha", tree(ref).getSha() );
+        final RecordedRequest conditionalRequest = server.takeRequest();
+        assertEquals("\"fakeETag\"", conditionalRequest.getHeader("If-None-Match") );
+        assertEquals(revalidations + 1, httpCache.getRevalidations() );
+        assertEquals(misses + 1, httpCache.getMisses() );
+    }
+
+    @Test
+    public void testFreshResponseIsServedFromTheCache() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("ETag", "\"fakeETag\"")
+            .setHeader("Cache-Control", "private, max-age=60").setBody(TREE) );
+
+        final long hits = httpCache.getHits();
+        final long misses = httpCache.getMisses();
+
+        assertEquals("fakeTreeSha", tree(ref).getSha() );
+        assertEquals("fakeTreeSha", tree(ref).getSha() );
+
+        assertEquals(1, server.getRequestCount() );
+        assertEquals(misses + 1, httpCache.getMisses() );
+        assertEquals(hits + 1, httpCache.getHits() );
+    }
+
+    @Test
+    public void testInvalidatedRefIsRequestedAgain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("Cache-Control", "private, max-age=60")
+            .setBody(TREE) );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(TREE) );
+
+        tree(ref);
+        assertEquals(1, httpCache.invalidate("fakeOwner", "fakeChartsRepo", ref) );
+        tree(ref);
+
+        assertEquals(2, server.getRequestCount() );
+    }
+
+    private GitHubTree tree(String ref) {
+        return client.tree("fakeOwner", "fakeChartsRepo", ref, GitHubApiTreesService.RECURSIVE)
+            .toBlocking()
+            .single();
+    }
+}
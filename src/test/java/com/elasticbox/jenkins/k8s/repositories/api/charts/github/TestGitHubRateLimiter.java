@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class TestGitHubRateLimiter {
+
+    private MockWebServer server;
+    private GitHubRateLimiter rateLimiter;
+    private OkHttpClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        rateLimiter = new GitHubRateLimiter(2, 0);
+        client = new OkHttpClient.Builder().addInterceptor(rateLimiter.getInterceptor() ).build();
+    }
+
+    @After
+    public void shutdownServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testBudgetAndConsumptionAreTracked() throws IOException {
+        server.enqueue(rateLimitedResponse(200, 5000, 4999) );
+        server.enqueue(rateLimitedResponse(304, 5000, 4999) );
+
+        execute("/repos/helm/charts/contents/");
+        execute("/repos/helm/charts/contents/");
+
+        final GitHubRateLimiter.RateLimitBudget budget = rateLimiter.getBudget(server.getHostName() + "/anonymous");
+        assertEquals(5000, budget.getLimit() );
+        assertEquals(4999, budget.getRemaining() );
+        assertFalse(budget.isLow() );
+
+        // Not modified responses do not consume budget
+        assertEquals(1, rateLimiter.getConsumedRequests(new ChartRepo("https://github.com/helm/charts") ) );
+        assertEquals(0, rateLimiter.getInFlightRequests(server.getHostName() ) );
+    }
+
+    @Test
+    public void testExhaustedBudgetFailsWithoutReachingGitHub() throws IOException {
+        server.enqueue(rateLimitedResponse(403, 60, 0) );
+
+        execute("/repos/helm/charts/contents/");
+        try {
+            execute("/repos/helm/charts/contents/");
+            fail("Request must be rejected until the rate limit is reset");
+        } catch (IOException exception) {
+            assertTrue(exception.getMessage().contains("rate limit exhausted") );
+        }
+
+        assertEquals(1, server.getRequestCount() );
+        assertEquals(1, rateLimiter.getRejected() );
+    }
+
+    @Test
+    public void testRepositoryKey() {
+        assertEquals("helm/charts",
+                GitHubRateLimiter.repositoryKey(HttpUrl.parse("https://api.github.com/repos/helm/charts/git/trees") ) );
+        assertEquals("helm/charts",
+                GitHubRateLimiter.repositoryKey(HttpUrl.parse("https://raw.githubusercontent.com/helm/charts/a") ) );
+        assertEquals("serna/plugin",
+                GitHubRateLimiter.repositoryKey(HttpUrl.parse("https://git.example.com/api/v3/repos/serna/plugin") ) );
+        assertEquals("serna/plugin",
+                GitHubRateLimiter.repositoryKey(HttpUrl.parse("https://git.example.com/raw/serna/plugin/master") ) );
+    }
+
+    private void execute(String path) throws IOException {
+        final Response response = client.newCall(new Request.Builder().url(server.url(path) ).build() ).execute();
+        response.body().close();
+    }
+
+    private static MockResponse rateLimitedResponse(int code, int limit, int remaining) {
+        final long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() ) + 3600;
+        return new MockResponse().setResponseCode(code)
+                .setHeader(GitHubRateLimiter.RATE_LIMIT_HEADER, limit)
+                .setHeader(GitHubRateLimiter.RATE_LIMIT_REMAINING_HEADER, remaining)
+                .setHeader(GitHubRateLimiter.RATE_LIMIT_RESET_HEADER, reset);
+    }
+}
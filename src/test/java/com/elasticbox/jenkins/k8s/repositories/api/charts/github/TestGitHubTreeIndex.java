@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestGitHubTreeIndex {
+
+    @Test
+    public void testChartsAreTheRootFolders() throws IOException {
+
+        final String json = IOUtils.toString(getClass().getResourceAsStream(
+            "/com/elasticbox/jenkins/k8s/repositories/api/rootChartsRepoTree.json") );
+
+        final GitHubTreeIndex index = GitHubTreeIndex.from(new Gson().fromJson(json, GitHubTree.class) );
+
+        assertEquals(27, index.getChartNames().size() );
+        assertTrue(index.getChartNames().contains("rabbitmq") );
+        assertEquals("9fc47f28d19013c8ded350beb7254477b1eb6058", index.getChartSha("rabbitmq") );
+        assertEquals("af5769570942320a8bd018ae054280028dd5f0c9",
+            index.getBlobSha("rabbitmq/manifests/rabbitmq-rc.yaml") );
+    }
+
+    @Test
+    public void testChartShaOnlyChangesWithItsFolder() {
+
+        final GitHubTreeIndex previous = GitHubTreeIndex.from(tree("root1",
+            entry("mysql", "tree", "mysql1"),
+            entry("redis", "tree", "redis1") ) );
+
+        final GitHubTreeIndex current = GitHubTreeIndex.from(tree("root2",
+            entry("mysql", "tree", "mysql1"),
+            entry("redis", "tree", "redis2"),
+            entry("redis/manifests", "tree", "redisManifests2"),
+            entry("README.md", "blob", "readme1") ) );
+
+        assertEquals(Arrays.asList("mysql", "redis"), current.getChartNames() );
+        assertEquals(previous.getChartSha("mysql"), current.getChartSha("mysql") );
+        assertNotEquals(previous.getChartSha("redis"), current.getChartSha("redis") );
+    }
+
+    @Test
+    public void testChangedCharts() {
+
+        final GitHubTreeIndex previous = GitHubTreeIndex.from(tree("root1",
+            entry("mysql", "tree", "mysql1"),
+            entry("redis", "tree", "redis1"),
+            entry("riak", "tree", "riak1") ) );
+
+        final GitHubTreeIndex current = GitHubTreeIndex.from(tree("root2",
+            entry("mysql", "tree", "mysql1"),
+            entry("redis", "tree", "redis2"),
+            entry("spark", "tree", "spark1"),
+            entry("README.md", "blob", "readme1") ) );
+
+        assertEquals(Arrays.asList("redis", "riak", "spark"), current.changedSince(previous) );
+        assertEquals(Collections.emptyList(), current.changedSince(current) );
+        assertEquals(current.getChartNames(), current.changedSince(null) );
+    }
+
+    static GitHubTree tree(String sha, GitHubTreeEntry... entries) {
+        final GitHubTree tree = new GitHubTree();
+        tree.setSha(sha);
+        tree.setTree(Arrays.asList(entries) );
+        tree.setTruncated(false);
+        return tree;
+    }
+
+    static GitHubTreeEntry entry(String path, String type, String sha) {
+        final GitHubTreeEntry entry = new GitHubTreeEntry();
+        entry.setPath(path);
+        entry.setType(type);
+        entry.setSha(sha);
+        return entry;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.github;
+
+import static com.elasticbox.jenkins.k8s.repositories.api.charts.github.TestGitHubTreeIndex.entry;
+import static com.elasticbox.jenkins.k8s.repositories.api.charts.github.TestGitHubTreeIndex.tree;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TestGitHubTreeIndexCache {
+
+    private final ChartRepo repo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+
+    private final GitHubTreeIndex before = GitHubTreeIndex.from(tree("root1",
+        entry("mysql", "tree", "mysql1"),
+        entry("redis", "tree", "redis1") ) );
+
+    private final GitHubTreeIndex after = GitHubTreeIndex.from(tree("root2",
+        entry("mysql", "tree", "mysql1"),
+        entry("redis", "tree", "redis2") ) );
+
+    @Test
+    public void testSnapshotIsReusedUntilTheRefIsInvalidated() {
+        final GitHubTreeIndexCache cache = new GitHubTreeIndexCache();
+
+        cache.update(repo, "master", before);
+        assertSame(before, cache.getFresh(repo, "master") );
+        assertNull(cache.getFresh(repo, "develop") );
+
+        cache.invalidate(repo, "master");
+        assertNull(cache.getFresh(repo, "master") );
+    }
+
+    @Test
+    public void testExpiredSnapshotIsNotReused() {
+        final GitHubTreeIndexCache cache = new GitHubTreeIndexCache(0);
+
+        cache.update(repo, "master", before);
+
+        assertNull(cache.getFresh(repo, "master") );
+        assertSame(before, cache.getLatest(repo, "master") );
+    }
+
+    @Test
+    public void testChangesAreFoundSinceTheInvalidation() {
+        final GitHubTreeIndexCache cache = new GitHubTreeIndexCache();
+
+        cache.update(repo, "master", before);
+        cache.invalidate(repo, "master");
+
+        // Listing the ref before the changes are asked for keeps the snapshot of the invalidation as the base
+        cache.update(repo, "master", after);
+        assertEquals(Collections.singletonList("redis"), cache.changedSinceInvalidation(repo, "master", after) );
+
+        // Every invalidation is diffed once
+        assertNull(cache.changedSinceInvalidation(repo, "master", after) );
+    }
+
+    @Test
+    public void testRefNeverListedHasUnknownChanges() {
+        final GitHubTreeIndexCache cache = new GitHubTreeIndexCache();
+
+        cache.invalidate(repo, "master");
+
+        assertNull(cache.changedSinceInvalidation(repo, "master", after) );
+    }
+}
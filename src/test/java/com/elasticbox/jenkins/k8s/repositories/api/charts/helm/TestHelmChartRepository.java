@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.helm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.util.TestUtils;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+public class TestHelmChartRepository {
+
+    private MockWebServer server;
+    private ChartRepo repo;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        repo = new ChartRepo(server.url("/charts/").toString() );
+        repo.setType(ChartRepoType.HELM);
+    }
+
+    @After
+    public void shutdownServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testChartFromIndex() throws Exception {
+        final byte[] chartPackage = chartPackage("rabbitmq/manifests/rabbitmq-svc.yaml", serviceManifest() );
+        final String digest = DigestUtils.sha256Hex(chartPackage);
+
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("ETag", "\"v1\"").setBody(index(digest) ) );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(new Buffer().write(chartPackage) ) );
+
+        final HelmChartRepository repository = new HelmChartRepository();
+
+        assertEquals(Arrays.asList("rabbitmq", "redis"), repository.chartNames(repo) );
+
+        final Chart chart = repository.chart(repo, "rabbitmq");
+        assertEquals("rabbitmq", chart.getName() );
+        assertEquals(1, chart.getServices().size() );
+
+        assertEquals("/charts/index.yaml", server.takeRequest().getPath() );
+        assertEquals("/charts/rabbitmq-0.2.0.tgz", server.takeRequest().getPath() );
+        assertEquals(2, server.getRequestCount() );
+    }
+
+    @Test
+    public void testPlainTemplatesAreDeployed() throws Exception {
+        final Chart chart = chartOfPackage(chartPackage(
+            "rabbitmq/templates/rabbitmq-svc.yaml", serviceManifest(),
+            "rabbitmq/templates/NOTES.txt", "Get the RabbitMQ URL by running: {{ .Release.Name }}") );
+
+        assertEquals(1, chart.getServices().size() );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testRenderedTemplatesAreRejected() throws Exception {
+        chartOfPackage(chartPackage(
+            "rabbitmq/templates/rabbitmq-svc.yaml", serviceManifest().replace("rabbitmq", "{{ .Release.Name }}") ) );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testPackageWithoutResourcesIsRejected() throws Exception {
+        chartOfPackage(chartPackage() );
+    }
+
+    @Test
+    public void testIndexIsRevalidatedWithEtag() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("ETag", "\"v1\"").setBody(index("0") ) );
+        server.enqueue(new MockResponse().setResponseCode(304) );
+
+        final HelmChartRepository repository = new HelmChartRepository(0);
+
+        assertEquals(2, repository.chartNames(repo).size() );
+        assertEquals(2, repository.chartNames(repo).size() );
+
+        assertNull(server.takeRequest().getHeader("If-None-Match") );
+        final RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match") );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testIndexCannotBuildArbitraryClasses() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("entries: !!java.io.File [\"/tmp\"]\n") );
+
+        new HelmChartRepository().chartNames(repo);
+    }
+
+    private static String index(String digest) {
+        return "apiVersion: v1\n"
+            + "entries:\n"
+            + "  rabbitmq:\n"
+            + "  - name: rabbitmq\n"
+            + "    version: 0.2.0\n"
+            + "    digest: " + digest + "\n"
+            + "    urls:\n"
+            + "    - rabbitmq-0.2.0.tgz\n"
+            + "  - name: rabbitmq\n"
+            + "    version: 0.1.0\n"
+            + "    urls:\n"
+            + "    - rabbitmq-0.1.0.tgz\n"
+            + "  redis:\n"
+            + "  - name: redis\n"
+            + "    version: 1.0.0\n"
+            + "    urls:\n"
+            + "    - redis-1.0.0.tgz\n";
+    }
+
+    private Chart chartOfPackage(byte[] chartPackage) throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(index(DigestUtils.sha256Hex(chartPackage) ) ) );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(new Buffer().write(chartPackage) ) );
+
+        return new HelmChartRepository().chart(repo, "rabbitmq");
+    }
+
+    private static String serviceManifest() throws IOException {
+        return IOUtils.toString(TestUtils.class.getResourceAsStream("serviceChartManifest.yaml") );
+    }
+
+    /**
+     * Package of the rabbitmq chart with the given files, as pairs of name and content, besides its Chart.yaml file.
+     */
+    private static byte[] chartPackage(String... files) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(bytes) ) ) {
+            addFile(tar, "rabbitmq/Chart.yaml",
+                IOUtils.toString(TestUtils.class.getResourceAsStream("chartYaml.yaml") ) );
+            for (int index = 0; index < files.length; index += 2) {
+                addFile(tar, files[index], files[index + 1]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addFile(TarArchiveOutputStream tar, String name, String content) throws IOException {
+        final byte[] data = content.getBytes(Charset.forName("UTF-8") );
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(data.length);
+        tar.putArchiveEntry(entry);
+        tar.write(data);
+        tar.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.charts.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.chart.ChartRepoType;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class TestLocalChartRepository {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final long CHANGE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String SERVICE_MANIFEST = "apiVersion: v1\nkind: Service\nmetadata:\n  name: redis\n"
+            + "spec:\n  ports:\n  - port: 6379\n";
+
+    private static final String POD_MANIFEST = "apiVersion: v1\nkind: Pod\nmetadata:\n  name: redis\n"
+            + "spec:\n  containers:\n  - name: redis\n    image: redis\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LocalChartRepository repository = new LocalChartRepository();
+
+    private File root;
+    private ChartRepo repo;
+
+    @Before
+    public void setUp() throws Exception {
+        root = folder.newFolder("charts");
+        writeChart("redis", SERVICE_MANIFEST);
+        writeChart("nginx", SERVICE_MANIFEST.replace("redis", "nginx") );
+        Files.createDirectories(root.toPath().resolve(".git") );
+
+        repo = new ChartRepo(root.toURI().toString() );
+        repo.setType(ChartRepoType.LOCAL);
+    }
+
+    @Test
+    public void testChartsAreParsedOnce() throws Exception {
+        assertEquals(Arrays.asList("nginx", "redis"), repository.chartNames(repo) );
+
+        final Chart chart = repository.chart(repo, "redis");
+        assertEquals("redis", chart.getName() );
+        assertEquals(1, chart.getServices().size() );
+        assertSame(chart, repository.chart(repo, "redis", "any ref") );
+    }
+
+    @Test
+    public void testChangedManifestsArePickedUp() throws Exception {
+        final Chart chart = repository.chart(repo, "redis");
+        final Chart nginx = repository.chart(repo, "nginx");
+
+        writeAtomically(root.toPath().resolve("redis/manifests/redis-pod.yaml"), POD_MANIFEST);
+
+        final Chart changed = waitForChange(chart, "redis");
+        assertEquals(1, changed.getServices().size() );
+        assertEquals(1, changed.getPods().size() );
+        assertSame(nginx, repository.chart(repo, "nginx") );
+    }
+
+    @Test
+    public void testNewChartsArePickedUp() throws Exception {
+        assertEquals(Arrays.asList("nginx", "redis"), repository.chartNames(repo) );
+
+        final Path chartFolder = root.toPath().resolve("mysql");
+        Files.createDirectories(chartFolder.resolve("manifests") );
+        writeAtomically(chartFolder.resolve("Chart.yaml"), "name: mysql\nversion: 0.1.0\n");
+
+        final long deadline = System.currentTimeMillis() + CHANGE_TIMEOUT_MILLIS;
+        while (repository.chartNames(repo).size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(Arrays.asList("mysql", "nginx", "redis"), repository.chartNames(repo) );
+        assertEquals("mysql", repository.chart(repo, "mysql").getName() );
+    }
+
+    @Test
+    public void testInvalidateParsesTheDirectoryAgain() throws Exception {
+        final Chart chart = repository.chart(repo, "redis");
+
+        repository.invalidate(repo, null);
+
+        final Chart parsedAgain = repository.chart(repo, "redis");
+        assertNotSame(chart, parsedAgain);
+        assertEquals("redis", parsedAgain.getName() );
+    }
+
+    @Test
+    public void testScannedDirectoryIsNotKept() throws Exception {
+        assertEquals(Arrays.asList("nginx", "redis"), repository.scanChartNames(repo) );
+
+        // The first use of the directory parses it again
+        writeChart("mysql", SERVICE_MANIFEST.replace("redis", "mysql") );
+        assertEquals(Arrays.asList("mysql", "nginx", "redis"), repository.chartNames(repo) );
+    }
+
+    @Test
+    public void testDirectoriesNoLongerConfiguredAreDropped() throws Exception {
+        final Chart chart = repository.chart(repo, "redis");
+
+        repository.retainDirectories(Collections.singletonList(repo) );
+        assertSame(chart, repository.chart(repo, "redis") );
+
+        repository.retainDirectories(Collections.<ChartRepo>emptyList() );
+        assertNotSame(chart, repository.chart(repo, "redis") );
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void testMissingDirectoryIsReported() throws Exception {
+        final ChartRepo missing = new ChartRepo(new File(root, "missing").toURI().toString() );
+        missing.setType(ChartRepoType.LOCAL);
+
+        repository.chartNames(missing);
+    }
+
+    private Chart waitForChange(Chart chart, String chartName) throws Exception {
+        final long deadline = System.currentTimeMillis() + CHANGE_TIMEOUT_MILLIS;
+        Chart current = repository.chart(repo, chartName);
+        while (current == chart && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            current = repository.chart(repo, chartName);
+        }
+        return current;
+    }
+
+    private void writeChart(String chartName, String manifest) throws Exception {
+        final Path chartFolder = root.toPath().resolve(chartName);
+        Files.createDirectories(chartFolder.resolve("manifests") );
+        write(chartFolder.resolve("Chart.yaml"), "name: " + chartName + "\nversion: 0.1.0\n");
+        write(chartFolder.resolve("manifests").resolve(chartName + "-svc.yaml"), manifest);
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(UTF_8) );
+    }
+
+    /**
+     * Writes a hidden file and renames it, so the change is notified once the whole content is in place.
+     */
+    private static void writeAtomically(Path file, String content) throws Exception {
+        final Path temporary = file.resolveSibling("." + file.getFileName() + ".tmp");
+        write(temporary, content);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
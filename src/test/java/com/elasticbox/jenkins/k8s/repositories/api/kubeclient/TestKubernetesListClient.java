@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.kubeclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class TestKubernetesListClient {
+
+    private MockWebServer server;
+    private KubernetesListClient listClient;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        listClient = new KubernetesListClient(new OkHttpClient(), server.url("/").toString(), "Bearer fakeToken");
+    }
+
+    @After
+    public void shutdownServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testNamesAreReadPageByPage() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"kind\":\"PodList\","
+            + "\"metadata\":{\"continue\":\"fakeToken1\"},\"items\":["
+            + "{\"metadata\":{\"name\":\"pod1\",\"labels\":{\"name\":\"fakeLabel\"}},\"spec\":{\"containers\":[]}},"
+            + "{\"metadata\":{\"name\":\"pod2\"}}]}") );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"items\":[{\"metadata\":"
+            + "{\"name\":\"pod3\"}}],\"metadata\":{\"continue\":\"\"}}") );
+
+        final Iterator<String> names = listClient.names("api/v1/namespaces/fakeNamespace/pods", "status.phase=Running");
+
+        final List<String> listed = new ArrayList<>();
+        while (names.hasNext() ) {
+            listed.add(names.next() );
+        }
+        assertEquals(Arrays.asList("pod1", "pod2", "pod3"), listed);
+
+        final RecordedRequest firstPage = server.takeRequest();
+        assertEquals("/api/v1/namespaces/fakeNamespace/pods?limit=" + KubernetesListClient.PAGE_SIZE
+            + "&fieldSelector=status.phase%3DRunning", firstPage.getPath() );
+        assertEquals("Bearer fakeToken", firstPage.getHeader("Authorization") );
+        assertEquals(KubernetesListClient.METADATA_ONLY, firstPage.getHeader("Accept") );
+
+        final RecordedRequest secondPage = server.takeRequest();
+        assertEquals("/api/v1/namespaces/fakeNamespace/pods?limit=" + KubernetesListClient.PAGE_SIZE
+            + "&fieldSelector=status.phase%3DRunning&continue=fakeToken1", secondPage.getPath() );
+    }
+
+    @Test
+    public void testServerWithoutChunkingIsReadInOnePage() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"kind\":\"NamespaceList\","
+            + "\"metadata\":{\"resourceVersion\":\"1\"},\"items\":[{\"metadata\":{\"name\":\"default\"}},"
+            + "{\"metadata\":{\"name\":\"kube-system\"}}]}") );
+
+        assertEquals(2, listClient.count("api/v1/namespaces", null) );
+        assertEquals(1, server.getRequestCount() );
+    }
+
+    @Test
+    public void testEmptyPagesAreFollowed() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"metadata\":{\"continue\":\"fakeToken1\"},"
+            + "\"items\":[]}") );
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"items\":null}") );
+
+        assertFalse(listClient.names("api/v1/namespaces", null).hasNext() );
+        assertEquals(2, server.getRequestCount() );
+    }
+
+    @Test
+    public void testExpiredContinueTokenIsReported() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"metadata\":{\"continue\":\"fakeToken1\"},"
+            + "\"items\":[{\"metadata\":{\"name\":\"pod1\"}}]}") );
+        server.enqueue(new MockResponse().setResponseCode(410).setBody("{\"kind\":\"Status\",\"code\":410}") );
+
+        try {
+            listClient.count("api/v1/namespaces/fakeNamespace/pods", null);
+            fail("The expired continue token must be reported");
+        } catch (KubernetesClientException exception) {
+            assertEquals(410, exception.getCode() );
+        }
+    }
+
+    @Test
+    public void testItemWithoutNameIsSkipped() throws Exception {
+        final KubernetesListClient.Page page = KubernetesListClient.readPage(new ByteArrayInputStream(
+            "{\"items\":[{\"metadata\":{}},{\"metadata\":{\"name\":\"pod1\"}}]}".getBytes("UTF-8") ) );
+
+        assertEquals(Arrays.asList("pod1"), page.getNames() );
+        assertNull(page.getContinueToken() );
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.repositories.api.retry;
+
+import com.elasticbox.jenkins.k8s.repositories.api.retry.RetryPolicy.OperationType;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRetryPolicy {
+
+    private final RetryPolicy retryPolicy = new RetryPolicy(1, 2);
+
+    @Test
+    public void testTransientErrorIsRetried() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = retryPolicy.execute(OperationType.READ, "Read", new RetryPolicy.Operation<String>() {
+            @Override
+            public String call() {
+                if (calls.incrementAndGet() < 3) {
+                    throw new KubernetesClientException("Service unavailable", 503, null);
+                }
+                return "OK";
+            }
+        });
+
+        Assert.assertEquals("OK", result);
+        Assert.assertEquals(3, calls.get() );
+        Assert.assertEquals(2, retryPolicy.getRetries(OperationType.READ) );
+        Assert.assertEquals(1, retryPolicy.getRecovered(OperationType.READ) );
+    }
+
+    @Test
+    public void testConflictOnRetriedCreateIsSuccess() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+
+        retryPolicy.execute(OperationType.CREATE, "Create", new RetryPolicy.Operation<Void>() {
+            @Override
+            public Void call() {
+                if (calls.incrementAndGet() == 1) {
+                    throw new KubernetesClientException("Too many requests", 429, null);
+                }
+                throw new KubernetesClientException("Already exists", 409, null);
+            }
+        });
+
+        Assert.assertEquals(2, calls.get() );
+        Assert.assertEquals(1, retryPolicy.getRecovered(OperationType.CREATE) );
+    }
+
+    @Test
+    public void testConflictOnRetriedCreateReadsTheCreatedResource() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String result = retryPolicy.execute(OperationType.CREATE, "Create",
+            new RetryPolicy.Operation<String>() {
+                @Override
+                public String call() {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new KubernetesClientException("Service unavailable", 503, null);
+                    }
+                    throw new KubernetesClientException("Already exists", 409, null);
+                }
+            },
+            new RetryPolicy.Operation<String>() {
+                @Override
+                public String call() {
+                    return "Created by the first attempt";
+                }
+            });
+
+        Assert.assertEquals("Created by the first attempt", result);
+        Assert.assertEquals(2, calls.get() );
+    }
+
+    @Test
+    public void testNonTransientErrorIsNotRetried() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(OperationType.CREATE, "Create", new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    calls.incrementAndGet();
+                    throw new KubernetesClientException("Already exists", 409, null);
+                }
+            });
+            Assert.fail("Conflict on the first attempt must be propagated");
+
+        } catch (KubernetesClientException exception) {
+            Assert.assertEquals(409, exception.getCode() );
+        }
+
+        Assert.assertEquals(1, calls.get() );
+        Assert.assertEquals(0, retryPolicy.getRetries(OperationType.CREATE) );
+    }
+
+    @Test
+    public void testBudgetIsExhausted() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(OperationType.DELETE, "Delete", new RetryPolicy.Operation<Void>() {
+                @Override
+                public Void call() {
+                    calls.incrementAndGet();
+                    throw new KubernetesClientException("Internal error", 500, null);
+                }
+            });
+            Assert.fail("Transient error must be propagated once the budget is exhausted");
+
+        } catch (KubernetesClientException exception) {
+            Assert.assertEquals(500, exception.getCode() );
+        }
+
+        Assert.assertEquals(OperationType.DELETE.getMaxAttempts(), calls.get() );
+        Assert.assertEquals(1, retryPolicy.getExhausted(OperationType.DELETE) );
+    }
+}
@@ -11,30 +11,51 @@ package com.elasticbox.jenkins.k8s.services;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 
+import com.elasticbox.jenkins.k8s.chart.Chart;
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
 import com.elasticbox.jenkins.k8s.util.KeyValuePair;
 import com.elasticbox.jenkins.k8s.repositories.KubernetesRepository;
 import com.elasticbox.jenkins.k8s.repositories.PodRepository;
 import com.elasticbox.jenkins.k8s.repositories.ReplicationControllerRepository;
 import com.elasticbox.jenkins.k8s.repositories.ServiceRepository;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
 import com.elasticbox.jenkins.k8s.util.TestUtils;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.ChartRepositoryApiImpl;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.services.deployment.ResourceContentHash;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.Service;
+import hudson.util.LogTaskListener;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class TestChartDeploymentService {
 
+    private static final Logger LOGGER = Logger.getLogger(TestChartDeploymentService.class.getName() );
+
     private static final String TEST_NAMESPACE = "test-chart";
     private static final String SERVER_URL = "http://10.107.56.115:8080/";
     private static final String KIND_SERVICE = "Service";
@@ -57,7 +78,8 @@ public class TestChartDeploymentService {
     public void setUpMocks() throws IOException, RepositoryException {
         chartRepositoryMock.setClientsFactory(TestUtils.getGitHubClientsFactoryMock() );
 
-        Mockito.when(kubernetesRepositoryMock.namespaceExists(anyString(), anyString() )).thenReturn(Boolean.TRUE);
+        Mockito.when(kubernetesRepositoryMock.createNamespaceIfAbsent(anyString(), anyString() ))
+                .thenReturn(Boolean.FALSE);
 
         Mockito.doNothing().when(serviceRepositoryMock).create(anyString(), anyString(), any(Service.class) );
         Mockito.doNothing().when(podRepositoryMock).create(anyString(), anyString(), any(Pod.class) );
@@ -73,7 +95,11 @@ public class TestChartDeploymentService {
         ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
 
         service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName",
-                Collections.singletonMap("fakeLabelKey", "fakeLabelText") );
+                Collections.singletonMap("fakeLabelKey", "fakeLabelText"),
+                new TaskLogger(new LogTaskListener(LOGGER, Level.INFO), LOGGER) );
+
+        Mockito.verify(kubernetesRepositoryMock).createNamespaceIfAbsent(anyString(), anyString() );
+        Mockito.verify(kubernetesRepositoryMock, Mockito.never() ).namespaceExists(anyString(), anyString() );
 
         Mockito.verify(serviceRepositoryMock).create(anyString(), anyString(), any(Service.class), any(Map.class) );
 
@@ -87,4 +113,163 @@ public class TestChartDeploymentService {
                 .createNamespece(anyString(), anyString(), any(KeyValuePair.class) );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRedeployOnlyChangedResources() throws Exception {
+
+        ChartDeploymentService service = new ChartDeploymentServiceImpl(kubernetesRepositoryMock, chartRepositoryMock,
+                serviceRepositoryMock, podRepositoryMock, rcRepositoryMock);
+
+        ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+        Map<String, String> labels = Collections.singletonMap("fakeLabelKey", "fakeLabelText");
+
+        final Chart chart = chartRepositoryMock.chart(fakeRepo, "fakeChartName");
+        final Service desiredService = chart.getServices().get(0);
+        final ReplicationController desiredRc = chart.getReplicationControllers().get(0);
+
+        final Service liveService = ResourceContentHash.annotated(desiredService,
+                ResourceContentHash.of(desiredService, labels.keySet() ) );
+        final ReplicationController liveRc = ResourceContentHash.annotated(desiredRc, "outdated");
+
+        Mockito.when(serviceRepositoryMock.get(anyString(), anyString(), anyString() ) ).thenReturn(liveService);
+        Mockito.when(rcRepositoryMock.get(anyString(), anyString(), anyString() ) ).thenReturn(liveRc);
+
+        service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName", labels,
+                new TaskLogger(new LogTaskListener(LOGGER, Level.INFO), LOGGER) );
+
+        Mockito.verify(serviceRepositoryMock, Mockito.never() )
+                .create(anyString(), anyString(), any(Service.class), any(Map.class) );
+        Mockito.verify(serviceRepositoryMock, Mockito.never() )
+                .replace(anyString(), anyString(), any(Service.class), any(Map.class) );
+
+        Mockito.verify(rcRepositoryMock, Mockito.never() )
+                .create(anyString(), anyString(), any(ReplicationController.class), any(Map.class) );
+        Mockito.verify(rcRepositoryMock)
+                .replace(anyString(), anyString(), any(ReplicationController.class), any(Map.class) );
+    }
+
+    @Test
+    public void testDeleteChartDeletesEveryResource() throws Exception {
+
+        ChartDeploymentService service = new ChartDeploymentServiceImpl(kubernetesRepositoryMock, chartRepositoryMock,
+                serviceRepositoryMock, podRepositoryMock, rcRepositoryMock);
+
+        Mockito.when(kubernetesRepositoryMock.namespaceExists(anyString(), anyString() ) ).thenReturn(Boolean.TRUE);
+
+        service.deleteChart("fakeKubeCloud", "fakeNamespace",
+                new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo"), "fakeChartName");
+
+        Mockito.verify(serviceRepositoryMock).delete(anyString(), anyString(), any(Service.class) );
+        Mockito.verify(rcRepositoryMock).delete(anyString(), anyString(), any(ReplicationController.class) );
+        Mockito.verify(podRepositoryMock, Mockito.never() ).delete(anyString(), anyString(), any(Pod.class) );
+    }
+
+    @Test
+    public void testConcurrentDeploysAreCoalesced() throws Exception {
+
+        final ChartDeploymentService service = new ChartDeploymentServiceImpl(kubernetesRepositoryMock,
+                chartRepositoryMock, serviceRepositoryMock, podRepositoryMock, rcRepositoryMock);
+
+        final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+
+        // Slow namespace check, so the second deploy starts while the first one is in flight
+        Mockito.when(kubernetesRepositoryMock.createNamespaceIfAbsent(anyString(), anyString() ))
+                .thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                        Thread.sleep(500);
+                        return Boolean.FALSE;
+                    }
+                });
+
+        final List<Callable<Chart>> deploys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Map<String, String> label = Collections.singletonMap("fakeLabelKey", "fakeLabelText" + i);
+            deploys.add(new Callable<Chart>() {
+                @Override
+                public Chart call() throws Exception {
+                    return service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName",
+                            label, null);
+                }
+            });
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(deploys.size() );
+        try {
+            final List<Future<Chart>> results = executorService.invokeAll(deploys);
+            for (Future<Chart> result : results) {
+                Assert.assertSame("Coalesced deploys must share the result", results.get(0).get(), result.get() );
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        Mockito.verify(kubernetesRepositoryMock).createNamespaceIfAbsent(anyString(), anyString() );
+        Mockito.verify(serviceRepositoryMock).create(anyString(), anyString(), any(Service.class), any(Map.class) );
+
+        // The builds that waited for the deploy label the chart resources as their own
+        Mockito.verify(serviceRepositoryMock, Mockito.times(2) ).addLabels(anyString(), anyString(), anyString(),
+                any(Map.class) );
+        Mockito.verify(rcRepositoryMock, Mockito.times(2) ).addLabels(anyString(), anyString(), anyString(),
+                any(Map.class) );
+
+        // The chart can only be deleted once every deploy released it
+        Assert.assertFalse(service.releaseChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName") );
+        Assert.assertFalse(service.releaseChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName") );
+        Assert.assertTrue(service.releaseChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName") );
+    }
+
+    @Test
+    public void testFailedRedeployKeepsTheReferencesOfEarlierDeploys() throws Exception {
+
+        final ChartDeploymentService service = new ChartDeploymentServiceImpl(kubernetesRepositoryMock,
+                chartRepositoryMock, serviceRepositoryMock, podRepositoryMock, rcRepositoryMock);
+
+        final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+        final Map<String, String> label = Collections.singletonMap("fakeLabelKey", "fakeLabelText");
+
+        service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName", label, null);
+        service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName", label, null);
+
+        Mockito.when(kubernetesRepositoryMock.createNamespaceIfAbsent(anyString(), anyString() ))
+                .thenThrow(new RepositoryException("Fake error"));
+        try {
+            service.deployChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName", label, null);
+            Assert.fail("The failed deploy must be reported");
+        } catch (ServiceException expected) {
+            // The failed build holds no reference
+        }
+
+        // The builds of the earlier deploys still use the chart
+        Assert.assertFalse(service.releaseChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName") );
+        Assert.assertTrue(service.releaseChart("fakeKubeCloud", "fakeNamespace", fakeRepo, "fakeChartName") );
+    }
+
+    @Test
+    public void testReadinessListsOnlyThePodsOfTheChart() throws Exception {
+
+        final ChartDeploymentService service = new ChartDeploymentServiceImpl(kubernetesRepositoryMock,
+                chartRepositoryMock, serviceRepositoryMock, podRepositoryMock, rcRepositoryMock);
+
+        final Chart chart = chartRepositoryMock.chart(new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo"),
+                "fakeChartName");
+
+        final Pod readyPod = new PodBuilder()
+                .withNewMetadata().withName("rabbitmq-fake").addToLabels("provider", "rabbitmq").endMetadata()
+                .withNewStatus().withPhase("Running")
+                .addNewCondition().withType("Ready").withStatus("True").endCondition()
+                .endStatus()
+                .build();
+
+        Mockito.when(podRepositoryMock.watchPods(anyString(), anyString(), any(Watcher.class) ))
+                .thenReturn(Mockito.mock(Watch.class) );
+        Mockito.when(podRepositoryMock.getPods(anyString(), anyString(), any(Map.class) ))
+                .thenReturn(Collections.singletonList(readyPod) );
+
+        service.waitUntilReady("fakeKubeCloud", "fakeNamespace", chart, 1000, null);
+
+        // The Pods of the namespace are listed with the selector of the ReplicationController of the chart
+        Mockito.verify(podRepositoryMock).getPods("fakeKubeCloud", "fakeNamespace",
+                Collections.singletonMap("provider", "rabbitmq") );
+        Mockito.verify(podRepositoryMock, Mockito.never() ).getPods(anyString(), anyString() );
+    }
+}
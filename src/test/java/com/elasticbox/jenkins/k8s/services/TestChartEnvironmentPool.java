@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartDetails;
+import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.util.TaskLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class TestChartEnvironmentPool {
+
+    private static final String FAKE_KUBE_NAME = "fakeKubeCloud";
+    private static final String FAKE_CHART_NAME = "fakeChartName";
+    private static final Map<String, String> NO_LABELS = Collections.emptyMap();
+
+    private final ChartRepo fakeRepo = new ChartRepo("https://github.com/fakeOwner/fakeChartsRepo");
+
+    private ChartDeploymentService deploymentServiceMock = Mockito.mock(ChartDeploymentService.class);
+    private ChartTeardownQueue teardownQueueMock = Mockito.mock(ChartTeardownQueue.class);
+
+    private ChartEnvironmentPool pool = new ChartEnvironmentPool(deploymentServiceMock, teardownQueueMock,
+            ChartEnvironmentPool.IDLE_TIMEOUT_MILLIS);
+
+    @Test
+    public void testReleasedEnvironmentIsReused() throws Exception {
+        final ChartEnvironmentPool.Lease first = lease(2, 1000);
+        Assert.assertFalse("A new environment must be created", first.isReused() );
+        pool.release(first);
+
+        final ChartEnvironmentPool.Lease second = lease(2, 1000);
+        Assert.assertTrue("The released environment must be reused", second.isReused() );
+        Assert.assertEquals(first.getNamespace(), second.getNamespace() );
+        Assert.assertEquals(1, pool.getEnvironments(FAKE_KUBE_NAME, fakeRepo, FAKE_CHART_NAME) );
+
+        Mockito.verify(deploymentServiceMock, Mockito.times(1) )
+                .createNamespace(anyString(), anyString(), any(Map.class), any(Map.class) );
+
+        // The chart is redeployed into the reused environment to reset it
+        Mockito.verify(deploymentServiceMock, Mockito.times(2) ).deployChart(eq(FAKE_KUBE_NAME),
+                eq(first.getNamespace() ), any(ChartRepo.class), anyString(), any(Map.class), any(TaskLogger.class) );
+        Mockito.verify(deploymentServiceMock).deleteResourcesNotInChart(eq(FAKE_KUBE_NAME),
+                eq(first.getNamespace() ), any(Chart.class) );
+    }
+
+    @Test
+    public void testEveryLeaseReleasesItsChartReference() throws Exception {
+        final ChartEnvironmentPool.Lease first = lease(1, 1000);
+        pool.release(first);
+        pool.release(lease(1, 1000) );
+
+        Mockito.verify(deploymentServiceMock, Mockito.times(2) ).releaseChart(FAKE_KUBE_NAME, first.getNamespace(),
+                fakeRepo, FAKE_CHART_NAME);
+    }
+
+    @Test
+    public void testEnvironmentThatCannotBeResetGivesBackItsReference() throws Exception {
+        final ChartEnvironmentPool.Lease first = lease(1, 1000);
+        pool.release(first);
+
+        Mockito.doThrow(new ServiceException("Fake prune error") )
+                .when(deploymentServiceMock).deleteResourcesNotInChart(anyString(), anyString(), any(Chart.class) );
+        Mockito.when(deploymentServiceMock.deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(),
+                any(Map.class), any(TaskLogger.class) ) ).thenReturn(new Chart.ChartBuilder()
+                .chartDetails(new ChartDetails() ).build() );
+
+        final ChartEnvironmentPool.Lease second = lease(1, 1000);
+        Assert.assertFalse("A new environment must replace the discarded one", second.isReused() );
+        Mockito.verify(teardownQueueMock).submitNamespace(FAKE_KUBE_NAME, first.getNamespace() );
+
+        // The reference of the first lease and the one of the discarded reset
+        Mockito.verify(deploymentServiceMock, Mockito.times(2) ).releaseChart(FAKE_KUBE_NAME, first.getNamespace(),
+                fakeRepo, FAKE_CHART_NAME);
+    }
+
+    @Test
+    public void testLeasedEnvironmentsAreBoundedByTheMaximum() throws Exception {
+        final ChartEnvironmentPool.Lease first = lease(2, 1000);
+        final ChartEnvironmentPool.Lease second = lease(2, 1000);
+        Assert.assertNotEquals(first.getNamespace(), second.getNamespace() );
+
+        try {
+            lease(2, 100);
+            Assert.fail("The pool must not grow above its maximum");
+        } catch (ServiceException exception) {
+            Assert.assertEquals(2, pool.getEnvironments(FAKE_KUBE_NAME, fakeRepo, FAKE_CHART_NAME) );
+        }
+    }
+
+    @Test
+    public void testEnvironmentThatCannotBeRestoredIsDiscarded() throws Exception {
+        final ChartEnvironmentPool.Lease first = lease(1, 1000);
+        pool.release(first);
+
+        Mockito.doThrow(new ServiceException("Fake deploy error") )
+                .doReturn(null)
+                .when(deploymentServiceMock).deployChart(anyString(), anyString(), any(ChartRepo.class), anyString(),
+                        any(Map.class), any(TaskLogger.class) );
+
+        final ChartEnvironmentPool.Lease second = lease(1, 1000);
+        Assert.assertFalse("A new environment must replace the discarded one", second.isReused() );
+        Assert.assertFalse(pool.isPooled(FAKE_KUBE_NAME, first.getNamespace() ) );
+        Mockito.verify(teardownQueueMock).submitNamespace(FAKE_KUBE_NAME, first.getNamespace() );
+    }
+
+    @Test
+    public void testIdleEnvironmentsAreEvicted() throws Exception {
+        pool = new ChartEnvironmentPool(deploymentServiceMock, teardownQueueMock, 0);
+
+        final ChartEnvironmentPool.Lease lease = lease(1, 1000);
+        pool.evictIdleEnvironments();
+        Assert.assertTrue("Leased environments must not be evicted", pool.isPooled(FAKE_KUBE_NAME,
+                lease.getNamespace() ) );
+
+        pool.release(lease);
+        pool.evictIdleEnvironments();
+        Assert.assertFalse(pool.isPooled(FAKE_KUBE_NAME, lease.getNamespace() ) );
+        Mockito.verify(teardownQueueMock).submitNamespace(FAKE_KUBE_NAME, lease.getNamespace() );
+    }
+
+    private ChartEnvironmentPool.Lease lease(int maxEnvironments, long timeoutMillis) throws ServiceException {
+        return pool.lease(FAKE_KUBE_NAME, fakeRepo, FAKE_CHART_NAME, maxEnvironments, timeoutMillis, NO_LABELS,
+                NO_LABELS, null);
+    }
+}
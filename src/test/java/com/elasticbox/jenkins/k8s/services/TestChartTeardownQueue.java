@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartDetails;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+
+public class TestChartTeardownQueue {
+
+    private static final String FAKE_KUBE_NAME = "fakeKubeCloud";
+    private static final String FAKE_NAMESPACE = "fakeNamespace";
+
+    private ChartDeploymentService deploymentServiceMock = Mockito.mock(ChartDeploymentService.class);
+
+    @Test
+    public void testTeardownIsRetriedUntilItSucceeds() throws Exception {
+        Mockito.doThrow(new ServiceException("Fake teardown error") )
+                .doNothing()
+                .when(deploymentServiceMock).deleteChart(anyString(), anyString(), any(Chart.class) );
+
+        final ChartTeardownQueue queue = new ChartTeardownQueue(deploymentServiceMock, 3, 10);
+        final ChartTeardownQueue.Teardown teardown = queue.submit(FAKE_KUBE_NAME, FAKE_NAMESPACE, getFakeChart() );
+
+        Mockito.verify(deploymentServiceMock, Mockito.timeout(5000).times(2) )
+                .deleteChart(anyString(), anyString(), any(Chart.class) );
+
+        waitUntilCompleted(queue);
+        Assert.assertEquals(ChartTeardownQueue.Status.SUCCEEDED, teardown.getStatus() );
+        Assert.assertEquals(2, teardown.getAttempts() );
+        Assert.assertTrue("No teardown must be pending", queue.getPending().isEmpty() );
+    }
+
+    @Test
+    public void testTeardownFailsAfterMaxAttempts() throws Exception {
+        Mockito.doThrow(new ServiceException("Fake teardown error") )
+                .when(deploymentServiceMock).deleteChart(anyString(), anyString(), any(Chart.class) );
+
+        final ChartTeardownQueue queue = new ChartTeardownQueue(deploymentServiceMock, 3, 10);
+        final ChartTeardownQueue.Teardown teardown = queue.submit(FAKE_KUBE_NAME, FAKE_NAMESPACE, getFakeChart() );
+
+        waitUntilCompleted(queue);
+        Mockito.verify(deploymentServiceMock, Mockito.times(3) )
+                .deleteChart(anyString(), anyString(), any(Chart.class) );
+
+        Assert.assertEquals(ChartTeardownQueue.Status.FAILED, teardown.getStatus() );
+        Assert.assertNotNull("The last error must be reported", teardown.getLastError() );
+        Assert.assertSame(teardown, queue.getCompleted().get(0) );
+    }
+
+    private static void waitUntilCompleted(ChartTeardownQueue queue) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getCompleted().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("Teardown not completed", 1, queue.getCompleted().size() );
+    }
+
+    private static Chart getFakeChart() throws RepositoryException {
+        final ChartDetails details = new ChartDetails();
+        details.setName("fakeChartName");
+        details.setMaintainers(Collections.EMPTY_LIST);
+        return new Chart.ChartBuilder().chartDetails(details).build();
+    }
+}
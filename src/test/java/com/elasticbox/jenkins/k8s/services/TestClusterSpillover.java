@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesCloud;
+import com.elasticbox.jenkins.k8s.plugin.clouds.KubernetesClusterEndpoint;
+import com.elasticbox.jenkins.k8s.repositories.PodRepository;
+import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
+import com.elasticbox.jenkins.k8s.services.error.ServiceException;
+import com.elasticbox.jenkins.k8s.services.slavesprovisioning.ClusterHealthTracker;
+import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.PodDeploymentContext;
+import com.elasticbox.jenkins.k8s.services.slavesprovisioning.chain.steps.CheckProvisioningAllowed;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+public class TestClusterSpillover {
+
+    private static final String CLOUD_NAME = "FakeName";
+    private static final String PRIMARY_NAMESPACE = "FakeNamespace";
+    private static final String CLUSTER_ID = "fakeClusterId";
+    private static final String CLUSTER_NAMESPACE = "FakeClusterNamespace";
+
+    private final PodRepository podRepositoryMock = Mockito.mock(PodRepository.class);
+    private final FakeClockClusterHealthTracker clusterHealthTracker = new FakeClockClusterHealthTracker();
+
+    private KubernetesCloud cloudMock;
+    private CheckProvisioningAllowed checkProvisioningAllowed;
+
+    @Before
+    public void setUp() throws Exception {
+        final KubernetesClusterEndpoint clusterMock = Mockito.mock(KubernetesClusterEndpoint.class);
+        when(clusterMock.getId() ).thenReturn(CLUSTER_ID);
+        when(clusterMock.getNamespace() ).thenReturn(CLUSTER_NAMESPACE);
+        when(clusterMock.getInstanceCap() ).thenReturn(5);
+
+        cloudMock = Mockito.mock(KubernetesCloud.class);
+        when(cloudMock.getName() ).thenReturn(CLOUD_NAME);
+        when(cloudMock.getPredefinedNamespace() ).thenReturn(PRIMARY_NAMESPACE);
+        when(cloudMock.getInstanceCap() ).thenReturn(2);
+        when(cloudMock.getAdditionalClusters() ).thenReturn(Arrays.asList(clusterMock) );
+
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(PodRepository.class).toInstance(podRepositoryMock);
+                bind(ClusterHealthTracker.class).toInstance(clusterHealthTracker);
+            }
+        });
+        checkProvisioningAllowed = injector.getInstance(CheckProvisioningAllowed.class);
+    }
+
+    @Test
+    public void testPrimaryClusterIsPreferred() throws Exception {
+        when(podRepositoryMock.countRunningPods(CLOUD_NAME, PRIMARY_NAMESPACE) ).thenReturn(1);
+
+        final PodDeploymentContext context = newContext();
+        checkProvisioningAllowed.handle(context);
+
+        Assert.assertEquals(CLOUD_NAME, context.getClusterKey() );
+        Assert.assertEquals(PRIMARY_NAMESPACE, context.getDeploymentNamespace() );
+    }
+
+    @Test
+    public void testFullPrimaryClusterSpillsOver() throws Exception {
+        when(podRepositoryMock.countRunningPods(CLOUD_NAME, PRIMARY_NAMESPACE) ).thenReturn(2);
+        when(podRepositoryMock.countRunningPods(clusterKey(), CLUSTER_NAMESPACE) ).thenReturn(0);
+
+        final PodDeploymentContext context = newContext();
+        checkProvisioningAllowed.handle(context);
+
+        Assert.assertEquals("The key must identify the cluster by its id", clusterKey(), context.getClusterKey() );
+        Assert.assertEquals(CLUSTER_NAMESPACE, context.getDeploymentNamespace() );
+        Assert.assertEquals(1, clusterHealthTracker.getStats(CLOUD_NAME).getSpillovers() );
+    }
+
+    @Test(expected = ServiceException.class)
+    public void testAllClustersFull() throws Exception {
+        when(podRepositoryMock.countRunningPods(CLOUD_NAME, PRIMARY_NAMESPACE) ).thenReturn(2);
+        when(podRepositoryMock.countRunningPods(clusterKey(), CLUSTER_NAMESPACE) ).thenReturn(5);
+
+        checkProvisioningAllowed.handle(newContext() );
+    }
+
+    @Test
+    public void testFailingClusterIsSkippedUntilTheCoolDownExpires() throws Exception {
+        when(podRepositoryMock.countRunningPods(CLOUD_NAME, PRIMARY_NAMESPACE) )
+                .thenThrow(new RepositoryException("Fake unreachable cluster") );
+
+        for (int attempt = 0; attempt < ClusterHealthTracker.MAX_CONSECUTIVE_FAILURES; attempt++) {
+            final PodDeploymentContext context = newContext();
+            checkProvisioningAllowed.handle(context);
+            Assert.assertEquals(clusterKey(), context.getClusterKey() );
+        }
+        Assert.assertFalse(clusterHealthTracker.isHealthy(CLOUD_NAME) );
+
+        // While cooling down, the failing cluster is not even tried
+        checkProvisioningAllowed.handle(newContext() );
+        verify(podRepositoryMock, times(ClusterHealthTracker.MAX_CONSECUTIVE_FAILURES) )
+                .countRunningPods(eq(CLOUD_NAME), eq(PRIMARY_NAMESPACE) );
+
+        clusterHealthTracker.now += ClusterHealthTracker.COOL_DOWN_MILLIS + 1;
+        Assert.assertTrue(clusterHealthTracker.isHealthy(CLOUD_NAME) );
+
+        checkProvisioningAllowed.handle(newContext() );
+        verify(podRepositoryMock, times(ClusterHealthTracker.MAX_CONSECUTIVE_FAILURES + 1) )
+                .countRunningPods(eq(CLOUD_NAME), eq(PRIMARY_NAMESPACE) );
+    }
+
+    @Test
+    public void testSuccessResetsTheConsecutiveFailures() throws Exception {
+        for (int attempt = 1; attempt < ClusterHealthTracker.MAX_CONSECUTIVE_FAILURES; attempt++) {
+            clusterHealthTracker.recordFailure(CLOUD_NAME);
+        }
+        clusterHealthTracker.recordSuccess(CLOUD_NAME);
+        clusterHealthTracker.recordFailure(CLOUD_NAME);
+
+        Assert.assertTrue(clusterHealthTracker.isHealthy(CLOUD_NAME) );
+        Assert.assertEquals(1, clusterHealthTracker.getStats(CLOUD_NAME).getConsecutiveFailures() );
+        Assert.assertEquals(ClusterHealthTracker.MAX_CONSECUTIVE_FAILURES,
+                clusterHealthTracker.getStats(CLOUD_NAME).getFailures() );
+    }
+
+    private PodDeploymentContext newContext() {
+        return new PodDeploymentContext.JenkinsPodSlaveDeploymentContextBuilder()
+                .intoKubernetesCloud(cloudMock)
+                .build();
+    }
+
+    private static String clusterKey() {
+        return KubernetesCloud.clusterKey(CLOUD_NAME, CLUSTER_ID);
+    }
+
+    private static class FakeClockClusterHealthTracker extends ClusterHealthTracker {
+
+        private long now = System.currentTimeMillis();
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+}
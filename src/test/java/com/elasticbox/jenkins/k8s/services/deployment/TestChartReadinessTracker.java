@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.elasticbox.jenkins.k8s.chart.Chart;
+import com.elasticbox.jenkins.k8s.chart.ChartDetails;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.ReplicationControllerBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TestChartReadinessTracker {
+
+    @Test
+    public void testReplicationControllerIsReadyWithAllReplicas() throws Exception {
+        final ChartReadinessTracker tracker = new ChartReadinessTracker(chart(), System.currentTimeMillis() );
+        assertTrue(tracker.hasWorkloads() );
+
+        assertTrue(tracker.update(pod("nginx-1", "nginx", "True", null), false).isEmpty() );
+        assertTrue(tracker.update(pod("other-1", "other", "True", null), false).isEmpty() );
+        assertFalse(tracker.isReady() );
+
+        final List<String> messages = tracker.update(pod("nginx-2", "nginx", "True", null), false);
+        assertEquals(1, messages.size() );
+        assertTrue(messages.get(0).startsWith("ReplicationController nginx ready") );
+        assertTrue(tracker.isReady() );
+        assertNull(tracker.getFailure() );
+    }
+
+    @Test
+    public void testCrashLoopIsReportedAsFailure() throws Exception {
+        final ChartReadinessTracker tracker = new ChartReadinessTracker(chart(), System.currentTimeMillis() );
+
+        tracker.update(pod("nginx-1", "nginx", "False", "CrashLoopBackOff"), false);
+
+        assertFalse(tracker.isReady() );
+        assertNotNull(tracker.getFailure() );
+        assertTrue(tracker.getFailure().contains("CrashLoopBackOff") );
+        assertTrue(tracker.getPendingSummary().contains("0/2 pods ready") );
+    }
+
+    @Test
+    public void testDeletedPodIsNotReady() throws Exception {
+        final ChartReadinessTracker tracker = new ChartReadinessTracker(chart(), System.currentTimeMillis() );
+
+        tracker.reset(Collections.singletonList(pod("nginx-1", "nginx", "True", null) ) );
+        tracker.update(pod("nginx-1", "nginx", "True", null), true);
+        tracker.update(pod("nginx-2", "nginx", "True", null), false);
+
+        assertFalse(tracker.isReady() );
+    }
+
+    private static Chart chart() throws Exception {
+        final ReplicationController controller = new ReplicationControllerBuilder()
+                .withNewMetadata().withName("nginx").endMetadata()
+                .withNewSpec().withReplicas(2).addToSelector("app", "nginx").endSpec()
+                .build();
+
+        final ChartDetails details = new ChartDetails();
+        details.setName("nginx");
+        return new Chart.ChartBuilder().chartDetails(details).addReplicationController(controller).build();
+    }
+
+    private static Pod pod(String name, String app, String ready, String waitingReason) {
+        final PodBuilder builder = new PodBuilder()
+                .withNewMetadata().withName(name).addToLabels("app", app).endMetadata()
+                .withNewStatus().withPhase("Running")
+                .addNewCondition().withType("Ready").withStatus(ready).endCondition()
+                .endStatus();
+
+        if (waitingReason != null) {
+            builder.editStatus().addNewContainerStatus().withName(app).withReady(false)
+                    .withNewState().withNewWaiting().withReason(waitingReason).withMessage("Back-off").endWaiting()
+                    .endState().endContainerStatus().endStatus();
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 ElasticBox
+ *
+ * Licensed under the Apache License, Version 2.0, <LICENSE-APACHE or http://apache.org/licenses/LICENSE-2.0>
+ * or the MIT license <LICENSE-MIT or http://opensource.org/licenses/MIT> , at your option.
+ * This file may not be copied, modified, or distributed except according to those terms.
+ */
+
+package com.elasticbox.jenkins.k8s.services.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TestResourceContentHash {
+
+    @Test
+    public void testFieldsPopulatedByTheServerAreIgnored() {
+        final Service desired = service(80);
+
+        final Service live = ResourceContentHash.annotated(service(80), ResourceContentHash.of(desired, null) );
+        live.getMetadata().setLabels(Collections.singletonMap("fakeBuildLabel", "fakeBuildId") );
+        live.getMetadata().setUid("fakeUid");
+        live.getSpec().setClusterIP("10.0.0.1");
+        live.getSpec().setSessionAffinity("None");
+
+        assertTrue(ResourceContentHash.matches(desired, live) );
+    }
+
+    @Test
+    public void testChangeOfTheLiveResourceIsFound() {
+        final Service desired = service(80);
+        final String hash = ResourceContentHash.of(desired, null);
+
+        final Service live = ResourceContentHash.annotated(service(8080), hash);
+
+        // The annotation alone does not tell the live resource was edited
+        assertEquals(hash, ResourceContentHash.deployedHash(live) );
+        assertFalse(ResourceContentHash.matches(desired, live) );
+    }
+
+    @Test
+    public void testMissingLiveResourceDoesNotMatch() {
+        assertFalse(ResourceContentHash.matches(service(80), null) );
+    }
+
+    private static Service service(int port) {
+        return new ServiceBuilder()
+            .withNewMetadata().withName("fakeService").endMetadata()
+            .withNewSpec()
+                .addNewPort().withPort(port).endPort()
+                .withSelector(Collections.singletonMap("app", "fakeApp") )
+            .endSpec()
+            .build();
+    }
+}
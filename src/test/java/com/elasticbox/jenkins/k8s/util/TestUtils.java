@@ -9,16 +9,22 @@
 package com.elasticbox.jenkins.k8s.util;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 import com.elasticbox.jenkins.k8s.chart.ChartRepo;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiArchiveService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiContentsService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRawContentDownloadService;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiRepositoryService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiResponseContentType;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubApiTreesService;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubClientsFactory;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubContent;
 import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubContentLinks;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubRepository;
+import com.elasticbox.jenkins.k8s.repositories.api.charts.github.GitHubTree;
 import com.elasticbox.jenkins.k8s.repositories.error.RepositoryException;
 import org.apache.commons.io.IOUtils;
 import org.mockito.Mockito;
@@ -128,9 +134,13 @@ public final class TestUtils {
         );
 
         final GitHubApiRawContentDownloadService gitHubApiRawContentDownloadService = Mockito.mock(GitHubApiRawContentDownloadService.class);
-        when(gitHubApiRawContentDownloadService.rawContent(any(String.class)))
-                .thenReturn(Observable.just(chart))
-                .thenReturn(Observable.just(rc))
+        // manifests are fetched concurrently, so every download url is bound to its own content
+        when(gitHubApiRawContentDownloadService.rawContent(eq(TestUtils.getFakeChartDetails().getDownloadUrl())))
+                .thenReturn(Observable.just(chart));
+        when(gitHubApiRawContentDownloadService.rawContent(
+                eq(TestUtils.getFakeReplicationControllerManifest().getDownloadUrl())))
+                .thenReturn(Observable.just(rc));
+        when(gitHubApiRawContentDownloadService.rawContent(eq(TestUtils.getFakeServiceManifest().getDownloadUrl())))
                 .thenReturn(Observable.just(service));
 
         final GitHubApiContentsService gitHubApiContentsService = Mockito.mock(GitHubApiContentsService.class);
@@ -139,7 +149,32 @@ public final class TestUtils {
         when(gitHubApiContentsService.content(any(String.class)))
                 .thenReturn(Observable.just(manifestsContent));
 
+        // the archive of the repository is not available, so charts are loaded file by file
+        final GitHubApiArchiveService gitHubApiArchiveService = Mockito.mock(GitHubApiArchiveService.class);
+        when(gitHubApiArchiveService.commitSha(any(String.class), any(String.class), any(String.class)))
+                .thenReturn(Observable.<String>error(new IOException("Archive not available")));
+
+        final GitHubApiTreesService gitHubApiTreesService = Mockito.mock(GitHubApiTreesService.class);
+        when(gitHubApiTreesService.tree(any(String.class), any(String.class), any(String.class), anyInt()))
+                .thenReturn(Observable.<GitHubTree>error(new IOException("Git tree not available")));
+
+        final GitHubRepository repository = new GitHubRepository();
+        repository.setFullName("fakeOwner/fakeChartsRepo");
+        repository.setDefaultBranch("master");
+        final GitHubApiRepositoryService gitHubApiRepositoryService = Mockito.mock(GitHubApiRepositoryService.class);
+        when(gitHubApiRepositoryService.repository(any(String.class), any(String.class)))
+                .thenReturn(Observable.just(repository));
+
         final GitHubClientsFactory mockedClientFactory = Mockito.mock(GitHubClientsFactory.class);
+        when(mockedClientFactory.getClient(any(ChartRepo.class), eq(GitHubApiRepositoryService.class), eq
+                (GitHubApiResponseContentType.JSON)))
+                .thenReturn(gitHubApiRepositoryService);
+        when(mockedClientFactory.getClient(any(ChartRepo.class), eq(GitHubApiTreesService.class), eq
+                (GitHubApiResponseContentType.JSON)))
+                .thenReturn(gitHubApiTreesService);
+        when(mockedClientFactory.getClient(any(ChartRepo.class), eq(GitHubApiArchiveService.class), eq
+                (GitHubApiResponseContentType.RAW_STRING)))
+                .thenReturn(gitHubApiArchiveService);
         when(mockedClientFactory.getClient(any(ChartRepo.class), eq(GitHubApiContentsService.class), eq
                 (GitHubApiResponseContentType.JSON)))
                 .thenReturn(gitHubApiContentsService);